@@ -0,0 +1,209 @@
+package benchmarks;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import components.set.Set;
+
+/**
+ * JMH benchmarks of {@code contains} and iteration on the ordered
+ * {@code Set} implementations: the B+-tree {@code Set5} against the binary
+ * search trees {@code Set3a} and {@code Set3b}.
+ *
+ * <p>
+ * Sets hold {@code n} random {@code Integer}s; {@code contains} probes are
+ * half hits and half (almost certainly) misses, in random order, so every
+ * lookup misses the cache once the set outgrows it. {@code Set3a} is built
+ * with {@code buildFrom}, so it is measured at its best (perfectly balanced)
+ * shape.
+ * </p>
+ *
+ * <p>
+ * JMH does not accept benchmarks in the unnamed package, and classes in a
+ * named package cannot refer to the sets in the unnamed one, so this class is
+ * in {@code benchmarks} and constructs the sets reflectively. There is no
+ * build file; with the OSU {@code components.jar} and the JMH jars
+ * ({@code jmh-core}, {@code jmh-generator-annprocess}, {@code jopt-simple}
+ * and {@code commons-math3}) in {@code lib}, compile with the JMH annotation
+ * processor and run the JMH main class from this project's directory, e.g.
+ * </p>
+ *
+ * <pre>
+ * javac -cp "lib/*" -d bench-classes src/*.java bench/benchmarks/*.java
+ * java -cp "bench-classes:lib/*" org.openjdk.jmh.Main SetLookupBenchmark
+ * java -cp "bench-classes:lib/*" org.openjdk.jmh.Main SetLookupBenchmark \
+ *     -p n=10000000 -prof gc
+ * </pre>
+ *
+ * @authors Charles Sirichoktanasup, Dylan Jian
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms6g", "-Xmx6g" })
+public class SetLookupBenchmark {
+
+    /**
+     * Set implementations under test.
+     */
+    public enum Implementation {
+        /**
+         * {@code Set3a}, perfectly balanced by {@code buildFrom}.
+         */
+        SET_3A,
+        /**
+         * {@code Set3b} (AVL tree).
+         */
+        SET_3B,
+        /**
+         * {@code Set5} (B+-tree).
+         */
+        SET_5
+    }
+
+    /**
+     * Number of probes per {@code contains} invocation; a power of 2.
+     */
+    private static final int PROBES = 1 << 16;
+
+    /**
+     * Seed for the random elements and probes.
+     */
+    private static final long SEED = 2231L;
+
+    /**
+     * Implementation under test.
+     */
+    @Param
+    private Implementation implementation;
+
+    /**
+     * Number of elements.
+     */
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    private int n;
+
+    /**
+     * The set under test.
+     */
+    private Set<Integer> set;
+
+    /**
+     * Keys to look up, boxed once in setup.
+     */
+    private Integer[] probes;
+
+    /**
+     * Index of the next probe.
+     */
+    private int next;
+
+    /**
+     * Creates an empty set of the class named {@code className}, which is in
+     * the unnamed package.
+     *
+     * @param className
+     *            the name of the class
+     * @return the new set
+     */
+    @SuppressWarnings("unchecked")
+    private static Set<Integer> newSet(String className) {
+        try {
+            return (Set<Integer>) Class.forName(className).getConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + className, e);
+        }
+    }
+
+    /**
+     * Creates the set and the probes for the current parameters.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(SEED);
+        HashSet<Integer> unique = new HashSet<>();
+        Integer[] elements = new Integer[this.n];
+        int count = 0;
+        while (count < this.n) {
+            Integer x = random.nextInt();
+            if (unique.add(x)) {
+                elements[count] = x;
+                count++;
+            }
+        }
+        if (this.implementation == Implementation.SET_3A) {
+            this.set = newSet("Set3a");
+            try {
+                this.set.getClass().getMethod("buildFrom", Comparable[].class)
+                        .invoke(this.set, (Object) elements);
+            } catch (ReflectiveOperationException e) {
+                throw new AssertionError("Cannot call Set3a.buildFrom", e);
+            }
+        } else {
+            if (this.implementation == Implementation.SET_3B) {
+                this.set = newSet("Set3b");
+            } else {
+                this.set = newSet("Set5");
+            }
+            for (Integer x : elements) {
+                this.set.add(x);
+            }
+        }
+        this.probes = new Integer[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            if (i % 2 == 0) {
+                this.probes[i] = elements[random.nextInt(this.n)];
+            } else {
+                this.probes[i] = random.nextInt();
+            }
+        }
+        this.next = 0;
+    }
+
+    /**
+     * Looks up one probe.
+     *
+     * @return whether the probe is in the set
+     */
+    @Benchmark
+    public boolean contains() {
+        Integer probe = this.probes[this.next];
+        this.next = (this.next + 1) & (PROBES - 1);
+        return this.set.contains(probe);
+    }
+
+    /**
+     * Iterates over the whole set in order.
+     *
+     * @param blackhole
+     *            sink for the elements
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void iterate(Blackhole blackhole) {
+        for (Integer x : this.set) {
+            blackhole.consume(x);
+        }
+    }
+
+}
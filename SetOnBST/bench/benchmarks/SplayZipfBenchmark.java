@@ -0,0 +1,219 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import components.set.Set;
+
+/**
+ * JMH benchmark of {@code contains} under a skewed (Zipfian) workload: the
+ * splay tree {@code Set3e} against the plain binary search tree {@code Set3a}
+ * and the AVL tree {@code Set3b}.
+ *
+ * <p>
+ * Sets hold the {@code Integer}s 0 to n - 1, added in random order. The probe
+ * of rank r (1 = hottest) is drawn with probability proportional to
+ * 1 / r<sup>skew</sup>, and ranks are assigned to elements at random, so hot
+ * elements are scattered through the key space rather than clustered at one
+ * end. All probes are hits. A skew of 0 gives uniform lookups, where splaying
+ * only costs; the larger the skew, the more a small hot set dominates.
+ * </p>
+ *
+ * <p>
+ * Like {@code SetLookupBenchmark}, this class is in {@code benchmarks}
+ * because JMH does not accept benchmarks in the unnamed package, and so
+ * constructs the sets reflectively. Build and run it the same way, e.g.
+ * </p>
+ *
+ * <pre>
+ * javac -cp "lib/*" -d bench-classes src/*.java bench/benchmarks/*.java
+ * java -cp "bench-classes:lib/*" org.openjdk.jmh.Main SplayZipfBenchmark
+ * java -cp "bench-classes:lib/*" org.openjdk.jmh.Main SplayZipfBenchmark \
+ *     -p skew=1.2 -p n=1000000
+ * </pre>
+ *
+ * @authors Charles Sirichoktanasup, Dylan Jian
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class SplayZipfBenchmark {
+
+    /**
+     * Set implementations under test.
+     */
+    public enum Implementation {
+        /**
+         * {@code Set3a} (unbalanced binary search tree).
+         */
+        SET_3A,
+        /**
+         * {@code Set3b} (AVL tree).
+         */
+        SET_3B,
+        /**
+         * {@code Set3e} (splay tree).
+         */
+        SET_3E
+    }
+
+    /**
+     * Number of probes per {@code contains} invocation; a power of 2.
+     */
+    private static final int PROBES = 1 << 20;
+
+    /**
+     * Seed for the insertion order, the ranks, and the probes.
+     */
+    private static final long SEED = 48L;
+
+    /**
+     * Implementation under test.
+     */
+    @Param
+    private Implementation implementation;
+
+    /**
+     * Number of elements.
+     */
+    @Param({ "10000", "1000000" })
+    private int n;
+
+    /**
+     * Zipf exponent of the probe distribution.
+     */
+    @Param({ "0", "0.8", "0.99", "1.2" })
+    private double skew;
+
+    /**
+     * The set under test.
+     */
+    private Set<Integer> set;
+
+    /**
+     * Keys to look up, boxed once in setup.
+     */
+    private Integer[] probes;
+
+    /**
+     * Index of the next probe.
+     */
+    private int next;
+
+    /**
+     * Shuffles {@code elements} in place.
+     *
+     * @param elements
+     *            the array to shuffle
+     * @param random
+     *            the source of randomness
+     * @updates elements
+     */
+    private static void shuffle(Integer[] elements, Random random) {
+        for (int i = elements.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Integer tmp = elements[i];
+            elements[i] = elements[j];
+            elements[j] = tmp;
+        }
+    }
+
+    /**
+     * Creates an empty set of the class named {@code className}, which is in
+     * the unnamed package.
+     *
+     * @param className
+     *            the name of the class
+     * @return the new set
+     */
+    @SuppressWarnings("unchecked")
+    private static Set<Integer> newSet(String className) {
+        try {
+            return (Set<Integer>) Class.forName(className).getConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + className, e);
+        }
+    }
+
+    /**
+     * Creates the set and the probes for the current parameters.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(SEED);
+        Integer[] elements = new Integer[this.n];
+        for (int i = 0; i < this.n; i++) {
+            elements[i] = i;
+        }
+        shuffle(elements, random);
+        if (this.implementation == Implementation.SET_3A) {
+            this.set = newSet("Set3a");
+        } else if (this.implementation == Implementation.SET_3B) {
+            this.set = newSet("Set3b");
+        } else {
+            this.set = newSet("Set3e");
+        }
+        for (Integer x : elements) {
+            this.set.add(x);
+        }
+        /*
+         * Inverse-CDF sampling of ranks; the element of rank r is
+         * elements[r - 1] after a second shuffle
+         */
+        shuffle(elements, random);
+        double[] cumulative = new double[this.n];
+        double total = 0;
+        for (int r = 0; r < this.n; r++) {
+            total += Math.pow(r + 1, -this.skew);
+            cumulative[r] = total;
+        }
+        this.probes = new Integer[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            double u = random.nextDouble() * total;
+            int lo = 0;
+            int hi = this.n - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cumulative[mid] < u) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            this.probes[i] = elements[lo];
+        }
+        this.next = 0;
+    }
+
+    /**
+     * Looks up one probe.
+     *
+     * @return whether the probe is in the set
+     */
+    @Benchmark
+    public boolean contains() {
+        Integer probe = this.probes[this.next];
+        this.next = (this.next + 1) & (PROBES - 1);
+        return this.set.contains(probe);
+    }
+
+}
@@ -0,0 +1,504 @@
+import java.util.Iterator;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set} layered on another {@code Set} (a {@code Set3a} by default) with
+ * a blocked Bloom filter in front of it, so that most {@code contains} calls
+ * for elements that are not in the set are answered without searching it.
+ *
+ * <p>
+ * The filter is an array of 512-bit blocks (one cache line each); an element
+ * hashes to one block and sets {@code HASHES} bits in it. {@code contains}
+ * reads that one block and searches the underlying set only if all the bits
+ * are set, so a definite miss costs about one cache miss instead of a
+ * root-to-leaf walk. With {@code BITS_PER_ELEMENT} bits per element the false
+ * positive rate is around 1%.
+ * </p>
+ *
+ * <p>
+ * {@code add} sets the new element's bits. {@code remove} and
+ * {@code removeAny} cannot clear bits (other elements may share them), so they
+ * only count the removal; once the filter holds many removed elements, or the
+ * set outgrows the capacity the filter was sized for, the filter is marked
+ * stale and is rebuilt from the elements of the set, at twice its size, on the
+ * next {@code contains}. {@code expectedFalsePositiveRate},
+ * {@code observedFalsePositiveRate} and {@code filterBytes} report how well
+ * the filter is doing and what it costs.
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @requires [equals and hashCode for T are consistent with compareTo for T]
+ * @convention <pre>
+ * $this.set is not null  and  $this.filter is not null  and
+ * |$this.filter| = BLOCK_WORDS * [a power of 2]  and
+ * [$this.bitsSet is the number of bits set in $this.filter]  and
+ * $this.capacity >= MIN_CAPACITY  and
+ * [if not $this.stale, then |$this.set| <= $this.capacity  and
+ *  $this.removedSinceBuild <= $this.capacity / 4  and
+ *  the bits of every element of $this.set are set in $this.filter]
+ * </pre>
+ * @correspondence this = $this.set
+ *
+ * @authors Charles Sirichoktanasup, Dylan Jian
+ *
+ */
+public class BloomFilteredSet<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Number of 64-bit words in a block: 512 bits, one cache line.
+     */
+    private static final int BLOCK_WORDS = 8;
+
+    /**
+     * Number of bits in a block.
+     */
+    private static final int BLOCK_BITS = BLOCK_WORDS * Long.SIZE;
+
+    /**
+     * Number of bits needed to index a bit in a block.
+     */
+    private static final int BLOCK_BIT_INDEX_BITS = 9;
+
+    /**
+     * Number of bits set for each element; 7 indices of 9 bits each fit in one
+     * 64-bit hash.
+     */
+    private static final int HASHES = 7;
+
+    /**
+     * Number of filter bits per element of capacity.
+     */
+    private static final int BITS_PER_ELEMENT = 10;
+
+    /**
+     * Smallest capacity the filter is sized for.
+     */
+    private static final int MIN_CAPACITY = 64;
+
+    /**
+     * The underlying set.
+     */
+    private Set<T> set;
+
+    /**
+     * The filter, as {@code BLOCK_WORDS}-word blocks.
+     */
+    private long[] filter;
+
+    /**
+     * Number of bits set in {@code filter}.
+     */
+    private long bitsSet;
+
+    /**
+     * Number of elements {@code filter} was sized for.
+     */
+    private int capacity;
+
+    /**
+     * Number of elements removed since {@code filter} was last built.
+     */
+    private int removedSinceBuild;
+
+    /**
+     * Whether {@code filter} must be rebuilt before it is next used.
+     */
+    private boolean stale;
+
+    /**
+     * Number of {@code contains} calls answered by the filter alone.
+     */
+    private long filteredMisses;
+
+    /**
+     * Number of {@code contains} calls the filter passed on to the set that
+     * returned false.
+     */
+    private long falsePositives;
+
+    /**
+     * Returns a well-mixed 64-bit hash of {@code x}.
+     *
+     * @param x
+     *            the element
+     * @return the hash
+     */
+    private static long hash(Object x) {
+        // Finalizer of MurmurHash3's 64-bit variant
+        long h = x.hashCode();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Returns the index of the first word of the block for hash {@code h}.
+     *
+     * @param h
+     *            the hash of an element
+     * @return the index of the first word of the block
+     */
+    private int blockStart(long h) {
+        int blocks = this.filter.length / BLOCK_WORDS;
+        return ((int) (h >>> Integer.SIZE) & (blocks - 1)) * BLOCK_WORDS;
+    }
+
+    /**
+     * Returns the hash that gives the bit indices in a block, from the hash
+     * {@code h} that chose the block.
+     *
+     * @param h
+     *            the hash of an element
+     * @return the hash for bit indices
+     */
+    private static long bitHash(long h) {
+        return h * 0x9e3779b97f4a7c15L + 1;
+    }
+
+    /**
+     * Sets the bits of {@code x} in {@code filter}.
+     *
+     * @param x
+     *            the element
+     * @updates this.filter, this.bitsSet
+     */
+    private void setBits(T x) {
+        long h = hash(x);
+        int start = this.blockStart(h);
+        long bits = bitHash(h);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (int) bits & (BLOCK_BITS - 1);
+            int word = start + (bit >>> 6);
+            long mask = 1L << bit;
+            if ((this.filter[word] & mask) == 0) {
+                this.filter[word] |= mask;
+                this.bitsSet++;
+            }
+            bits >>>= BLOCK_BIT_INDEX_BITS;
+        }
+    }
+
+    /**
+     * Reports whether all the bits of {@code x} are set in {@code filter}.
+     *
+     * @param x
+     *            the element
+     * @return true iff every bit of x is set
+     */
+    private boolean mayContain(T x) {
+        long h = hash(x);
+        int start = this.blockStart(h);
+        long bits = bitHash(h);
+        boolean all = true;
+        for (int i = 0; i < HASHES && all; i++) {
+            int bit = (int) bits & (BLOCK_BITS - 1);
+            all = (this.filter[start + (bit >>> 6)] & (1L << bit)) != 0;
+            bits >>>= BLOCK_BIT_INDEX_BITS;
+        }
+        return all;
+    }
+
+    /**
+     * Allocates an empty filter sized for {@code capacity} elements.
+     *
+     * @param capacity
+     *            the number of elements
+     * @updates this.filter, this.bitsSet, this.capacity,
+     *          this.removedSinceBuild, this.stale
+     */
+    private void resetFilter(int capacity) {
+        long bitsWanted = (long) Math.max(capacity, MIN_CAPACITY)
+                * BITS_PER_ELEMENT;
+        int blocks = 1;
+        while ((long) blocks * BLOCK_BITS < bitsWanted) {
+            blocks *= 2;
+        }
+        this.filter = new long[blocks * BLOCK_WORDS];
+        this.bitsSet = 0;
+        this.capacity = Math.max(capacity, MIN_CAPACITY);
+        this.removedSinceBuild = 0;
+        this.stale = false;
+    }
+
+    /**
+     * Rebuilds {@code filter} from the elements of {@code set}, sized for
+     * twice as many elements.
+     *
+     * @updates this.filter, this.bitsSet, this.capacity,
+     *          this.removedSinceBuild, this.stale
+     */
+    private void rebuildFilter() {
+        this.resetFilter(2 * this.set.size());
+        for (T x : this.set) {
+            this.setBits(x);
+        }
+    }
+
+    /**
+     * Checks that the convention holds for the current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     */
+    private boolean conventionHolds() {
+        assert this.set != null : "Violation of: $this.set is not null";
+        assert this.filter != null : "Violation of: $this.filter is not null";
+        int blocks = this.filter.length / BLOCK_WORDS;
+        assert this.filter.length % BLOCK_WORDS == 0 && blocks > 0
+                && (blocks & (blocks - 1)) == 0 : ""
+                        + "Violation of: |$this.filter| = BLOCK_WORDS *"
+                        + " [a power of 2]";
+        long count = 0;
+        for (long word : this.filter) {
+            count += Long.bitCount(word);
+        }
+        assert count == this.bitsSet : ""
+                + "Violation of: [$this.bitsSet is the number of bits set in"
+                + " $this.filter]";
+        assert this.capacity >= MIN_CAPACITY : ""
+                + "Violation of: $this.capacity >= MIN_CAPACITY";
+        if (!this.stale) {
+            assert this.set.size() <= this.capacity : ""
+                    + "Violation of: [if not $this.stale, then |$this.set| <="
+                    + " $this.capacity]";
+            assert this.removedSinceBuild <= this.capacity / 4 : ""
+                    + "Violation of: [if not $this.stale, then"
+                    + " $this.removedSinceBuild <= $this.capacity / 4]";
+            for (T x : this.set) {
+                assert this.mayContain(x) : ""
+                        + "Violation of: [if not $this.stale, then the bits of"
+                        + " every element of $this.set are set in"
+                        + " $this.filter]";
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param empty
+     *            the empty set to layer the filter on
+     */
+    private void createNewRep(Set<T> empty) {
+        this.set = empty;
+        this.resetFilter(MIN_CAPACITY);
+        this.filteredMisses = 0;
+        this.falsePositives = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor; layers the filter on a {@code Set3a}.
+     */
+    public BloomFilteredSet() {
+        this.createNewRep(new Set3a<T>());
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Constructor from the set to layer the filter on; takes over the
+     * elements of {@code s}, leaving it empty, and builds the filter from
+     * them.
+     *
+     * @param s
+     *            the set whose elements this takes over
+     * @updates s
+     * @ensures this = #s  and  s = {}
+     */
+    public BloomFilteredSet(Set<T> s) {
+        assert s != null : "Violation of: s is not null";
+        this.createNewRep(s.newInstance());
+        this.set.transferFrom(s);
+        this.rebuildFilter();
+        assert this.conventionHolds();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Set<T> newInstance() {
+        return new BloomFilteredSet<T>(this.set.newInstance());
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep(this.set.newInstance());
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof BloomFilteredSet<?> : ""
+                + "Violation of: source is of dynamic type BloomFilteredSet<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * BloomFilteredSet<?>, and the ? must be T or the call would not have
+         * compiled.
+         */
+        BloomFilteredSet<T> localSource = (BloomFilteredSet<T>) source;
+        this.set = localSource.set;
+        this.filter = localSource.filter;
+        this.bitsSet = localSource.bitsSet;
+        this.capacity = localSource.capacity;
+        this.removedSinceBuild = localSource.removedSinceBuild;
+        this.stale = localSource.stale;
+        this.filteredMisses = localSource.filteredMisses;
+        this.falsePositives = localSource.falsePositives;
+        localSource.createNewRep(this.set.newInstance());
+        assert this.conventionHolds();
+        assert localSource.conventionHolds();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.set.contains(x) : "Violation of: x is not in this";
+
+        this.set.add(x);
+        if (this.set.size() > this.capacity) {
+            this.stale = true;
+        } else if (!this.stale) {
+            this.setBits(x);
+        }
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.set.contains(x) : "Violation of: x is in this";
+
+        T removed = this.set.remove(x);
+        this.countRemoval();
+        assert this.conventionHolds();
+        return removed;
+    }
+
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        T removed = this.set.removeAny();
+        this.countRemoval();
+        assert this.conventionHolds();
+        return removed;
+    }
+
+    /**
+     * Records that an element was removed from {@code set}, and marks the
+     * filter stale once a quarter of its capacity is taken by bits of removed
+     * elements.
+     *
+     * @updates this.removedSinceBuild, this.stale
+     */
+    private void countRemoval() {
+        this.removedSinceBuild++;
+        if (this.removedSinceBuild > this.capacity / 4) {
+            this.stale = true;
+        }
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        if (this.stale) {
+            this.rebuildFilter();
+            assert this.conventionHolds();
+        }
+        boolean contains = false;
+        if (!this.mayContain(x)) {
+            this.filteredMisses++;
+        } else {
+            contains = this.set.contains(x);
+            if (!contains) {
+                this.falsePositives++;
+            }
+        }
+        return contains;
+    }
+
+    @Override
+    public final int size() {
+        return this.set.size();
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return this.set.iterator();
+    }
+
+    /*
+     * Filter statistics ------------------------------------------------------
+     */
+
+    /**
+     * Reports the false positive rate expected of the filter in its current
+     * state, from the fraction of its bits that are set: the probability that
+     * a {@code contains} call for an element not in {@code this} searches the
+     * underlying set anyway. Bits of removed elements count until the filter
+     * is rebuilt.
+     *
+     * @return the expected false positive rate, in [0, 1]
+     * @ensures <pre>
+     * expectedFalsePositiveRate =
+     *  ([number of bits set] / [number of bits in the filter]) ^ HASHES
+     * </pre>
+     */
+    public final double expectedFalsePositiveRate() {
+        double fill = (double) this.bitsSet
+                / ((long) this.filter.length * Long.SIZE);
+        return Math.pow(fill, HASHES);
+    }
+
+    /**
+     * Reports the fraction of {@code contains} calls that returned false
+     * but were not answered by the filter alone, since {@code this} was
+     * created or cleared.
+     *
+     * @return the observed false positive rate, in [0, 1], or 0 if no call
+     *         has returned false
+     */
+    public final double observedFalsePositiveRate() {
+        long negatives = this.filteredMisses + this.falsePositives;
+        double rate = 0;
+        if (negatives > 0) {
+            rate = (double) this.falsePositives / negatives;
+        }
+        return rate;
+    }
+
+    /**
+     * Reports the memory used by the filter itself, excluding the underlying
+     * set.
+     *
+     * @return the size of the filter in bytes
+     */
+    public final long filterBytes() {
+        return (long) this.filter.length * Long.BYTES;
+    }
+
+}
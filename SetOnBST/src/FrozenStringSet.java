@@ -0,0 +1,328 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import components.set.Set;
+
+/**
+ * Read-only set of {@code String}s stored in a packed file and searched in
+ * place through a memory mapping, for dictionaries (stop words, allow lists)
+ * that are built once and then only queried.
+ *
+ * <p>
+ * {@code freeze} writes the elements of a {@code Set<String>} (typically a
+ * {@code Set3a}) to a file; {@code load} maps that file into memory in O(1)
+ * time, without reading it, and the resulting object holds no per-element
+ * objects on the heap: {@code contains} compares the query's UTF-8 bytes
+ * directly with the mapped bytes. Strings are ordered, and compared, by their
+ * UTF-8 encodings (so they should not contain unpaired surrogates, which
+ * UTF-8 cannot encode).
+ * </p>
+ *
+ * <p>
+ * The entries are stored in Eytzinger order (the breadth-first order of a
+ * complete binary search tree: the children of entry k are entries 2k and
+ * 2k + 1), so the first levels of every search share the same few cache
+ * lines and each step moves to a predictable place. Each entry also has an
+ * 8-byte prefix stored in a separate array in the same order, so most steps
+ * compare one {@code long} and touch the string bytes only on a tie.
+ * </p>
+ *
+ * <p>
+ * File format (big-endian): the int {@code MAGIC}, the int {@code VERSION},
+ * the int number of entries n, an int of padding; then n long prefixes; then
+ * n + 1 int offsets of the entries' bytes from the start of the data; then the
+ * data, the UTF-8 bytes of the entries in Eytzinger order.
+ * </p>
+ *
+ * @convention <pre>
+ * [$this.buffer holds a file written by freeze, with $this.count entries]
+ * </pre>
+ * @correspondence <pre>
+ * this = [the set of strings whose UTF-8 encodings are the entries of
+ *  $this.buffer]
+ * </pre>
+ *
+ * @authors Charles Sirichoktanasup, Dylan Jian
+ *
+ */
+public final class FrozenStringSet {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * First int of every file: "FSS1".
+     */
+    private static final int MAGIC = 0x46535331;
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_BYTES = 16;
+
+    /**
+     * The mapped file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Number of entries.
+     */
+    private final int count;
+
+    /**
+     * Position of the offsets in {@code buffer}.
+     */
+    private final int offsetsStart;
+
+    /**
+     * Position of the data in {@code buffer}.
+     */
+    private final int dataStart;
+
+    /**
+     * Returns the first 8 bytes of {@code bytes} as a {@code long}, padded
+     * with zero bytes, so that comparing prefixes as unsigned longs agrees
+     * with comparing the bytes as unsigned bytes.
+     *
+     * @param bytes
+     *            the bytes
+     * @return the prefix
+     */
+    private static long prefix(byte[] bytes) {
+        long prefix = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            prefix <<= Byte.SIZE;
+            if (i < bytes.length) {
+                prefix |= bytes[i] & 0xff;
+            }
+        }
+        return prefix;
+    }
+
+    /**
+     * Stores the entries of {@code sorted} in {@code eytzinger} in Eytzinger
+     * order, from subtree root {@code k}, starting at {@code sorted[next]},
+     * and returns the index of the first entry of {@code sorted} not used.
+     *
+     * @param sorted
+     *            the entries, in increasing order
+     * @param eytzinger
+     *            the entries in Eytzinger order, at indices 1 to |sorted|
+     * @param k
+     *            the index of the root of the subtree to fill
+     * @param next
+     *            the index of the next entry of sorted to store
+     * @return the index of the next entry of sorted to store afterwards
+     * @updates eytzinger
+     */
+    private static int layOut(byte[][] sorted, byte[][] eytzinger, int k,
+            int next) {
+        int after = next;
+        if (k <= sorted.length) {
+            after = layOut(sorted, eytzinger, 2 * k, after);
+            eytzinger[k] = sorted[after];
+            after++;
+            after = layOut(sorted, eytzinger, 2 * k + 1, after);
+        }
+        return after;
+    }
+
+    /**
+     * Constructor from mapped file.
+     *
+     * @param buffer
+     *            the contents of a file written by freeze
+     * @throws IOException
+     *             if buffer does not hold such a file
+     */
+    private FrozenStringSet(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC
+                || buffer.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("Not a frozen string set file");
+        }
+        this.buffer = buffer;
+        this.count = buffer.getInt(2 * Integer.BYTES);
+        long offsets = HEADER_BYTES + (long) this.count * Long.BYTES;
+        long data = offsets + ((long) this.count + 1) * Integer.BYTES;
+        if (this.count < 0 || data > buffer.limit() || data
+                + buffer.getInt((int) offsets + this.count * Integer.BYTES)
+                != buffer.limit()) {
+            throw new IOException("Truncated frozen string set file");
+        }
+        this.offsetsStart = (int) offsets;
+        this.dataStart = (int) data;
+    }
+
+    /**
+     * Compares {@code key}, whose prefix is {@code keyPrefix}, with entry
+     * {@code k}.
+     *
+     * @param key
+     *            the UTF-8 bytes of the query
+     * @param keyPrefix
+     *            prefix(key)
+     * @param k
+     *            the index of the entry, in [1, count]
+     * @return negative, zero, or positive as key is less than, equal to, or
+     *         greater than entry k, as unsigned bytes
+     */
+    private int compareWithEntry(byte[] key, long keyPrefix, int k) {
+        long entryPrefix = this.buffer
+                .getLong(HEADER_BYTES + (k - 1) * Long.BYTES);
+        int comparison = Long.compareUnsigned(keyPrefix, entryPrefix);
+        if (comparison == 0) {
+            int at = this.offsetsStart + (k - 1) * Integer.BYTES;
+            int start = this.buffer.getInt(at);
+            int length = this.buffer.getInt(at + Integer.BYTES) - start;
+            int position = this.dataStart + start;
+            /*
+             * The first 8 bytes are equal (or padding), so the comparison
+             * starts after them
+             */
+            int i = Math.min(Long.BYTES, Math.min(key.length, length));
+            while (comparison == 0 && i < key.length && i < length) {
+                comparison = Integer.compare(key[i] & 0xff,
+                        this.buffer.get(position + i) & 0xff);
+                i++;
+            }
+            if (comparison == 0) {
+                comparison = Integer.compare(key.length, length);
+            }
+        }
+        return comparison;
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Writes the elements of {@code s} to {@code file}, replacing it, in the
+     * format {@code load} reads.
+     *
+     * @param s
+     *            the set to freeze
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file cannot be written
+     * @requires [the file would be smaller than 2 GB]
+     * @ensures [file holds the elements of s, for load]
+     */
+    public static void freeze(Set<String> s, Path file) throws IOException {
+        assert s != null : "Violation of: s is not null";
+        assert file != null : "Violation of: file is not null";
+
+        int n = s.size();
+        byte[][] sorted = new byte[n][];
+        int i = 0;
+        for (String x : s) {
+            sorted[i] = x.getBytes(StandardCharsets.UTF_8);
+            i++;
+        }
+        Arrays.sort(sorted, Arrays::compareUnsigned);
+        byte[][] eytzinger = new byte[n + 1][];
+        layOut(sorted, eytzinger, 1, 0);
+        long dataBytes = 0;
+        for (byte[] bytes : sorted) {
+            dataBytes += bytes.length;
+        }
+        assert HEADER_BYTES + (long) n * (Long.BYTES + Integer.BYTES)
+                + Integer.BYTES + dataBytes <= Integer.MAX_VALUE : ""
+                        + "Violation of: [the file would be smaller than"
+                        + " 2 GB]";
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(0);
+            for (int k = 1; k <= n; k++) {
+                out.writeLong(prefix(eytzinger[k]));
+            }
+            int offset = 0;
+            for (int k = 1; k <= n; k++) {
+                out.writeInt(offset);
+                offset += eytzinger[k].length;
+            }
+            out.writeInt(offset);
+            for (int k = 1; k <= n; k++) {
+                out.write(eytzinger[k]);
+            }
+        }
+    }
+
+    /**
+     * Maps {@code file}, written by {@code freeze}, into memory, and returns
+     * the set it holds. Takes O(1) time: pages of the file are read only when
+     * searches touch them.
+     *
+     * @param file
+     *            the file to load
+     * @return the set
+     * @throws IOException
+     *             if the file cannot be read or was not written by freeze
+     * @ensures load = [the set frozen into file]
+     */
+    public static FrozenStringSet load(Path file) throws IOException {
+        assert file != null : "Violation of: file is not null";
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            return new FrozenStringSet(channel
+                    .map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reports whether {@code x} is in {@code this}.
+     *
+     * @param x
+     *            the string to look for
+     * @return true iff x is in this
+     * @ensures contains = (x is in this)
+     */
+    public boolean contains(String x) {
+        assert x != null : "Violation of: x is not null";
+
+        byte[] key = x.getBytes(StandardCharsets.UTF_8);
+        long keyPrefix = prefix(key);
+        int k = 1;
+        int comparison = 1;
+        while (comparison != 0 && k <= this.count) {
+            comparison = this.compareWithEntry(key, keyPrefix, k);
+            if (comparison < 0) {
+                k = 2 * k;
+            } else if (comparison > 0) {
+                k = 2 * k + 1;
+            }
+        }
+        return comparison == 0;
+    }
+
+    /**
+     * Reports the number of elements of {@code this}.
+     *
+     * @return |this|
+     * @ensures size = |this|
+     */
+    public int size() {
+        return this.count;
+    }
+
+}
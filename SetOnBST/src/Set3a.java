@@ -1,13 +1,50 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 
-import components.binarytree.BinaryTree;
-import components.binarytree.BinaryTree1;
 import components.set.Set;
 import components.set.SetSecondary;
 
 /**
- * {@code Set} represented as a {@code BinaryTree} (maintained as a binary
- * search tree) of elements with implementations of primary methods.
+ * {@code Set} represented as a binary search tree of nodes, with
+ * implementations of primary methods.
+ *
+ * <p>
+ * The tree is made of private mutable nodes and every operation descends it
+ * iteratively: {@code contains} allocates nothing, {@code add} allocates the
+ * one new node, and {@code remove} and {@code removeAny} allocate nothing. No
+ * operation recurses, so a degenerate tree cannot overflow the stack.
+ * </p>
+ *
+ * <p>
+ * The bulk operations {@code add(Set)} and {@code remove(Set)} merge the two
+ * sets' elements in increasing order and rebuild the results as perfectly
+ * balanced trees, in O(n + m) time when the other set is also a
+ * {@code Set3a} (O(n + m log m) otherwise, to sort its elements). When the
+ * other set is so much smaller that m log n is well below n, they instead
+ * look up, add or remove its elements one by one, leaving the rest of the
+ * tree as it is.
+ * {@code buildFrom} likewise replaces {@code this} with a perfectly balanced
+ * tree of a batch of elements, in O(n) time when the batch is sorted.
+ * </p>
+ *
+ * <p>
+ * Two opt-in instruments show how a tree is doing in use. Profiling (see
+ * {@code startProfiling}) counts, for each kind of {@code Operation}, the
+ * calls, the nodes they visit and the nodes they allocate; while it is off,
+ * which is the default, operations only test one field for it. A height
+ * alarm (see {@code setHeightAlarm}) measures the height every so many
+ * changes and calls a hook when it is past a multiple of the height of a
+ * perfectly balanced tree of the same size, so a degenerate tree is caught
+ * early. {@code height} and {@code averageDepth} report the shape on demand.
+ * </p>
  *
  * @param <T>
  *            type of {@code Set} elements
@@ -19,200 +56,890 @@ import components.set.SetSecondary;
  *   slides with the ordering reported by compareTo for T, including that
  *   it has no duplicate labels]
  * </pre>
- * @convention IS_BST($this.tree)
- * @correspondence this = labels($this.tree)
+ * @convention <pre>
+ * [$this.root is null or the root of a tree of nodes, each reachable from
+ *  $this.root along exactly one path]  and
+ * IS_BST([tree of labels of the nodes from $this.root])  and
+ * $this.size = [number of nodes in the tree from $this.root]
+ * </pre>
+ * @correspondence this = labels([tree of labels of the nodes from $this.root])
  *
  * @authors Charles Sirichoktanasup, Dylan Jian
  *
  */
 public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
 
+    /**
+     * Kinds of operations counted while profiling.
+     */
+    public enum Operation {
+        /**
+         * {@code add(T)}.
+         */
+        ADD,
+        /**
+         * {@code contains(T)}.
+         */
+        CONTAINS,
+        /**
+         * {@code remove(T)} and {@code removeAny()}.
+         */
+        REMOVE
+    }
+
     /*
      * Private members --------------------------------------------------------
      */
 
     /**
-     * Elements included in {@code this}.
+     * Number of keys below which a batch task is not split further.
+     */
+    private static final int BATCH_SPLIT_THRESHOLD = 1 << 10;
+
+    /**
+     * Factor by which the estimated cost m log n of changing one element at a
+     * time must be below the cost n of rebuilding for {@code add(Set)} and
+     * {@code remove(Set)} to change one element at a time.
+     */
+    private static final int PER_ELEMENT_FACTOR = 4;
+
+    /**
+     * Node class for binary search tree.
+     */
+    private final class Node {
+
+        /**
+         * Label of node.
+         */
+        private T label;
+
+        /**
+         * Root of left subtree, or null if it is empty.
+         */
+        private Node left;
+
+        /**
+         * Root of right subtree, or null if it is empty.
+         */
+        private Node right;
+
+        /**
+         * Constructor from label; the new node is a leaf.
+         *
+         * @param label
+         *            the label of the node
+         */
+        private Node(T label) {
+            this.label = label;
+        }
+
+    }
+
+    /**
+     * Root of the tree, or null if {@code this} is empty.
+     */
+    private Node root;
+
+    /**
+     * Number of nodes in the tree.
+     */
+    private int size;
+
+    /**
+     * Counters kept while profiling, indexed by {@code Operation} ordinal.
+     */
+    private static final class Profile {
+
+        /**
+         * Number of calls.
+         */
+        private final long[] calls = new long[Operation.values().length];
+
+        /**
+         * Number of nodes visited.
+         */
+        private final long[] visited = new long[Operation.values().length];
+
+        /**
+         * Number of nodes allocated.
+         */
+        private final long[] allocated = new long[Operation.values().length];
+
+    }
+
+    /**
+     * Counters, or null if {@code this} is not being profiled.
+     */
+    private Profile profile;
+
+    /**
+     * Hook called when the height is past its limit, or null if there is no
+     * height alarm.
+     */
+    private Consumer<Set3a<T>> heightAlarm;
+
+    /**
+     * Factor c in the height limit c * log2(|this| + 1).
+     */
+    private double heightFactor;
+
+    /**
+     * Number of changes between two measurements of the height.
+     */
+    private int heightPeriod;
+
+    /**
+     * Number of changes since the height was last measured.
      */
-    private BinaryTree<T> tree;
+    private int changesSinceHeightCheck;
 
     /**
-     * Returns whether {@code x} is in {@code t}.
+     * Returns the node of the tree with label {@code x}, or null if there is
+     * none.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} to be searched
      * @param x
      *            the label to be searched for
-     * @return true if t contains x, false otherwise
-     * @requires IS_BST(t)
-     * @ensures isInTree = (x is in labels(t))
+     * @return the node with label x, or null
+     * @requires IS_BST([tree of labels of the nodes from $this.root])
+     * @ensures <pre>
+     * (findInTree = null  and  x is not in this)  or
+     * (findInTree is a node from $this.root  and  findInTree.label = x)
+     * </pre>
      */
-    private static <T extends Comparable<T>> boolean isInTree(BinaryTree<T> t,
-            T x) {
-        assert t != null : "Violation of: t is not null";
+    private Node findInTree(T x) {
         assert x != null : "Violation of: x is not null";
         /*
-         * If t isn't empty, disassembles tree and checks if the label equals x.
-         * If this isn't the case, isInTree is called on the left or right tree
-         * until x is found (inTree = true) until the tree search is empty
-         * (inTree = false). The tree is reassembled at the end of the code, and
-         * the inTree boolean is returned.
-         */
-        boolean inTree = false;
-        BinaryTree<T> left = new BinaryTree1<>();
-        BinaryTree<T> right = new BinaryTree1<>();
-        if (t.size() > 0) {
-            T label = t.disassemble(left, right);
-            if (label.compareTo(x) == 0) {
-                inTree = true;
-            } else if (label.compareTo(x) > 0) {
-                inTree = isInTree(left, x);
-            } else {
-                inTree = isInTree(right, x);
+         * Descends from the root, going left or right by comparing x with each
+         * label, until x is found or the path runs out
+         */
+        Node n = this.root;
+        int comparison = 1;
+        int visited = 0;
+        while (n != null && comparison != 0) {
+            comparison = n.label.compareTo(x);
+            visited++;
+            if (comparison > 0) {
+                n = n.left;
+            } else if (comparison < 0) {
+                n = n.right;
             }
-            t.assemble(label, left, right);
         }
-        return inTree;
+        this.recordCost(Operation.CONTAINS, visited, 0);
+        return n;
     }
 
     /**
-     * Inserts {@code x} in {@code t}.
+     * Inserts {@code x} in the tree.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} to be searched
      * @param x
      *            the label to be inserted
      * @aliases reference {@code x}
-     * @updates t
-     * @requires IS_BST(t) and x is not in labels(t)
-     * @ensures IS_BST(t) and labels(t) = labels(#t) union {x}
+     * @updates $this.root
+     * @requires <pre>
+     * IS_BST([tree of labels of the nodes from $this.root])  and
+     * x is not in labels([tree of labels of the nodes from $this.root])
+     * </pre>
+     * @ensures <pre>
+     * IS_BST([tree of labels of the nodes from $this.root])  and
+     * labels([tree of labels of the nodes from $this.root]) =
+     *   labels([tree of labels of the nodes from #$this.root]) union {x}
+     * </pre>
      */
-    private static <T extends Comparable<T>> void insertInTree(BinaryTree<T> t,
-            T x) {
-        assert t != null : "Violation of: t is not null";
+    private void insertInTree(T x) {
         assert x != null : "Violation of: x is not null";
         /*
-         * t is disassembled, and insertTree is recursively called on either the
-         * left or right tree (whichever contains values close to x) until an
-         * empty tree has been reached, in which it is replaced with root x and
-         * 2 empty subtrees. All calls of insertInTree on a non-empty tree
-         * result in re-assembly of that tree.
-         */
-        BinaryTree<T> left = new BinaryTree1<>();
-        BinaryTree<T> right = new BinaryTree1<>();
-        if (t.size() > 0) {
-            T label = t.disassemble(left, right);
-            if (label.compareTo(x) > 0) {
-                insertInTree(left, x);
-            } else {
-                insertInTree(right, x);
+         * Descends to the empty subtree where x belongs and hangs a new leaf
+         * there
+         */
+        Node leaf = new Node(x);
+        int visited = 0;
+        if (this.root == null) {
+            this.root = leaf;
+        } else {
+            Node n = this.root;
+            boolean inserted = false;
+            while (!inserted) {
+                visited++;
+                if (n.label.compareTo(x) > 0) {
+                    if (n.left == null) {
+                        n.left = leaf;
+                        inserted = true;
+                    } else {
+                        n = n.left;
+                    }
+                } else {
+                    if (n.right == null) {
+                        n.right = leaf;
+                        inserted = true;
+                    } else {
+                        n = n.right;
+                    }
+                }
             }
-            t.assemble(label, left, right);
+        }
+        this.recordCost(Operation.ADD, visited, 1);
+    }
+
+    /**
+     * Unlinks {@code n}, which has at most one child, from the tree, putting
+     * its child (or nothing) in its place under {@code parent}.
+     *
+     * @param parent
+     *            the parent of n, or null if n is the root
+     * @param n
+     *            the node to unlink
+     * @updates $this.root
+     * @requires <pre>
+     * [n is a node from $this.root with parent parent]  and
+     * (n.left = null  or  n.right = null)
+     * </pre>
+     * @ensures <pre>
+     * labels([tree of labels of the nodes from $this.root]) =
+     *   labels([tree of labels of the nodes from #$this.root]) \ {n.label}
+     * </pre>
+     */
+    private void unlink(Node parent, Node n) {
+        Node child = n.left;
+        if (child == null) {
+            child = n.right;
+        }
+        if (parent == null) {
+            this.root = child;
+        } else if (parent.left == n) {
+            parent.left = child;
         } else {
-            t.assemble(x, left, right);
+            parent.right = child;
         }
     }
 
     /**
-     * Removes and returns the smallest (left-most) label in {@code t}.
+     * Removes and returns the smallest (left-most) label in the tree.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} from which to remove the label
-     * @return the smallest label in the given {@code BinaryTree}
-     * @updates t
-     * @requires IS_BST(t) and |t| > 0
+     * @return the smallest label in the tree
+     * @updates $this.root
+     * @requires <pre>
+     * IS_BST([tree of labels of the nodes from $this.root])  and
+     * $this.root is not null
+     * </pre>
      * @ensures <pre>
-     * IS_BST(t)  and  removeSmallest = [the smallest label in #t]  and
-     *  labels(t) = labels(#t) \ {removeSmallest}
+     * IS_BST([tree of labels of the nodes from $this.root])  and
+     * removeSmallest = [the smallest label in the tree from #$this.root]  and
+     * labels([tree of labels of the nodes from $this.root]) =
+     *   labels([tree of labels of the nodes from #$this.root]) \
+     *   {removeSmallest}
      * </pre>
      */
-    private static <T> T removeSmallest(BinaryTree<T> t) {
-        assert t != null : "Violation of: t is not null";
-        assert t.size() > 0 : "Violation of: |t| > 0";
+    private T removeSmallest() {
+        assert this.root != null : "Violation of: $this.root is not null";
         /*
-         * The smallest node is assumed to be the current node. However, if the
-         * left subtree of t isn't empty, removeSmallest will recursively call
-         * on that tree in order to set T smallest to the node of the leftmost
-         * node, which is then replaced by its right subtree. t is reassembled
-         * if its root has a non-empty left subtree and smallest is returned.
-         */
-        T smallest = t.root();
-        BinaryTree<T> left = new BinaryTree1<>();
-        BinaryTree<T> right = new BinaryTree1<>();
-        T label = t.disassemble(left, right);
-        if (left.size() > 0) {
-            smallest = removeSmallest(left);
-            t.assemble(label, left, right);
-        } else {
-            t.transferFrom(right);
+         * The left-most node has no left child, so it is replaced by its right
+         * subtree
+         */
+        Node parent = null;
+        Node n = this.root;
+        int visited = 1;
+        while (n.left != null) {
+            parent = n;
+            n = n.left;
+            visited++;
         }
-        return smallest;
+        this.unlink(parent, n);
+        this.recordCost(Operation.REMOVE, visited, 0);
+        return n.label;
     }
 
     /**
-     * Finds label {@code x} in {@code t}, removes it from {@code t}, and
-     * returns it.
+     * Finds label {@code x} in the tree, removes it, and returns it.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} from which to remove label {@code x}
      * @param x
      *            the label to be removed
      * @return the removed label
-     * @updates t
-     * @requires IS_BST(t) and x is in labels(t)
+     * @updates $this.root
+     * @requires <pre>
+     * IS_BST([tree of labels of the nodes from $this.root])  and
+     * x is in labels([tree of labels of the nodes from $this.root])
+     * </pre>
      * @ensures <pre>
-     * IS_BST(t)  and  removeFromTree = x  and
-     *  labels(t) = labels(#t) \ {x}
+     * IS_BST([tree of labels of the nodes from $this.root])  and
+     * removeFromTree = x  and
+     * labels([tree of labels of the nodes from $this.root]) =
+     *   labels([tree of labels of the nodes from #$this.root]) \ {x}
      * </pre>
      */
-    private static <T extends Comparable<T>> T removeFromTree(BinaryTree<T> t,
-            T x) {
-        assert t != null : "Violation of: t is not null";
+    private T removeFromTree(T x) {
         assert x != null : "Violation of: x is not null";
-        assert t.size() > 0 : "Violation of: x is in labels(t)";
         /*
-         * Disassembles tree and checks if the root equals the item to be
-         * removed. If this is the case, assemble and replace the root node with
-         * the smallest item from the right tree or the left tree if the right
-         * tree is empty. Otherwise, call removeFromTree on either the left or
-         * right subtree depending on the root's value compared to x, and
-         * reassemble the trees as normal since they don't contain the item to
-         * be removed.
-         */
-        T returnValue = t.root();
-        BinaryTree<T> left = new BinaryTree1<>();
-        BinaryTree<T> right = new BinaryTree1<>();
-        T label = t.disassemble(left, right);
-        if (label.compareTo(x) == 0) {
-            if (right.size() > 0) {
-                t.assemble(removeSmallest(right), left, right);
+         * Finds the node with label x and its parent. A node with at most one
+         * child is unlinked directly; otherwise the smallest label in its right
+         * subtree is moved into it and that node (which has no left child) is
+         * unlinked instead.
+         */
+        Node parent = null;
+        Node n = this.root;
+        int comparison = n.label.compareTo(x);
+        int visited = 1;
+        while (comparison != 0) {
+            parent = n;
+            if (comparison > 0) {
+                n = n.left;
             } else {
-                t.transferFrom(left);
+                n = n.right;
+            }
+            assert n != null : "Violation of: x is in this";
+            comparison = n.label.compareTo(x);
+            visited++;
+        }
+        T returnValue = n.label;
+        if (n.left != null && n.right != null) {
+            Node successorParent = n;
+            Node successor = n.right;
+            visited++;
+            while (successor.left != null) {
+                successorParent = successor;
+                successor = successor.left;
+                visited++;
             }
+            n.label = successor.label;
+            this.unlink(successorParent, successor);
         } else {
-            if (label.compareTo(x) > 0) {
-                returnValue = removeFromTree(left, x);
+            this.unlink(parent, n);
+        }
+        this.recordCost(Operation.REMOVE, visited, 0);
+        return returnValue;
+    }
+
+    /**
+     * Returns the elements of {@code s} in increasing order.
+     *
+     * @param <T>
+     *            type of {@code Set} elements
+     * @param s
+     *            the {@code Set} whose elements are returned
+     * @return the elements of s in increasing order
+     * @ensures <pre>
+     * elements(sortedLabels) = s  and
+     * [sortedLabels is in increasing order]
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Comparable<T>> T[] sortedLabels(Set<T> s) {
+        /*
+         * T is erased to Comparable, so an array of Comparable can stand for
+         * an array of T
+         */
+        T[] labels = (T[]) new Comparable<?>[s.size()];
+        int i = 0;
+        for (T x : s) {
+            labels[i] = x;
+            i++;
+        }
+        // A Set3a is already iterated in increasing order
+        if (!(s instanceof Set3a<?>)) {
+            Arrays.sort(labels);
+        }
+        return labels;
+    }
+
+    /**
+     * Builds a perfectly balanced tree of new nodes with the labels in
+     * {@code labels[lo, hi)} and returns its root.
+     *
+     * @param labels
+     *            the labels, in increasing order
+     * @param lo
+     *            the index of the first label
+     * @param hi
+     *            the index after the last label
+     * @return the root of the new tree, or null if lo = hi
+     * @requires <pre>
+     * 0 <= lo <= hi <= |labels|  and
+     * [labels[lo, hi) is in strictly increasing order]
+     * </pre>
+     * @ensures <pre>
+     * IS_BST([tree from buildTree])  and
+     * labels([tree from buildTree]) = elements(labels[lo, hi))  and
+     * [the heights of the two subtrees of every node differ by at most 1]
+     * </pre>
+     */
+    private Node buildTree(T[] labels, int lo, int hi) {
+        /*
+         * The middle label is the root; recursion depth is only log2(hi - lo)
+         */
+        Node n = null;
+        if (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            n = new Node(labels[mid]);
+            n.left = this.buildTree(labels, lo, mid);
+            n.right = this.buildTree(labels, mid + 1, hi);
+        }
+        return n;
+    }
+
+    /**
+     * Replaces the tree with a perfectly balanced tree of the labels in
+     * {@code labels[0, count)}.
+     *
+     * @param labels
+     *            the labels, in increasing order
+     * @param count
+     *            the number of labels
+     * @replaces $this.root, $this.size
+     * @requires <pre>
+     * 0 <= count <= |labels|  and
+     * [labels[0, count) is in strictly increasing order]
+     * </pre>
+     * @ensures <pre>
+     * IS_BST([tree of labels of the nodes from $this.root])  and
+     * this = elements(labels[0, count))
+     * </pre>
+     */
+    private void setLabels(T[] labels, int count) {
+        this.root = this.buildTree(labels, 0, count);
+        this.size = count;
+    }
+
+    /**
+     * Replaces {@code s} with the labels in {@code labels[0, count)}, as a
+     * perfectly balanced tree if {@code s} is a {@code Set3a}.
+     *
+     * @param <T>
+     *            type of {@code Set} elements
+     * @param s
+     *            the {@code Set} to replace
+     * @param labels
+     *            the labels, in increasing order
+     * @param count
+     *            the number of labels
+     * @replaces s
+     * @requires <pre>
+     * 0 <= count <= |labels|  and
+     * [labels[0, count) is in strictly increasing order]
+     * </pre>
+     * @ensures s = elements(labels[0, count))
+     */
+    private static <T extends Comparable<T>> void replaceLabels(Set<T> s,
+            T[] labels, int count) {
+        if (s instanceof Set3a<?>) {
+            ((Set3a<T>) s).setLabels(labels, count);
+        } else {
+            s.clear();
+            for (int k = 0; k < count; k++) {
+                s.add(labels[k]);
+            }
+        }
+    }
+
+    /**
+     * Reports whether {@code add(Set)} or {@code remove(Set)} with an
+     * argument of {@code m} elements should change {@code this} one element
+     * at a time rather than merge and rebuild: whether m log n, the estimated
+     * number of nodes the kernel operations visit, is at most n / factor.
+     *
+     * @param m
+     *            the number of elements of the argument
+     * @return true iff the argument is small enough to take one at a time
+     * @ensures <pre>
+     * perElement = (m * [bit length of |this|] * PER_ELEMENT_FACTOR
+     *                 <= |this|)  and  |this| > 0
+     * </pre>
+     */
+    private boolean perElement(int m) {
+        long log = Integer.SIZE - Integer.numberOfLeadingZeros(this.size);
+        return this.size > 0
+                && (long) m * log * PER_ELEMENT_FACTOR <= this.size;
+    }
+
+    /**
+     * Adds the labels in {@code labels[lo, hi)} that are not in {@code this}
+     * to {@code this}, middle first, so that labels falling between the same
+     * two nodes form a balanced subtree instead of a chain; labels that are
+     * added are also removed from {@code s}.
+     *
+     * @param labels
+     *            the labels, in increasing order
+     * @param lo
+     *            the index of the first label
+     * @param hi
+     *            the index after the last label
+     * @param s
+     *            the set the labels came from
+     * @updates this, s
+     * @requires <pre>
+     * 0 <= lo <= hi <= |labels|  and
+     * [labels[lo, hi) is in strictly increasing order]  and
+     * elements(labels[lo, hi)) is subset of s
+     * </pre>
+     * @ensures <pre>
+     * this = #this union elements(labels[lo, hi))  and
+     * s = #s \ (elements(labels[lo, hi)) \ #this)
+     * </pre>
+     */
+    private void addMiddleFirst(T[] labels, int lo, int hi, Set<T> s) {
+        /*
+         * Recursion depth is only log2(hi - lo)
+         */
+        if (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (!this.contains(labels[mid])) {
+                this.add(labels[mid]);
+                s.remove(labels[mid]);
+            }
+            this.addMiddleFirst(labels, lo, mid, s);
+            this.addMiddleFirst(labels, mid + 1, hi, s);
+        }
+    }
+
+    /**
+     * Part of a batch operation: the keys in {@code keys[lo, hi)}, all of
+     * which belong in the subtree at {@code node}, which hangs from
+     * {@code parent} on the side given by {@code left}.
+     */
+    private final class BatchRange {
+
+        /**
+         * Root of the subtree, or null if it is empty.
+         */
+        private final Node node;
+
+        /**
+         * Parent of the subtree, or null if the subtree is the whole tree.
+         */
+        private final Node parent;
+
+        /**
+         * Whether the subtree is the left subtree of {@code parent}.
+         */
+        private final boolean left;
+
+        /**
+         * Index of the first key.
+         */
+        private final int lo;
+
+        /**
+         * Index after the last key.
+         */
+        private final int hi;
+
+        /**
+         * Constructor from fields.
+         *
+         * @param node
+         *            the root of the subtree, or null
+         * @param parent
+         *            the parent of the subtree, or null for the whole tree
+         * @param left
+         *            whether the subtree is the left subtree of parent
+         * @param lo
+         *            the index of the first key
+         * @param hi
+         *            the index after the last key
+         */
+        private BatchRange(Node node, Node parent, boolean left, int lo,
+                int hi) {
+            this.node = node;
+            this.parent = parent;
+            this.left = left;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+    }
+
+    /**
+     * Reports whether {@code keys} is in strictly increasing order.
+     *
+     * @param <T>
+     *            type of keys
+     * @param keys
+     *            the keys
+     * @return true iff keys is strictly increasing and has no null entry
+     */
+    private static <T extends Comparable<T>> boolean isStrictlyIncreasing(
+            T[] keys) {
+        boolean increasing = true;
+        for (int i = 0; i < keys.length && increasing; i++) {
+            increasing = keys[i] != null
+                    && (i == 0 || keys[i - 1].compareTo(keys[i]) < 0);
+        }
+        return increasing;
+    }
+
+    /**
+     * Matches the keys of {@code range} against the nodes of its subtree with
+     * one walk, marking in {@code found} the keys that are labels and, if
+     * {@code adding}, hanging each run of missing keys that falls between two
+     * adjacent labels at the empty link where it belongs, as a balanced
+     * subtree. Splits off and returns the two ranges below the subtree's root
+     * instead of walking them if the range is empty or splittable.
+     *
+     * @param range
+     *            the part of the batch to process
+     * @param keys
+     *            the whole batch, in increasing order
+     * @param found
+     *            array in which to mark the keys found, or null
+     * @param adding
+     *            whether to add the keys not found
+     * @param pending
+     *            stack on which to push the ranges below the root
+     * @return the number of keys added at range itself (not below it)
+     * @updates found, pending, [the tree from range.node]
+     */
+    private int splitRange(BatchRange range, T[] keys, boolean[] found,
+            boolean adding, Deque<BatchRange> pending) {
+        int added = 0;
+        Node n = range.node;
+        if (range.lo < range.hi) {
+            if (n == null) {
+                if (adding) {
+                    Node subtree = this.buildTree(keys, range.lo, range.hi);
+                    if (range.parent == null) {
+                        this.root = subtree;
+                    } else if (range.left) {
+                        range.parent.left = subtree;
+                    } else {
+                        range.parent.right = subtree;
+                    }
+                    added = range.hi - range.lo;
+                }
             } else {
-                returnValue = removeFromTree(right, x);
+                int position = Arrays.binarySearch(keys, range.lo, range.hi,
+                        n.label);
+                int leftHi = position;
+                int rightLo = position + 1;
+                if (position >= 0) {
+                    if (found != null) {
+                        found[position] = true;
+                    }
+                } else {
+                    leftHi = -position - 1;
+                    rightLo = leftHi;
+                }
+                pending.push(new BatchRange(n.right, n, false, rightLo,
+                        range.hi));
+                pending.push(new BatchRange(n.left, n, true, range.lo, leftHi));
             }
-            t.assemble(label, left, right);
         }
-        return returnValue;
+        return added;
+    }
+
+    /**
+     * Processes the keys of {@code range} against its subtree, without
+     * recursion, and returns the number of keys added.
+     *
+     * @param range
+     *            the part of the batch to process
+     * @param keys
+     *            the whole batch, in increasing order
+     * @param found
+     *            array in which to mark the keys found, or null
+     * @param adding
+     *            whether to add the keys not found
+     * @return the number of keys added
+     * @updates found, [the tree from range.node]
+     */
+    private int processRange(BatchRange range, T[] keys, boolean[] found,
+            boolean adding) {
+        Deque<BatchRange> pending = new ArrayDeque<>();
+        pending.push(range);
+        int added = 0;
+        while (!pending.isEmpty()) {
+            added += this.splitRange(pending.pop(), keys, found, adding,
+                    pending);
+        }
+        return added;
+    }
+
+    /**
+     * Fork-join task for a batch operation: splits its range at the root of
+     * its subtree while the range has more than
+     * {@code BATCH_SPLIT_THRESHOLD} keys, so disjoint key ranges (which meet
+     * disjoint subtrees) are processed in parallel.
+     */
+    private final class BatchTask extends RecursiveTask<Integer> {
+
+        /**
+         * Serialization version, as RecursiveTask is serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The part of the batch to process.
+         */
+        private final transient BatchRange range;
+
+        /**
+         * The whole batch.
+         */
+        private final transient T[] keys;
+
+        /**
+         * Array in which to mark the keys found, or null.
+         */
+        private final transient boolean[] found;
+
+        /**
+         * Whether to add the keys not found.
+         */
+        private final boolean adding;
+
+        /**
+         * Constructor from fields.
+         *
+         * @param range
+         *            the part of the batch to process
+         * @param keys
+         *            the whole batch, in increasing order
+         * @param found
+         *            array in which to mark the keys found, or null
+         * @param adding
+         *            whether to add the keys not found
+         */
+        private BatchTask(BatchRange range, T[] keys, boolean[] found,
+                boolean adding) {
+            this.range = range;
+            this.keys = keys;
+            this.found = found;
+            this.adding = adding;
+        }
+
+        @Override
+        protected Integer compute() {
+            int added;
+            if (this.range.hi - this.range.lo <= BATCH_SPLIT_THRESHOLD
+                    || this.range.node == null) {
+                added = Set3a.this.processRange(this.range, this.keys,
+                        this.found, this.adding);
+            } else {
+                Deque<BatchRange> below = new ArrayDeque<>();
+                added = Set3a.this.splitRange(this.range, this.keys,
+                        this.found, this.adding, below);
+                BatchTask leftTask = new BatchTask(below.pop(), this.keys,
+                        this.found, this.adding);
+                BatchTask rightTask = new BatchTask(below.pop(), this.keys,
+                        this.found, this.adding);
+                invokeAll(leftTask, rightTask);
+                added += leftTask.join() + rightTask.join();
+            }
+            return added;
+        }
+
+    }
+
+    /**
+     * Runs a batch operation on all of {@code keys}, in {@code pool} if it is
+     * not null, and returns the number of keys added.
+     *
+     * @param keys
+     *            the batch, in increasing order
+     * @param found
+     *            array in which to mark the keys found, or null
+     * @param adding
+     *            whether to add the keys not found
+     * @param pool
+     *            the pool to run in, or null to run in the calling thread
+     * @return the number of keys added
+     * @updates found, this
+     */
+    private int runBatch(T[] keys, boolean[] found, boolean adding,
+            ForkJoinPool pool) {
+        BatchRange all = new BatchRange(this.root, null, false, 0,
+                keys.length);
+        int added;
+        if (pool == null) {
+            added = this.processRange(all, keys, found, adding);
+        } else {
+            added = pool.invoke(new BatchTask(all, keys, found, adding));
+        }
+        this.size += added;
+        return added;
+    }
+
+    /**
+     * Counts one call of kind {@code operation} that visited {@code visited}
+     * nodes and allocated {@code allocated} nodes, if {@code this} is being
+     * profiled.
+     *
+     * @param operation
+     *            the kind of the call
+     * @param visited
+     *            the number of nodes visited
+     * @param allocated
+     *            the number of nodes allocated
+     * @updates $this.profile
+     */
+    private void recordCost(Operation operation, int visited,
+            int allocated) {
+        Profile counters = this.profile;
+        if (counters != null) {
+            int k = operation.ordinal();
+            counters.calls[k]++;
+            counters.visited[k] += visited;
+            counters.allocated[k] += allocated;
+        }
+    }
+
+    /**
+     * Counts one change to the tree, and every {@code $this.heightPeriod}
+     * changes measures the height and calls {@code $this.heightAlarm} if it
+     * is past the limit, if there is a height alarm.
+     *
+     * @updates $this.changesSinceHeightCheck
+     */
+    private void sampleHeight() {
+        if (this.heightAlarm != null) {
+            this.changesSinceHeightCheck++;
+            if (this.changesSinceHeightCheck >= this.heightPeriod) {
+                this.changesSinceHeightCheck = 0;
+                double limit = this.heightFactor
+                        * (Math.log(this.size + 1.0) / Math.log(2));
+                if (this.height() > limit) {
+                    this.heightAlarm.accept(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks the tree level by level and returns its height and the sum of the
+     * depths of its nodes (the root being at depth 0).
+     *
+     * @return {height, total depth}
+     * @ensures <pre>
+     * levels[0] = [height of the tree from $this.root]  and
+     * levels[1] = [sum of the depths of the nodes from $this.root]
+     * </pre>
+     */
+    private long[] levels() {
+        long height = 0;
+        long totalDepth = 0;
+        Deque<Node> level = new ArrayDeque<>();
+        if (this.root != null) {
+            level.add(this.root);
+        }
+        while (!level.isEmpty()) {
+            totalDepth += height * level.size();
+            height++;
+            for (int i = level.size(); i > 0; i--) {
+                Node n = level.remove();
+                if (n.left != null) {
+                    level.add(n.left);
+                }
+                if (n.right != null) {
+                    level.add(n.right);
+                }
+            }
+        }
+        return new long[] { height, totalDepth };
     }
 
     /**
      * Creator of initial representation.
      */
     private void createNewRep() {
-        this.tree = new BinaryTree1<>();
+        this.root = null;
+        this.size = 0;
     }
 
     /*
@@ -258,7 +985,8 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
          * the ? must be T or the call would not have compiled.
          */
         Set3a<T> localSource = (Set3a<T>) source;
-        this.tree = localSource.tree;
+        this.root = localSource.root;
+        this.size = localSource.size;
         localSource.createNewRep();
     }
 
@@ -270,41 +998,751 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
     public final void add(T x) {
         assert x != null : "Violation of: x is not null";
         assert !this.contains(x) : "Violation of: x is not in this";
-        // Inserts x into the BinaryTree, simulating add for Set
-        insertInTree(this.tree, x);
+        // Inserts x into the tree, simulating add for Set
+        this.insertInTree(x);
+        this.size++;
+        this.sampleHeight();
     }
 
     @Override
     public final T remove(T x) {
         assert x != null : "Violation of: x is not null";
         assert this.contains(x) : "Violation of: x is in this";
-        // Removes x from BinaryTree, simulating remove for Set
-        return removeFromTree(this.tree, x);
+        // Removes x from the tree, simulating remove for Set
+        this.size--;
+        T removed = this.removeFromTree(x);
+        this.sampleHeight();
+        return removed;
     }
 
     @Override
     public final T removeAny() {
         assert this.size() > 0 : "Violation of: this /= empty_set";
-        // Removes the smallest item from Binary Tree, simulating removeAny for Set
-        return removeSmallest(this.tree);
+        // Removes the smallest item from the tree, simulating removeAny for Set
+        this.size--;
+        T removed = this.removeSmallest();
+        this.sampleHeight();
+        return removed;
     }
 
     @Override
     public final boolean contains(T x) {
         assert x != null : "Violation of: x is not null";
-        // Returns whether x is in the BinaryTree, simulating contains for Set
-        return isInTree(this.tree, x);
+        // Returns whether x is in the tree, simulating contains for Set
+        return this.findInTree(x) != null;
+    }
+
+    /*
+     * Bulk set-algebra methods -----------------------------------------------
+     */
+
+    /**
+     * Replaces {@code this} with the elements of {@code elements}, as a
+     * perfectly balanced tree. Takes O(n) time if {@code elements} is in
+     * increasing order, and O(n log n) otherwise (to sort a copy of it);
+     * {@code elements} itself is not changed.
+     *
+     * @param elements
+     *            the elements of the new set, in any order
+     * @replaces this
+     * @requires <pre>
+     * [every entry of elements is not null]  and
+     * [no two entries of elements are equal according to compareTo]
+     * </pre>
+     * @ensures this = elements(elements)
+     */
+    public final void buildFrom(T[] elements) {
+        assert elements != null : "Violation of: elements is not null";
+
+        boolean sorted = true;
+        for (int i = 1; i < elements.length && sorted; i++) {
+            sorted = elements[i - 1].compareTo(elements[i]) < 0;
+        }
+        T[] labels = elements;
+        if (!sorted) {
+            labels = Arrays.copyOf(elements, elements.length);
+            Arrays.sort(labels);
+            for (int i = 1; i < labels.length; i++) {
+                assert labels[i - 1].compareTo(labels[i]) != 0 : ""
+                        + "Violation of: [no two entries of elements are equal"
+                        + " according to compareTo]";
+            }
+        }
+        this.setLabels(labels, labels.length);
+    }
+
+    /**
+     * Adds to {@code this} the labels in {@code theirs}, merging the two
+     * increasing sequences and rebuilding {@code this} and {@code s} as
+     * perfectly balanced trees.
+     *
+     * @param theirs
+     *            the elements of s, in increasing order
+     * @param s
+     *            the set whose elements are added
+     * @updates this, s
+     * @requires elements(theirs) = s  and  [theirs is in increasing order]
+     * @ensures this = #this union #s  and  s = #this intersection #s
+     */
+    private void mergeAdd(T[] theirs, Set<T> s) {
+        /*
+         * Labels in both go to the intersection, which s keeps, and every
+         * label goes to the union
+         */
+        T[] mine = sortedLabels(this);
+        T[] union = Arrays.copyOf(mine, mine.length + theirs.length);
+        T[] common = Arrays.copyOf(mine, Math.min(mine.length, theirs.length));
+        int unionSize = 0;
+        int commonSize = 0;
+        int i = 0;
+        int j = 0;
+        while (i < mine.length || j < theirs.length) {
+            int comparison;
+            if (i == mine.length) {
+                comparison = 1;
+            } else if (j == theirs.length) {
+                comparison = -1;
+            } else {
+                comparison = mine[i].compareTo(theirs[j]);
+            }
+            if (comparison < 0) {
+                union[unionSize] = mine[i];
+                i++;
+            } else if (comparison > 0) {
+                union[unionSize] = theirs[j];
+                j++;
+            } else {
+                union[unionSize] = mine[i];
+                common[commonSize] = theirs[j];
+                commonSize++;
+                i++;
+                j++;
+            }
+            unionSize++;
+        }
+        this.setLabels(union, unionSize);
+        replaceLabels(s, common, commonSize);
+    }
+
+    /**
+     * Removes from {@code this} the labels in {@code theirs}, merging the two
+     * increasing sequences and rebuilding {@code this} and the result as
+     * perfectly balanced trees.
+     *
+     * @param theirs
+     *            the elements to remove, in increasing order
+     * @return the labels removed
+     * @updates this
+     * @requires [theirs is in strictly increasing order]
+     * @ensures <pre>
+     * this = #this \ elements(theirs)  and
+     * mergeRemove = #this intersection elements(theirs)
+     * </pre>
+     */
+    private Set<T> mergeRemove(T[] theirs) {
+        /*
+         * Labels only in this stay, and labels in both go to the result
+         */
+        T[] mine = sortedLabels(this);
+        T[] difference = Arrays.copyOf(mine, mine.length);
+        T[] common = Arrays.copyOf(mine, Math.min(mine.length, theirs.length));
+        int differenceSize = 0;
+        int commonSize = 0;
+        int j = 0;
+        for (int i = 0; i < mine.length; i++) {
+            while (j < theirs.length && theirs[j].compareTo(mine[i]) < 0) {
+                j++;
+            }
+            if (j < theirs.length && theirs[j].compareTo(mine[i]) == 0) {
+                common[commonSize] = mine[i];
+                commonSize++;
+                j++;
+            } else {
+                difference[differenceSize] = mine[i];
+                differenceSize++;
+            }
+        }
+        this.setLabels(difference, differenceSize);
+        Set3a<T> result = (Set3a<T>) this.newInstance();
+        result.setLabels(common, commonSize);
+        return result;
+    }
+
+    /**
+     * Removes from {@code this} the labels in {@code theirs} one at a time,
+     * leaving the rest of the tree as it is, and returns those removed as a
+     * perfectly balanced tree.
+     *
+     * @param theirs
+     *            the elements to remove, in increasing order
+     * @return the labels removed
+     * @updates this
+     * @requires [theirs is in strictly increasing order]
+     * @ensures <pre>
+     * this = #this \ elements(theirs)  and
+     * removeEach = #this intersection elements(theirs)
+     * </pre>
+     */
+    private Set<T> removeEach(T[] theirs) {
+        T[] common = Arrays.copyOf(theirs, theirs.length);
+        int commonSize = 0;
+        for (T x : theirs) {
+            if (this.contains(x)) {
+                common[commonSize] = this.remove(x);
+                commonSize++;
+            }
+        }
+        Set3a<T> result = (Set3a<T>) this.newInstance();
+        result.setLabels(common, commonSize);
+        return result;
+    }
+
+    @Override
+    public final void add(Set<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        /*
+         * A small s is added one element at a time, leaving the rest of the
+         * tree as it is; otherwise the whole tree is rebuilt
+         */
+        T[] theirs = sortedLabels(s);
+        if (this.perElement(theirs.length)) {
+            this.addMiddleFirst(theirs, 0, theirs.length, s);
+        } else {
+            this.mergeAdd(theirs, s);
+        }
+    }
+
+    @Override
+    public final Set<T> remove(Set<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        /*
+         * A small s is removed one element at a time, leaving the rest of the
+         * tree as it is; otherwise the whole tree is rebuilt
+         */
+        T[] theirs = sortedLabels(s);
+        Set<T> result;
+        if (this.perElement(theirs.length)) {
+            result = this.removeEach(theirs);
+        } else {
+            result = this.mergeRemove(theirs);
+        }
+        return result;
+    }
+
+    /*
+     * Sorted batch methods ---------------------------------------------------
+     */
+
+    /**
+     * Reports, for each key of a sorted batch, whether it is in {@code this}.
+     * Instead of a separate descent from the root for each key, walks the
+     * tree once, splitting the batch at each node's label and following a
+     * branch only with the keys that belong there, so k keys are matched
+     * against a balanced tree of n nodes by visiting O(k log(n/k)) nodes.
+     *
+     * @param keys
+     *            the batch, in increasing order
+     * @return array with, at each index, whether the key there is in this
+     * @requires [keys is in strictly increasing order, with no null entry]
+     * @ensures <pre>
+     * |containsEach| = |keys|  and
+     * [for each i, containsEach[i] = (keys[i] is in this)]
+     * </pre>
+     */
+    public final boolean[] containsEach(T[] keys) {
+        return this.containsEach(keys, null);
+    }
+
+    /**
+     * Reports, for each key of a sorted batch, whether it is in {@code this},
+     * as {@code containsEach(keys)} does, but splits large batches by key
+     * range into tasks run in {@code pool}. {@code this} must not be changed
+     * during the call.
+     *
+     * @param keys
+     *            the batch, in increasing order
+     * @param pool
+     *            the pool to run in, or null to run in the calling thread
+     * @return array with, at each index, whether the key there is in this
+     * @requires [keys is in strictly increasing order, with no null entry]
+     * @ensures <pre>
+     * |containsEach| = |keys|  and
+     * [for each i, containsEach[i] = (keys[i] is in this)]
+     * </pre>
+     */
+    public final boolean[] containsEach(T[] keys, ForkJoinPool pool) {
+        assert keys != null : "Violation of: keys is not null";
+        assert isStrictlyIncreasing(keys) : ""
+                + "Violation of: [keys is in strictly increasing order, with"
+                + " no null entry]";
+
+        boolean[] found = new boolean[keys.length];
+        this.runBatch(keys, found, false, pool);
+        return found;
+    }
+
+    /**
+     * Adds to {@code this} the keys of a sorted batch that are not already in
+     * it, and returns how many were added. Walks the tree once, as
+     * {@code containsEach} does, and hangs each run of new keys that falls
+     * between two adjacent labels at the empty link where it belongs, as a
+     * balanced subtree, so k keys are added to a balanced tree of n nodes by
+     * visiting O(k log(n/k)) nodes.
+     *
+     * @param keys
+     *            the batch, in increasing order
+     * @return the number of keys added
+     * @aliases references in {@code keys}
+     * @updates this
+     * @requires [keys is in strictly increasing order, with no null entry]
+     * @ensures <pre>
+     * this = #this union elements(keys)  and
+     * addAll = |elements(keys) \ #this|
+     * </pre>
+     */
+    public final int addAll(T[] keys) {
+        return this.addAll(keys, null);
+    }
+
+    /**
+     * Adds to {@code this} the keys of a sorted batch that are not already in
+     * it, as {@code addAll(keys)} does, but splits large batches by key range
+     * into tasks run in {@code pool}; tasks for disjoint key ranges change
+     * disjoint subtrees.
+     *
+     * @param keys
+     *            the batch, in increasing order
+     * @param pool
+     *            the pool to run in, or null to run in the calling thread
+     * @return the number of keys added
+     * @aliases references in {@code keys}
+     * @updates this
+     * @requires [keys is in strictly increasing order, with no null entry]
+     * @ensures <pre>
+     * this = #this union elements(keys)  and
+     * addAll = |elements(keys) \ #this|
+     * </pre>
+     */
+    public final int addAll(T[] keys, ForkJoinPool pool) {
+        assert keys != null : "Violation of: keys is not null";
+        assert isStrictlyIncreasing(keys) : ""
+                + "Violation of: [keys is in strictly increasing order, with"
+                + " no null entry]";
+
+        return this.runBatch(keys, null, true, pool);
+    }
+
+    /*
+     * Instrumentation methods ------------------------------------------------
+     */
+
+    /**
+     * Reports the height of the tree: the number of nodes on its longest path
+     * from the root, which is one more than the greatest depth of a node. A
+     * perfectly balanced tree of n nodes has height ceiling(log2(n + 1)); a
+     * degenerate one, n. Takes O(|this|) time.
+     *
+     * @return the height of the tree
+     * @ensures height = [height of the tree from $this.root]
+     */
+    public final int height() {
+        return (int) this.levels()[0];
+    }
+
+    /**
+     * Reports the average depth of the nodes of the tree, the root being at
+     * depth 0; a successful {@code contains} visits one more node than the
+     * depth of the node it finds. Takes O(|this|) time.
+     *
+     * @return the average depth of the nodes
+     * @requires |this| > 0
+     * @ensures <pre>
+     * averageDepth = [sum of the depths of the nodes from $this.root] / |this|
+     * </pre>
+     */
+    public final double averageDepth() {
+        assert this.size() > 0 : "Violation of: |this| > 0";
+
+        return (double) this.levels()[1] / this.size;
+    }
+
+    /**
+     * Starts profiling {@code this}, from zero: from now on, every
+     * {@code add}, {@code contains}, {@code remove} and {@code removeAny} is
+     * counted with the nodes it visits and allocates. With assertion
+     * checking enabled, the {@code contains} calls made to check the
+     * preconditions of {@code add} and {@code remove} are counted too. Bulk
+     * and batch methods are not counted as such: those that rebuild the tree
+     * count nothing, while {@code add(Set)} and {@code remove(Set)} with an
+     * argument small enough to take one element at a time count the
+     * {@code contains}, {@code add} and {@code remove} calls they make on
+     * {@code this}. Profiling writes to {@code this} on every
+     * {@code contains}, so a profiled {@code Set3a} must not be read by
+     * several threads at once.
+     *
+     * @ensures [this is being profiled, with all counts 0]
+     */
+    public final void startProfiling() {
+        this.profile = new Profile();
+    }
+
+    /**
+     * Stops profiling {@code this} and discards the counts.
+     *
+     * @ensures [this is not being profiled]
+     */
+    public final void stopProfiling() {
+        this.profile = null;
+    }
+
+    /**
+     * Reports the number of calls of kind {@code operation} since profiling
+     * started.
+     *
+     * @param operation
+     *            the kind of call
+     * @return the number of calls
+     * @requires [this is being profiled]
+     * @ensures calls = [number of calls of kind operation counted]
+     */
+    public final long calls(Operation operation) {
+        assert operation != null : "Violation of: operation is not null";
+        assert this.profile != null : "Violation of: [this is being profiled]";
+
+        return this.profile.calls[operation.ordinal()];
+    }
+
+    /**
+     * Reports the average number of nodes visited by a call of kind
+     * {@code operation} since profiling started, or 0 if there was none.
+     *
+     * @param operation
+     *            the kind of call
+     * @return the average number of nodes visited
+     * @requires [this is being profiled]
+     * @ensures <pre>
+     * nodesVisitedPerCall = [number of nodes visited by calls of kind
+     *  operation counted] / [number of calls of kind operation counted]
+     * </pre>
+     */
+    public final double nodesVisitedPerCall(Operation operation) {
+        assert operation != null : "Violation of: operation is not null";
+        assert this.profile != null : "Violation of: [this is being profiled]";
+
+        int k = operation.ordinal();
+        return (double) this.profile.visited[k]
+                / Math.max(1, this.profile.calls[k]);
+    }
+
+    /**
+     * Reports the average number of nodes allocated by a call of kind
+     * {@code operation} since profiling started, or 0 if there was none.
+     *
+     * @param operation
+     *            the kind of call
+     * @return the average number of nodes allocated
+     * @requires [this is being profiled]
+     * @ensures <pre>
+     * nodesAllocatedPerCall = [number of nodes allocated by calls of kind
+     *  operation counted] / [number of calls of kind operation counted]
+     * </pre>
+     */
+    public final double nodesAllocatedPerCall(Operation operation) {
+        assert operation != null : "Violation of: operation is not null";
+        assert this.profile != null : "Violation of: [this is being profiled]";
+
+        int k = operation.ordinal();
+        return (double) this.profile.allocated[k]
+                / Math.max(1, this.profile.calls[k]);
+    }
+
+    /**
+     * Sets a height alarm on {@code this}: after every {@code period} calls
+     * of {@code add}, {@code remove} and {@code removeAny}, the height is
+     * measured, and if it is greater than c * log2(|this| + 1), {@code alarm}
+     * is called with {@code this}. A perfectly balanced tree has height
+     * ceiling(log2(|this| + 1)), so c = 2 or 3 leaves room for the shape of
+     * random insertions but catches sorted ones. Each measurement takes
+     * O(|this|) time, so period should be at least comparable to the size to
+     * keep the amortized cost O(1) per change. A null {@code alarm} removes
+     * the height alarm.
+     *
+     * @param c
+     *            the factor of the height limit
+     * @param period
+     *            the number of changes between two measurements
+     * @param alarm
+     *            the hook to call when the height is past the limit, or null
+     * @requires c >= 1  and  period > 0
+     */
+    public final void setHeightAlarm(double c, int period,
+            Consumer<Set3a<T>> alarm) {
+        assert c >= 1 : "Violation of: c >= 1";
+        assert period > 0 : "Violation of: period > 0";
+
+        this.heightFactor = c;
+        this.heightPeriod = period;
+        this.heightAlarm = alarm;
+        this.changesSinceHeightCheck = 0;
     }
 
     @Override
     public final int size() {
-        // Returns size of BinaryTree, simulating size for Set
-        return this.tree.size();
+        // Returns the number of nodes, simulating size for Set
+        return this.size;
     }
 
     @Override
     public final Iterator<T> iterator() {
-        return this.tree.iterator();
+        return new Set3aIterator();
+    }
+
+    /**
+     * Returns a {@code Spliterator} over the elements of {@code this}, in
+     * increasing order. It holds only a path of O(height) nodes, and splits
+     * by handing off the left subtrees of that path, so
+     * {@code StreamSupport.stream(s.spliterator(), true)} processes the
+     * elements of a balanced tree in parallel in nearly equal halves.
+     * {@code this} must not be changed while the spliterator (or any
+     * spliterator split from it) is in use.
+     *
+     * @return a spliterator over the elements of this
+     * @ensures <pre>
+     * [spliterator reports, in increasing order, exactly the elements of
+     *  this, with characteristics ORDERED, SORTED, DISTINCT and NONNULL]
+     * </pre>
+     */
+    @Override
+    public final Spliterator<T> spliterator() {
+        return new Set3aSpliterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set3a}; visits
+     * labels in increasing order, keeping only the path to the next node.
+     */
+    private final class Set3aIterator implements Iterator<T> {
+
+        /**
+         * Nodes whose labels and right subtrees are still to be visited, with
+         * the next node on top.
+         */
+        private final Deque<Node> path;
+
+        /**
+         * No-argument constructor.
+         */
+        private Set3aIterator() {
+            this.path = new ArrayDeque<>();
+            this.pushLeftSpine(Set3a.this.root);
+        }
+
+        /**
+         * Pushes {@code n} and its chain of left descendants onto
+         * {@code path}.
+         *
+         * @param n
+         *            the first node to push, or null
+         */
+        private void pushLeftSpine(Node n) {
+            Node current = n;
+            while (current != null) {
+                this.path.push(current);
+                current = current.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.path.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            Node n = this.path.pop();
+            this.pushLeftSpine(n.right);
+            return n.label;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+    /**
+     * Implementation of {@code Spliterator} interface for {@code Set3a};
+     * visits labels in increasing order, below an optional exclusive bound,
+     * keeping only the path to the next node.
+     */
+    private final class Set3aSpliterator implements Spliterator<T> {
+
+        /**
+         * Nodes whose labels and right subtrees are still to be visited, with
+         * the next node on top.
+         */
+        private final Deque<Node> path;
+
+        /**
+         * Exclusive upper bound on the labels visited, or null if there is
+         * none.
+         */
+        private T hi;
+
+        /**
+         * Estimated number of labels still to be visited.
+         */
+        private long estimate;
+
+        /**
+         * Whether {@code estimate} is exact, as it is until the first split.
+         */
+        private boolean exact;
+
+        /**
+         * No-argument constructor; visits every label of {@code Set3a.this}.
+         */
+        private Set3aSpliterator() {
+            this.path = new ArrayDeque<>();
+            this.hi = null;
+            this.estimate = Set3a.this.size;
+            this.exact = true;
+            this.pushLeftSpine(Set3a.this.root);
+        }
+
+        /**
+         * Constructor for the first part of a split.
+         *
+         * @param path
+         *            the path of nodes to visit, with the next node on top
+         * @param hi
+         *            the exclusive upper bound, or null if there is none
+         * @param estimate
+         *            the estimated number of labels to visit
+         */
+        private Set3aSpliterator(Deque<Node> path, T hi, long estimate) {
+            this.path = path;
+            this.hi = hi;
+            this.estimate = estimate;
+            this.exact = false;
+        }
+
+        /**
+         * Pushes {@code n} and its chain of left descendants onto
+         * {@code path}.
+         *
+         * @param n
+         *            the first node to push, or null
+         */
+        private void pushLeftSpine(Node n) {
+            Node current = n;
+            while (current != null) {
+                this.path.push(current);
+                current = current.left;
+            }
+        }
+
+        /**
+         * Reports whether there is a label left to visit.
+         *
+         * @return true iff the next label exists and is below hi
+         */
+        private boolean hasNext() {
+            return !this.path.isEmpty() && (this.hi == null
+                    || this.path.peek().label.compareTo(this.hi) < 0);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            assert action != null : "Violation of: action is not null";
+            boolean advanced = this.hasNext();
+            if (advanced) {
+                Node n = this.path.pop();
+                this.pushLeftSpine(n.right);
+                if (this.estimate > 0) {
+                    this.estimate--;
+                }
+                action.accept(n.label);
+            }
+            return advanced;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            /*
+             * The bottom node of the path is the one visited last; everything
+             * above it lies in its left subtree. With more than one node on
+             * the path, the first part is the nodes above the bottom one. With
+             * only one node, the first part is its label and the left subtree
+             * of its right child, and this keeps that right child (with its
+             * right subtree).
+             */
+            Set3aSpliterator prefix = null;
+            if (this.hasNext()) {
+                Node bottom = this.path.peekLast();
+                Deque<Node> prefixPath = new ArrayDeque<>();
+                if (this.path.size() > 1) {
+                    while (this.path.size() > 1) {
+                        prefixPath.addLast(this.path.pollFirst());
+                    }
+                    T prefixHi = bottom.label;
+                    if (this.hi != null && this.hi.compareTo(prefixHi) < 0) {
+                        prefixHi = this.hi;
+                    }
+                    prefix = new Set3aSpliterator(prefixPath, prefixHi,
+                            this.estimate / 2);
+                } else if (bottom.right != null && (this.hi == null
+                        || bottom.right.label.compareTo(this.hi) < 0)) {
+                    this.path.pop();
+                    prefixPath.push(bottom);
+                    prefix = new Set3aSpliterator(prefixPath,
+                            bottom.right.label, this.estimate / 2);
+                    this.path.push(bottom.right);
+                }
+                if (prefix != null) {
+                    this.estimate -= prefix.estimate;
+                    this.exact = false;
+                }
+            }
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            int characteristics = Spliterator.ORDERED | Spliterator.SORTED
+                    | Spliterator.DISTINCT | Spliterator.NONNULL;
+            if (this.exact) {
+                characteristics |= Spliterator.SIZED;
+            }
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            // Natural ordering, as reported by compareTo for T
+            return null;
+        }
+
     }
 
 }
@@ -0,0 +1,812 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set} represented as an AVL tree (a height-balanced binary search tree)
+ * of nodes, with implementations of primary methods.
+ *
+ * <p>
+ * Unlike {@code Set3a}, the tree is rebalanced by rotations after every
+ * {@code add} and {@code remove}, so its height is at most about 1.44 log n
+ * whatever the order in which elements are added, and {@code add},
+ * {@code remove}, {@code removeAny} and {@code contains} take O(log n) time.
+ * {@code contains} descends iteratively.
+ * </p>
+ *
+ * <p>
+ * Every node also records the size of its subtree, so the order-statistics
+ * methods ({@code first}, {@code last}, {@code floor}, {@code ceiling},
+ * {@code rank} and {@code select}) take O(log n) time, and
+ * {@code rangeIterator} visits the k elements of a range in O(log n + k) time
+ * without changing {@code this}.
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @mathdefinitions <pre>
+ * IS_BST(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [tree satisfies the binary search tree properties as described in the
+ *   slides with the ordering reported by compareTo for T, including that
+ *   it has no duplicate labels]
+ *
+ * IS_AVL(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [for every subtree of tree, the heights of its left and right subtrees
+ *   differ by at most 1]
+ * </pre>
+ * @convention <pre>
+ * [$this.root is null or the root of a tree of nodes, each reachable from
+ *  $this.root along exactly one path]  and
+ * IS_BST([tree of labels of the nodes from $this.root])  and
+ * IS_AVL([tree of labels of the nodes from $this.root])  and
+ * [the height of every node n is the height of the subtree rooted at n]  and
+ * [the size of every node n is the number of nodes in the subtree rooted
+ *  at n]
+ * </pre>
+ * @correspondence this = labels([tree of labels of the nodes from $this.root])
+ *
+ * @authors Charles Sirichoktanasup, Dylan Jian
+ *
+ */
+public class Set3b<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Node class for AVL tree.
+     */
+    private final class Node {
+
+        /**
+         * Label of node.
+         */
+        private T label;
+
+        /**
+         * Root of left subtree, or null if it is empty.
+         */
+        private Node left;
+
+        /**
+         * Root of right subtree, or null if it is empty.
+         */
+        private Node right;
+
+        /**
+         * Height of the subtree rooted at this node (1 for a leaf).
+         */
+        private int height;
+
+        /**
+         * Number of nodes in the subtree rooted at this node.
+         */
+        private int size;
+
+        /**
+         * Constructor from label; the new node is a leaf.
+         *
+         * @param label
+         *            the label of the node
+         */
+        private Node(T label) {
+            this.label = label;
+            this.height = 1;
+            this.size = 1;
+        }
+
+    }
+
+    /**
+     * Root of the tree, or null if {@code this} is empty.
+     */
+    private Node root;
+
+    /**
+     * Returns the height of the subtree rooted at {@code n}.
+     *
+     * @param n
+     *            the root of the subtree, or null
+     * @return the height of the subtree (0 if {@code n} is null)
+     */
+    private int height(Node n) {
+        int height = 0;
+        if (n != null) {
+            height = n.height;
+        }
+        return height;
+    }
+
+    /**
+     * Returns the number of nodes in the subtree rooted at {@code n}.
+     *
+     * @param n
+     *            the root of the subtree, or null
+     * @return the number of nodes in the subtree (0 if {@code n} is null)
+     */
+    private int count(Node n) {
+        int count = 0;
+        if (n != null) {
+            count = n.size;
+        }
+        return count;
+    }
+
+    /**
+     * Recomputes the height and size of {@code n} from those of its children.
+     *
+     * @param n
+     *            the node to be updated
+     * @updates n.height, n.size
+     * @ensures <pre>
+     * n.height = 1 + max(height(n.left), height(n.right))  and
+     * n.size = 1 + count(n.left) + count(n.right)
+     * </pre>
+     */
+    private void update(Node n) {
+        n.height = 1 + Math.max(this.height(n.left), this.height(n.right));
+        n.size = 1 + this.count(n.left) + this.count(n.right);
+    }
+
+    /**
+     * Rotates the subtree rooted at {@code n} right and returns its new root.
+     *
+     * @param n
+     *            the root of the subtree
+     * @return the new root of the subtree, {@code n.left}
+     * @requires n.left is not null
+     * @ensures [the subtree has the same in-order labels, with #n.left at its
+     *          root and #n as its right child]
+     */
+    private Node rotateRight(Node n) {
+        Node newRoot = n.left;
+        n.left = newRoot.right;
+        newRoot.right = n;
+        this.update(n);
+        this.update(newRoot);
+        return newRoot;
+    }
+
+    /**
+     * Rotates the subtree rooted at {@code n} left and returns its new root.
+     *
+     * @param n
+     *            the root of the subtree
+     * @return the new root of the subtree, {@code n.right}
+     * @requires n.right is not null
+     * @ensures [the subtree has the same in-order labels, with #n.right at its
+     *          root and #n as its left child]
+     */
+    private Node rotateLeft(Node n) {
+        Node newRoot = n.right;
+        n.right = newRoot.left;
+        newRoot.left = n;
+        this.update(n);
+        this.update(newRoot);
+        return newRoot;
+    }
+
+    /**
+     * Restores the AVL property at {@code n}, whose subtrees are AVL trees
+     * with heights that differ by at most 2, and returns the new root of the
+     * subtree.
+     *
+     * @param n
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @requires <pre>
+     * IS_AVL([tree from n.left])  and  IS_AVL([tree from n.right])  and
+     * |height(n.left) - height(n.right)| <= 2
+     * </pre>
+     * @ensures <pre>
+     * IS_AVL([tree from rebalance])  and
+     * [tree from rebalance has the same in-order labels as the tree from #n]
+     * </pre>
+     */
+    private Node rebalance(Node n) {
+        this.update(n);
+        int balance = this.height(n.left) - this.height(n.right);
+        Node newRoot = n;
+        if (balance > 1) {
+            /*
+             * Left-heavy: a left-right case is first turned into a left-left
+             * case by rotating the left child
+             */
+            if (this.height(n.left.left) < this.height(n.left.right)) {
+                n.left = this.rotateLeft(n.left);
+            }
+            newRoot = this.rotateRight(n);
+        } else if (balance < -1) {
+            if (this.height(n.right.right) < this.height(n.right.left)) {
+                n.right = this.rotateRight(n.right);
+            }
+            newRoot = this.rotateLeft(n);
+        }
+        return newRoot;
+    }
+
+    /**
+     * Inserts {@code x} in the subtree rooted at {@code n} and returns the new
+     * root of the subtree.
+     *
+     * @param n
+     *            the root of the subtree, or null
+     * @param x
+     *            the label to be inserted
+     * @return the new root of the subtree
+     * @aliases reference {@code x}
+     * @requires <pre>
+     * IS_BST([tree from n])  and  IS_AVL([tree from n])  and
+     * x is not in labels([tree from n])
+     * </pre>
+     * @ensures <pre>
+     * IS_BST([tree from insertInTree])  and  IS_AVL([tree from insertInTree])
+     * and  labels([tree from insertInTree]) = labels([tree from #n]) union {x}
+     * </pre>
+     */
+    private Node insertInTree(Node n, T x) {
+        Node newRoot;
+        if (n == null) {
+            newRoot = new Node(x);
+        } else {
+            if (n.label.compareTo(x) > 0) {
+                n.left = this.insertInTree(n.left, x);
+            } else {
+                n.right = this.insertInTree(n.right, x);
+            }
+            newRoot = this.rebalance(n);
+        }
+        return newRoot;
+    }
+
+    /**
+     * Finds label {@code x} in the subtree rooted at {@code n}, removes it,
+     * and returns the new root of the subtree.
+     *
+     * @param n
+     *            the root of the subtree
+     * @param x
+     *            the label to be removed
+     * @return the new root of the subtree
+     * @requires <pre>
+     * IS_BST([tree from n])  and  IS_AVL([tree from n])  and
+     * x is in labels([tree from n])
+     * </pre>
+     * @ensures <pre>
+     * IS_BST([tree from removeFromTree])  and
+     * IS_AVL([tree from removeFromTree])  and
+     * labels([tree from removeFromTree]) = labels([tree from #n]) \ {x}
+     * </pre>
+     */
+    private Node removeFromTree(Node n, T x) {
+        assert n != null : "Violation of: x is in labels([tree from n])";
+        Node newRoot = n;
+        int comparison = n.label.compareTo(x);
+        if (comparison > 0) {
+            n.left = this.removeFromTree(n.left, x);
+        } else if (comparison < 0) {
+            n.right = this.removeFromTree(n.right, x);
+        } else if (n.left == null) {
+            newRoot = n.right;
+        } else if (n.right == null) {
+            newRoot = n.left;
+        } else {
+            /*
+             * The smallest label in the right subtree replaces x, and is
+             * removed from there instead
+             */
+            Node successor = n.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            n.label = successor.label;
+            n.right = this.removeFromTree(n.right, successor.label);
+        }
+        if (newRoot == n) {
+            newRoot = this.rebalance(n);
+        }
+        return newRoot;
+    }
+
+    /**
+     * Returns the node with label {@code x}, or null if there is none.
+     *
+     * @param x
+     *            the label to be searched for
+     * @return the node with label x, or null
+     * @ensures <pre>
+     * (find = null  and  x is not in this)  or
+     * (find is a node from $this.root  and  find.label = x)
+     * </pre>
+     */
+    private Node find(T x) {
+        /*
+         * Iterative descent from the root: no recursion and no allocation
+         */
+        Node n = this.root;
+        int comparison = 1;
+        while (n != null && comparison != 0) {
+            comparison = n.label.compareTo(x);
+            if (comparison > 0) {
+                n = n.left;
+            } else if (comparison < 0) {
+                n = n.right;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Checks that the part of the convention about the subtree rooted at
+     * {@code n} holds, and returns the number of nodes in it.
+     *
+     * @param n
+     *            the root of the subtree, or null
+     * @param low
+     *            a label every label in the subtree must exceed, or null
+     * @param high
+     *            a label every label in the subtree must be less than, or null
+     * @return the number of nodes in the subtree
+     */
+    private int checkSubtree(Node n, T low, T high) {
+        int count = 0;
+        if (n != null) {
+            assert n.label != null : "Violation of: [every label is not null]";
+            assert low == null || low.compareTo(n.label) < 0 : ""
+                    + "Violation of: IS_BST([tree of labels of the nodes"
+                    + " from $this.root])";
+            assert high == null || n.label.compareTo(high) < 0 : ""
+                    + "Violation of: IS_BST([tree of labels of the nodes"
+                    + " from $this.root])";
+            count = 1 + this.checkSubtree(n.left, low, n.label)
+                    + this.checkSubtree(n.right, n.label, high);
+            assert n.height == 1
+                    + Math.max(this.height(n.left), this.height(n.right)) : ""
+                            + "Violation of: [the height of every node n is"
+                            + " the height of the subtree rooted at n]";
+            assert n.size == count : ""
+                    + "Violation of: [the size of every node n is the number"
+                    + " of nodes in the subtree rooted at n]";
+            assert Math.abs(this.height(n.left)
+                    - this.height(n.right)) <= 1 : ""
+                            + "Violation of: IS_AVL([tree of labels of the"
+                            + " nodes from $this.root])";
+        }
+        return count;
+    }
+
+    /**
+     * Checks that the part of the convention repeated below holds for the
+     * current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     * @convention <pre>
+     * IS_BST([tree of labels of the nodes from $this.root])  and
+     * IS_AVL([tree of labels of the nodes from $this.root])  and
+     * [the height of every node n is the height of the subtree rooted
+     *  at n]  and
+     * [the size of every node n is the number of nodes in the subtree rooted
+     *  at n]
+     * </pre>
+     */
+    private boolean conventionHolds() {
+        this.checkSubtree(this.root, null, null);
+        return true;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.root = null;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set3b() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set3b<?> : ""
+                + "Violation of: source is of dynamic type Set3b<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Set3b<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Set3b<T> localSource = (Set3b<T>) source;
+        this.root = localSource.root;
+        localSource.createNewRep();
+        assert this.conventionHolds();
+        assert localSource.conventionHolds();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        this.root = this.insertInTree(this.root, x);
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        T removed = this.find(x).label;
+        this.root = this.removeFromTree(this.root, x);
+        assert this.conventionHolds();
+        return removed;
+    }
+
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        // Removes the smallest label, as Set3a does
+        Node smallest = this.root;
+        while (smallest.left != null) {
+            smallest = smallest.left;
+        }
+        T removed = smallest.label;
+        this.root = this.removeFromTree(this.root, removed);
+        assert this.conventionHolds();
+        return removed;
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        return this.find(x) != null;
+    }
+
+    @Override
+    public final int size() {
+        assert this.conventionHolds();
+        return this.count(this.root);
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        assert this.conventionHolds();
+        return new Set3bIterator(null, null);
+    }
+
+    /*
+     * Order-statistics methods -----------------------------------------------
+     */
+
+    /**
+     * Reports the smallest element of {@code this}.
+     *
+     * @return the smallest element
+     * @requires this /= empty_set
+     * @ensures first is in this  and  [first <= every element of this]
+     */
+    public final T first() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        Node n = this.root;
+        while (n.left != null) {
+            n = n.left;
+        }
+        return n.label;
+    }
+
+    /**
+     * Reports the largest element of {@code this}.
+     *
+     * @return the largest element
+     * @requires this /= empty_set
+     * @ensures last is in this  and  [last >= every element of this]
+     */
+    public final T last() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        Node n = this.root;
+        while (n.right != null) {
+            n = n.right;
+        }
+        return n.label;
+    }
+
+    /**
+     * Reports the largest element of {@code this} that is at most {@code x}.
+     *
+     * @param x
+     *            the bound
+     * @return the largest element <= x, or null if there is none
+     * @ensures <pre>
+     * if [some element of this is <= x] then
+     *   floor is in this  and  floor <= x  and
+     *   [no element y of this has floor < y <= x]
+     * else
+     *   floor = null
+     * </pre>
+     */
+    public final T floor(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        /*
+         * Each label <= x is the best candidate so far; larger ones lie to its
+         * right
+         */
+        T floor = null;
+        Node n = this.root;
+        while (n != null) {
+            int comparison = n.label.compareTo(x);
+            if (comparison > 0) {
+                n = n.left;
+            } else {
+                floor = n.label;
+                if (comparison == 0) {
+                    n = null;
+                } else {
+                    n = n.right;
+                }
+            }
+        }
+        return floor;
+    }
+
+    /**
+     * Reports the smallest element of {@code this} that is at least
+     * {@code x}.
+     *
+     * @param x
+     *            the bound
+     * @return the smallest element >= x, or null if there is none
+     * @ensures <pre>
+     * if [some element of this is >= x] then
+     *   ceiling is in this  and  ceiling >= x  and
+     *   [no element y of this has x <= y < ceiling]
+     * else
+     *   ceiling = null
+     * </pre>
+     */
+    public final T ceiling(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        T ceiling = null;
+        Node n = this.root;
+        while (n != null) {
+            int comparison = n.label.compareTo(x);
+            if (comparison < 0) {
+                n = n.right;
+            } else {
+                ceiling = n.label;
+                if (comparison == 0) {
+                    n = null;
+                } else {
+                    n = n.left;
+                }
+            }
+        }
+        return ceiling;
+    }
+
+    /**
+     * Reports the number of elements of {@code this} that are smaller than
+     * {@code x}; {@code x} need not be in {@code this}.
+     *
+     * @param x
+     *            the bound
+     * @return the number of elements < x
+     * @ensures rank = |{y: T where (y is in this and y < x)}|
+     */
+    public final int rank(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        /*
+         * Going right past a node counts the node and its left subtree
+         */
+        int rank = 0;
+        Node n = this.root;
+        while (n != null) {
+            int comparison = n.label.compareTo(x);
+            if (comparison < 0) {
+                rank += this.count(n.left) + 1;
+                n = n.right;
+            } else if (comparison == 0) {
+                rank += this.count(n.left);
+                n = null;
+            } else {
+                n = n.left;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Reports the element of {@code this} with exactly {@code k} smaller
+     * elements, that is, the element at (0-based) position {@code k} in
+     * increasing order.
+     *
+     * @param k
+     *            the position of the element
+     * @return the element at position k
+     * @requires 0 <= k < |this|
+     * @ensures select is in this  and  rank(select) = k
+     */
+    public final T select(int k) {
+        assert 0 <= k : "Violation of: 0 <= k";
+        assert k < this.size() : "Violation of: k < |this|";
+
+        Node n = this.root;
+        int position = k;
+        int leftCount = this.count(n.left);
+        while (position != leftCount) {
+            if (position < leftCount) {
+                n = n.left;
+            } else {
+                position -= leftCount + 1;
+                n = n.right;
+            }
+            leftCount = this.count(n.left);
+        }
+        return n.label;
+    }
+
+    /**
+     * Returns an iterator over the elements {@code y} of {@code this} with
+     * {@code lo <= y < hi}, in increasing order, without changing
+     * {@code this}. Finding the first element takes O(log n) time and each
+     * further element O(1) amortized time.
+     *
+     * @param lo
+     *            the inclusive lower bound
+     * @param hi
+     *            the exclusive upper bound
+     * @return an iterator over the elements in [lo, hi)
+     * @requires [this is not changed while the iterator is in use]
+     * @ensures <pre>
+     * [rangeIterator returns, in increasing order, the elements y of this
+     *  with lo <= y < hi]
+     * </pre>
+     */
+    public final Iterator<T> rangeIterator(T lo, T hi) {
+        assert lo != null : "Violation of: lo is not null";
+        assert hi != null : "Violation of: hi is not null";
+        assert this.conventionHolds();
+        return new Set3bIterator(lo, hi);
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set3b}; visits
+     * labels in increasing order, optionally only those in a range, keeping
+     * only the path to the next node.
+     */
+    private final class Set3bIterator implements Iterator<T> {
+
+        /**
+         * Nodes whose labels and right subtrees are still to be visited, with
+         * the next node on top.
+         */
+        private final Deque<Node> path;
+
+        /**
+         * Exclusive upper bound on the labels visited, or null if there is
+         * none.
+         */
+        private final T hi;
+
+        /**
+         * Constructor from bounds.
+         *
+         * @param lo
+         *            the inclusive lower bound, or null if there is none
+         * @param hi
+         *            the exclusive upper bound, or null if there is none
+         */
+        private Set3bIterator(T lo, T hi) {
+            this.path = new ArrayDeque<>();
+            this.hi = hi;
+            /*
+             * Pushes the path to the smallest label >= lo, skipping nodes
+             * (and their left subtrees) below lo
+             */
+            Node n = Set3b.this.root;
+            while (n != null) {
+                if (lo == null || n.label.compareTo(lo) >= 0) {
+                    this.path.push(n);
+                    n = n.left;
+                } else {
+                    n = n.right;
+                }
+            }
+        }
+
+        /**
+         * Pushes {@code n} and its chain of left descendants onto
+         * {@code path}.
+         *
+         * @param n
+         *            the first node to push, or null
+         */
+        private void pushLeftSpine(Node n) {
+            Node current = n;
+            while (current != null) {
+                this.path.push(current);
+                current = current.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.path.isEmpty() && (this.hi == null
+                    || this.path.peek().label.compareTo(this.hi) < 0);
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            Node n = this.path.pop();
+            this.pushLeftSpine(n.right);
+            return n.label;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
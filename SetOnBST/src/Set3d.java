@@ -0,0 +1,609 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set} represented as a persistent AVL tree of immutable nodes, with
+ * implementations of primary methods.
+ *
+ * <p>
+ * Nodes are never changed once built: {@code add} and {@code remove} copy only
+ * the O(log n) nodes on the path from the root to the change (and the few
+ * nodes a rotation touches), and share every other subtree with the previous
+ * version. So {@code snapshot} takes O(1) time and space: the snapshot keeps
+ * the current root, and later updates to either set build new paths without
+ * touching the nodes the other one still uses. Likewise, an iterator walks
+ * the version that was current when it was created, so {@code this} may be
+ * updated during the iteration.
+ * </p>
+ *
+ * <p>
+ * A {@code Set3d} object itself is not thread-safe, but different versions
+ * share only immutable nodes (with final fields), so a snapshot handed to
+ * another thread can be read there, without locking and without copying,
+ * while updates continue on the original.
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @mathdefinitions <pre>
+ * IS_BST(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [tree satisfies the binary search tree properties as described in the
+ *   slides with the ordering reported by compareTo for T, including that
+ *   it has no duplicate labels]
+ *
+ * IS_AVL(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [for every subtree of tree, the heights of its left and right subtrees
+ *   differ by at most 1]
+ * </pre>
+ * @convention <pre>
+ * [$this.root is null or the root of a tree of nodes, which may be shared
+ *  with other Set3d objects]  and
+ * IS_BST([tree of labels of the nodes from $this.root])  and
+ * IS_AVL([tree of labels of the nodes from $this.root])  and
+ * [the height of every node n is the height of the subtree rooted at n]  and
+ * [the size of every node n is the number of nodes in the subtree rooted
+ *  at n]
+ * </pre>
+ * @correspondence this = labels([tree of labels of the nodes from $this.root])
+ *
+ * @authors Charles Sirichoktanasup, Dylan Jian
+ *
+ */
+public class Set3d<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Immutable node class for persistent AVL tree.
+     *
+     * @param <T>
+     *            type of labels
+     */
+    private static final class Node<T> {
+
+        /**
+         * Label of node.
+         */
+        private final T label;
+
+        /**
+         * Root of left subtree, or null if it is empty.
+         */
+        private final Node<T> left;
+
+        /**
+         * Root of right subtree, or null if it is empty.
+         */
+        private final Node<T> right;
+
+        /**
+         * Height of the subtree rooted at this node (1 for a leaf).
+         */
+        private final int height;
+
+        /**
+         * Number of nodes in the subtree rooted at this node.
+         */
+        private final int size;
+
+        /**
+         * Constructor from label and subtrees.
+         *
+         * @param label
+         *            the label of the node
+         * @param left
+         *            the root of the left subtree, or null
+         * @param right
+         *            the root of the right subtree, or null
+         */
+        private Node(T label, Node<T> left, Node<T> right) {
+            this.label = label;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+            this.size = 1 + count(left) + count(right);
+        }
+
+    }
+
+    /**
+     * Root of the tree, or null if {@code this} is empty.
+     */
+    private Node<T> root;
+
+    /**
+     * Returns the height of the subtree rooted at {@code n}.
+     *
+     * @param <T>
+     *            type of labels
+     * @param n
+     *            the root of the subtree, or null
+     * @return the height of the subtree (0 if {@code n} is null)
+     */
+    private static <T> int height(Node<T> n) {
+        int height = 0;
+        if (n != null) {
+            height = n.height;
+        }
+        return height;
+    }
+
+    /**
+     * Returns the number of nodes in the subtree rooted at {@code n}.
+     *
+     * @param <T>
+     *            type of labels
+     * @param n
+     *            the root of the subtree, or null
+     * @return the number of nodes in the subtree (0 if {@code n} is null)
+     */
+    private static <T> int count(Node<T> n) {
+        int count = 0;
+        if (n != null) {
+            count = n.size;
+        }
+        return count;
+    }
+
+    /**
+     * Builds an AVL tree with root label {@code label} and subtrees
+     * {@code left} and {@code right}, whose heights differ by at most 2,
+     * rotating if needed. Builds at most three new nodes and changes none.
+     *
+     * @param label
+     *            the label between those of left and right
+     * @param left
+     *            the root of the left subtree, or null
+     * @param right
+     *            the root of the right subtree, or null
+     * @return the root of the new tree
+     * @requires <pre>
+     * IS_AVL([tree from left])  and  IS_AVL([tree from right])  and
+     * |height(left) - height(right)| <= 2
+     * </pre>
+     * @ensures <pre>
+     * IS_AVL([tree from balance])  and
+     * [tree from balance has in-order labels
+     *  (in-order labels of left) * <label> * (in-order labels of right)]
+     * </pre>
+     */
+    private Node<T> balance(T label, Node<T> left, Node<T> right) {
+        int heightLeft = height(left);
+        int heightRight = height(right);
+        Node<T> newRoot;
+        if (heightLeft > heightRight + 1) {
+            if (height(left.left) >= height(left.right)) {
+                // Left-left case: single right rotation
+                newRoot = new Node<>(left.label, left.left,
+                        new Node<>(label, left.right, right));
+            } else {
+                // Left-right case: left.right becomes the root
+                Node<T> middle = left.right;
+                newRoot = new Node<>(middle.label,
+                        new Node<>(left.label, left.left, middle.left),
+                        new Node<>(label, middle.right, right));
+            }
+        } else if (heightRight > heightLeft + 1) {
+            if (height(right.right) >= height(right.left)) {
+                newRoot = new Node<>(right.label,
+                        new Node<>(label, left, right.left), right.right);
+            } else {
+                Node<T> middle = right.left;
+                newRoot = new Node<>(middle.label,
+                        new Node<>(label, left, middle.left),
+                        new Node<>(right.label, middle.right, right.right));
+            }
+        } else {
+            newRoot = new Node<>(label, left, right);
+        }
+        return newRoot;
+    }
+
+    /**
+     * Returns the root of a new version of the subtree rooted at {@code n}
+     * with {@code x} inserted; the nodes from {@code n} are not changed.
+     *
+     * @param n
+     *            the root of the subtree, or null
+     * @param x
+     *            the label to be inserted
+     * @return the root of the new subtree
+     * @aliases reference {@code x}
+     * @requires <pre>
+     * IS_BST([tree from n])  and  IS_AVL([tree from n])  and
+     * x is not in labels([tree from n])
+     * </pre>
+     * @ensures <pre>
+     * IS_BST([tree from insertInTree])  and  IS_AVL([tree from insertInTree])
+     * and  labels([tree from insertInTree]) = labels([tree from n]) union {x}
+     * </pre>
+     */
+    private Node<T> insertInTree(Node<T> n, T x) {
+        Node<T> newRoot;
+        if (n == null) {
+            newRoot = new Node<>(x, null, null);
+        } else if (n.label.compareTo(x) > 0) {
+            newRoot = this.balance(n.label, this.insertInTree(n.left, x),
+                    n.right);
+        } else {
+            newRoot = this.balance(n.label, n.left,
+                    this.insertInTree(n.right, x));
+        }
+        return newRoot;
+    }
+
+    /**
+     * Returns the root of a new version of the subtree rooted at {@code n}
+     * without its smallest label; the nodes from {@code n} are not changed.
+     *
+     * @param n
+     *            the root of the subtree
+     * @return the root of the new subtree
+     * @requires n is not null  and  IS_AVL([tree from n])
+     * @ensures <pre>
+     * IS_AVL([tree from removeSmallest])  and
+     * labels([tree from removeSmallest]) =
+     *  labels([tree from n]) \ {min(labels([tree from n]))}
+     * </pre>
+     */
+    private Node<T> removeSmallest(Node<T> n) {
+        Node<T> newRoot;
+        if (n.left == null) {
+            newRoot = n.right;
+        } else {
+            newRoot = this.balance(n.label, this.removeSmallest(n.left),
+                    n.right);
+        }
+        return newRoot;
+    }
+
+    /**
+     * Returns the root of a new version of the subtree rooted at {@code n}
+     * without label {@code x}; the nodes from {@code n} are not changed.
+     *
+     * @param n
+     *            the root of the subtree
+     * @param x
+     *            the label to be removed
+     * @return the root of the new subtree
+     * @requires <pre>
+     * IS_BST([tree from n])  and  IS_AVL([tree from n])  and
+     * x is in labels([tree from n])
+     * </pre>
+     * @ensures <pre>
+     * IS_BST([tree from removeFromTree])  and
+     * IS_AVL([tree from removeFromTree])  and
+     * labels([tree from removeFromTree]) = labels([tree from n]) \ {x}
+     * </pre>
+     */
+    private Node<T> removeFromTree(Node<T> n, T x) {
+        assert n != null : "Violation of: x is in labels([tree from n])";
+        Node<T> newRoot;
+        int comparison = n.label.compareTo(x);
+        if (comparison > 0) {
+            newRoot = this.balance(n.label, this.removeFromTree(n.left, x),
+                    n.right);
+        } else if (comparison < 0) {
+            newRoot = this.balance(n.label, n.left,
+                    this.removeFromTree(n.right, x));
+        } else if (n.left == null) {
+            newRoot = n.right;
+        } else if (n.right == null) {
+            newRoot = n.left;
+        } else {
+            /*
+             * The smallest label in the right subtree replaces x, in a new
+             * node, and is removed from a new version of the right subtree
+             */
+            Node<T> successor = n.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            newRoot = this.balance(successor.label, n.left,
+                    this.removeSmallest(n.right));
+        }
+        return newRoot;
+    }
+
+    /**
+     * Returns the node with label {@code x}, or null if there is none.
+     *
+     * @param x
+     *            the label to be searched for
+     * @return the node with label x, or null
+     * @ensures <pre>
+     * (find = null  and  x is not in this)  or
+     * (find is a node from $this.root  and  find.label = x)
+     * </pre>
+     */
+    private Node<T> find(T x) {
+        Node<T> n = this.root;
+        int comparison = 1;
+        while (n != null && comparison != 0) {
+            comparison = n.label.compareTo(x);
+            if (comparison > 0) {
+                n = n.left;
+            } else if (comparison < 0) {
+                n = n.right;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Checks that the part of the convention about the subtree rooted at
+     * {@code n} holds, and returns the number of nodes in it.
+     *
+     * @param n
+     *            the root of the subtree, or null
+     * @param low
+     *            a label every label in the subtree must exceed, or null
+     * @param high
+     *            a label every label in the subtree must be less than, or null
+     * @return the number of nodes in the subtree
+     */
+    private int checkSubtree(Node<T> n, T low, T high) {
+        int count = 0;
+        if (n != null) {
+            assert n.label != null : "Violation of: [every label is not null]";
+            assert low == null || low.compareTo(n.label) < 0 : ""
+                    + "Violation of: IS_BST([tree of labels of the nodes"
+                    + " from $this.root])";
+            assert high == null || n.label.compareTo(high) < 0 : ""
+                    + "Violation of: IS_BST([tree of labels of the nodes"
+                    + " from $this.root])";
+            count = 1 + this.checkSubtree(n.left, low, n.label)
+                    + this.checkSubtree(n.right, n.label, high);
+            assert n.height == 1
+                    + Math.max(height(n.left), height(n.right)) : ""
+                            + "Violation of: [the height of every node n is"
+                            + " the height of the subtree rooted at n]";
+            assert n.size == count : ""
+                    + "Violation of: [the size of every node n is the number"
+                    + " of nodes in the subtree rooted at n]";
+            assert Math.abs(height(n.left) - height(n.right)) <= 1 : ""
+                    + "Violation of: IS_AVL([tree of labels of the"
+                    + " nodes from $this.root])";
+        }
+        return count;
+    }
+
+    /**
+     * Checks that the part of the convention repeated below holds for the
+     * current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     * @convention <pre>
+     * IS_BST([tree of labels of the nodes from $this.root])  and
+     * IS_AVL([tree of labels of the nodes from $this.root])  and
+     * [the height of every node n is the height of the subtree rooted
+     *  at n]  and
+     * [the size of every node n is the number of nodes in the subtree rooted
+     *  at n]
+     * </pre>
+     */
+    private boolean conventionHolds() {
+        this.checkSubtree(this.root, null, null);
+        return true;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.root = null;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set3d() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set3d<?> : ""
+                + "Violation of: source is of dynamic type Set3d<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Set3d<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Set3d<T> localSource = (Set3d<T>) source;
+        this.root = localSource.root;
+        localSource.createNewRep();
+        assert this.conventionHolds();
+        assert localSource.conventionHolds();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        this.root = this.insertInTree(this.root, x);
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        T removed = this.find(x).label;
+        this.root = this.removeFromTree(this.root, x);
+        assert this.conventionHolds();
+        return removed;
+    }
+
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        // Removes the smallest label, as Set3a does
+        Node<T> smallest = this.root;
+        while (smallest.left != null) {
+            smallest = smallest.left;
+        }
+        this.root = this.removeSmallest(this.root);
+        assert this.conventionHolds();
+        return smallest.label;
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        return this.find(x) != null;
+    }
+
+    @Override
+    public final int size() {
+        assert this.conventionHolds();
+        return count(this.root);
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        assert this.conventionHolds();
+        return new Set3dIterator(this.root);
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Returns a new set with the same elements as {@code this}, in O(1) time
+     * and space. Later changes to {@code this} do not affect the snapshot, and
+     * changes to the snapshot do not affect {@code this}.
+     *
+     * @return the snapshot
+     * @ensures snapshot = this  and  [snapshot is a new object]
+     */
+    @SuppressWarnings("unchecked")
+    public final Set3d<T> snapshot() {
+        /*
+         * This cast cannot fail: newInstance returns an object of the same
+         * dynamic type as this
+         */
+        Set3d<T> snapshot = (Set3d<T>) this.newInstance();
+        snapshot.root = this.root;
+        assert snapshot.conventionHolds();
+        return snapshot;
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set3d}; visits
+     * the labels of one version of the tree in increasing order, keeping only
+     * the path to the next node.
+     */
+    private final class Set3dIterator implements Iterator<T> {
+
+        /**
+         * Nodes whose labels and right subtrees are still to be visited, with
+         * the next node on top.
+         */
+        private final Deque<Node<T>> path;
+
+        /**
+         * Constructor from the root of the version to visit.
+         *
+         * @param root
+         *            the root of the tree, or null
+         */
+        private Set3dIterator(Node<T> root) {
+            this.path = new ArrayDeque<>();
+            this.pushLeftSpine(root);
+        }
+
+        /**
+         * Pushes {@code n} and its chain of left descendants onto
+         * {@code path}.
+         *
+         * @param n
+         *            the first node to push, or null
+         */
+        private void pushLeftSpine(Node<T> n) {
+            Node<T> current = n;
+            while (current != null) {
+                this.path.push(current);
+                current = current.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.path.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            Node<T> n = this.path.pop();
+            this.pushLeftSpine(n.right);
+            return n.label;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
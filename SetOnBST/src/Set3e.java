@@ -0,0 +1,482 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set} represented as a splay tree (a self-adjusting binary search
+ * tree) of nodes, with implementations of primary methods.
+ *
+ * <p>
+ * Every {@code add} and {@code remove} splays the tree: it moves the node it
+ * looks for (or the last node on the search path) to the root by rotations,
+ * top-down and iteratively, halving the depth of the nodes on the path as it
+ * goes. {@code contains} first searches without changing anything, and splays
+ * only if it went deeper than {@code SPLAY_DEPTH}: lookups of elements that
+ * are already near the root then write nothing, and since they take O(1)
+ * time, a sequence of m operations still takes O((m + n) log n) time overall.
+ * An element that is looked up again soon is found near the root, so when a
+ * small set of hot elements takes most lookups, those lookups visit few
+ * nodes. Whether that beats a tree that never changes on lookups depends on
+ * how skewed the lookups are, because splaying writes to every node on its
+ * path; {@code SplayZipfBenchmark} measures it. Unlike {@code Set3a} and
+ * {@code Set3b}, {@code contains} may change the shape of the tree (but never
+ * the set), so a {@code Set3e} must not be read by several threads at once.
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @mathdefinitions <pre>
+ * IS_BST(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [tree satisfies the binary search tree properties as described in the
+ *   slides with the ordering reported by compareTo for T, including that
+ *   it has no duplicate labels]
+ * </pre>
+ * @convention <pre>
+ * [$this.root is null or the root of a tree of nodes, each reachable from
+ *  $this.root along exactly one path]  and
+ * IS_BST([tree of labels of the nodes from $this.root])  and
+ * $this.size = [number of nodes in the tree from $this.root]  and
+ * [$this.header is not in the tree from $this.root]
+ * </pre>
+ * @correspondence this = labels([tree of labels of the nodes from $this.root])
+ *
+ * @authors Charles Sirichoktanasup, Dylan Jian
+ *
+ */
+public class Set3e<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Depth of search beyond which {@code contains} splays.
+     */
+    private static final int SPLAY_DEPTH = 8;
+
+    /**
+     * Node class for splay tree.
+     */
+    private final class Node {
+
+        /**
+         * Label of node.
+         */
+        private T label;
+
+        /**
+         * Root of left subtree, or null if it is empty.
+         */
+        private Node left;
+
+        /**
+         * Root of right subtree, or null if it is empty.
+         */
+        private Node right;
+
+        /**
+         * Constructor from label; the new node is a leaf.
+         *
+         * @param label
+         *            the label of the node
+         */
+        private Node(T label) {
+            this.label = label;
+        }
+
+    }
+
+    /**
+     * Root of the tree, or null if {@code this} is empty.
+     */
+    private Node root;
+
+    /**
+     * Number of nodes in the tree.
+     */
+    private int size;
+
+    /**
+     * Scratch node whose children collect the left and right trees during
+     * {@code splay}, so that splaying allocates nothing.
+     */
+    private final Node header = new Node(null);
+
+    /**
+     * Splays the tree around {@code x}: rearranges it so that its root is the
+     * node with label {@code x}, if there is one, or else the last node on the
+     * search path for {@code x}.
+     *
+     * @param x
+     *            the label to be searched for
+     * @updates $this.root
+     * @requires $this.root is not null
+     * @ensures <pre>
+     * [the tree from $this.root has the same labels as the tree from
+     *  #$this.root]  and
+     * ($this.root.label = x  or
+     *  [x is not in this, and $this.root.label is the greatest label < x or
+     *   the smallest label > x])
+     * </pre>
+     */
+    private void splay(T x) {
+        /*
+         * Top-down splaying: nodes less than x are hung, in order, on the
+         * right spine of the left tree (header.right), and nodes greater than x
+         * on the left spine of the right tree (header.left); two steps the
+         * same way are a zig-zig, which rotates first
+         */
+        Node leftMax = this.header;
+        Node rightMin = this.header;
+        this.header.left = null;
+        this.header.right = null;
+        Node t = this.root;
+        boolean done = false;
+        while (!done) {
+            int comparison = x.compareTo(t.label);
+            if (comparison < 0 && t.left != null) {
+                if (x.compareTo(t.left.label) < 0) {
+                    Node child = t.left;
+                    t.left = child.right;
+                    child.right = t;
+                    t = child;
+                }
+                if (t.left == null) {
+                    done = true;
+                } else {
+                    rightMin.left = t;
+                    rightMin = t;
+                    t = t.left;
+                }
+            } else if (comparison > 0 && t.right != null) {
+                if (x.compareTo(t.right.label) > 0) {
+                    Node child = t.right;
+                    t.right = child.left;
+                    child.left = t;
+                    t = child;
+                }
+                if (t.right == null) {
+                    done = true;
+                } else {
+                    leftMax.right = t;
+                    leftMax = t;
+                    t = t.right;
+                }
+            } else {
+                done = true;
+            }
+        }
+        // Reassembles the left tree, t, and the right tree
+        leftMax.right = t.left;
+        rightMin.left = t.right;
+        t.left = this.header.right;
+        t.right = this.header.left;
+        this.header.left = null;
+        this.header.right = null;
+        this.root = t;
+    }
+
+    /**
+     * Removes the root of the tree and returns its label.
+     *
+     * @return the label of the root
+     * @updates $this.root
+     * @requires $this.root is not null
+     * @ensures <pre>
+     * labels([tree from $this.root]) =
+     *  labels([tree from #$this.root]) \ {removeRoot}  and
+     * removeRoot = #$this.root.label
+     * </pre>
+     */
+    private T removeRoot() {
+        Node removed = this.root;
+        if (removed.left == null) {
+            this.root = removed.right;
+        } else {
+            /*
+             * Splaying the left subtree around the removed label brings its
+             * greatest label to its root, which then has no right child
+             */
+            this.root = removed.left;
+            this.splay(removed.label);
+            this.root.right = removed.right;
+        }
+        return removed.label;
+    }
+
+    /**
+     * Checks that the convention holds for the current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     * @convention <pre>
+     * [$this.root is null or the root of a tree of nodes, each reachable from
+     *  $this.root along exactly one path]  and
+     * IS_BST([tree of labels of the nodes from $this.root])  and
+     * $this.size = [number of nodes in the tree from $this.root]  and
+     * [$this.header is not in the tree from $this.root]
+     * </pre>
+     */
+    private boolean conventionHolds() {
+        /*
+         * An in-order walk with an explicit stack, since a splay tree can be
+         * a path of all its nodes: the labels must come out strictly
+         * increasing, and there must be exactly size of them (a node reached
+         * twice would make the walk longer, and a cycle endless, so it stops
+         * once past size)
+         */
+        assert this.header.left == null && this.header.right == null : ""
+                + "Violation of: [$this.header is not in the tree from"
+                + " $this.root]";
+        Deque<Node> path = new ArrayDeque<>();
+        Node n = this.root;
+        T previous = null;
+        int count = 0;
+        while ((n != null || !path.isEmpty()) && count <= this.size) {
+            if (n != null) {
+                assert n != this.header : ""
+                        + "Violation of: [$this.header is not in the tree from"
+                        + " $this.root]";
+                path.push(n);
+                n = n.left;
+            } else {
+                n = path.pop();
+                assert n.label != null : "Violation of: [labels are not null]";
+                assert previous == null
+                        || previous.compareTo(n.label) < 0 : ""
+                                + "Violation of: IS_BST([tree of labels of the"
+                                + " nodes from $this.root])";
+                previous = n.label;
+                count++;
+                n = n.right;
+            }
+        }
+        assert count == this.size : ""
+                + "Violation of: $this.size = [number of nodes in the tree"
+                + " from $this.root]";
+        return true;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.root = null;
+        this.size = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set3e() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set3e<?> : ""
+                + "Violation of: source is of dynamic type Set3e<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Set3e<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Set3e<T> localSource = (Set3e<T>) source;
+        this.root = localSource.root;
+        this.size = localSource.size;
+        localSource.createNewRep();
+        assert this.conventionHolds();
+        assert localSource.conventionHolds();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        Node n = new Node(x);
+        if (this.root != null) {
+            /*
+             * After splaying, the root is a neighbour of x, so the tree splits
+             * at the root into the labels less than x and those greater
+             */
+            this.splay(x);
+            if (this.root.label.compareTo(x) > 0) {
+                n.left = this.root.left;
+                n.right = this.root;
+                this.root.left = null;
+            } else {
+                n.right = this.root.right;
+                n.left = this.root;
+                this.root.right = null;
+            }
+        }
+        this.root = n;
+        this.size++;
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        this.splay(x);
+        this.size--;
+        T removed = this.removeRoot();
+        assert this.conventionHolds();
+        return removed;
+    }
+
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        // Removes the label at the root, the one most recently accessed
+        this.size--;
+        T removed = this.removeRoot();
+        assert this.conventionHolds();
+        return removed;
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        /*
+         * Searches without changing the tree first, and splays only if the
+         * search went deeper than SPLAY_DEPTH
+         */
+        Node n = this.root;
+        int depth = 0;
+        int comparison = 1;
+        while (n != null && comparison != 0) {
+            comparison = x.compareTo(n.label);
+            if (comparison < 0) {
+                n = n.left;
+            } else if (comparison > 0) {
+                n = n.right;
+            }
+            depth++;
+        }
+        if (depth > SPLAY_DEPTH) {
+            this.splay(x);
+            assert this.conventionHolds();
+        }
+        return comparison == 0;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Set3eIterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set3e}; visits
+     * labels in increasing order, keeping only the path to the next node, and
+     * does not splay.
+     */
+    private final class Set3eIterator implements Iterator<T> {
+
+        /**
+         * Nodes whose labels and right subtrees are still to be visited, with
+         * the next node on top.
+         */
+        private final Deque<Node> path;
+
+        /**
+         * No-argument constructor.
+         */
+        private Set3eIterator() {
+            this.path = new ArrayDeque<>();
+            this.pushLeftSpine(Set3e.this.root);
+        }
+
+        /**
+         * Pushes {@code n} and its chain of left descendants onto
+         * {@code path}.
+         *
+         * @param n
+         *            the first node to push, or null
+         */
+        private void pushLeftSpine(Node n) {
+            Node current = n;
+            while (current != null) {
+                this.path.push(current);
+                current = current.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.path.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            Node n = this.path.pop();
+            this.pushLeftSpine(n.right);
+            return n.label;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,709 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set} represented as a B+-tree, with implementations of primary
+ * methods.
+ *
+ * <p>
+ * Each node packs up to {@code MAX_KEYS} keys into one array, so a lookup
+ * visits one node per level (about log<sub>16</sub> n to
+ * log<sub>32</sub> n levels) and binary-searches within it, where
+ * {@code Set3a} visits a new node for every comparison. The keys array is a
+ * separate array of references, so a lookup still misses the cache on each
+ * node it visits, on that node's keys array and on each key it compares; what
+ * it saves is the misses on the rest of the log<sub>2</sub> n nodes of a
+ * binary tree path. All elements are in the leaves, which are linked in
+ * increasing order, so iteration walks the leaf arrays from left to right.
+ * {@code add}, {@code remove}, {@code removeAny} and {@code contains} take
+ * O(log n) time on any input order.
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @mathdefinitions <pre>
+ * IS_B_PLUS_TREE(
+ *   root: node,
+ *   min: integer,
+ *   max: integer
+ *  ): boolean satisfies
+ *  [every node other than root holds between min and max keys and root
+ *   holds at most max keys, in strictly increasing order according to
+ *   compareTo for T; an inner node with k keys has k + 1 children, and every
+ *   key in its i-th child is less than its i-th key, which is at most every
+ *   key in its (i + 1)-th child; all leaves are at the same depth, and each
+ *   leaf's next is the leaf to its right, or null for the last leaf]
+ * </pre>
+ * @convention <pre>
+ * $this.root is not null  and
+ * IS_B_PLUS_TREE($this.root, MIN_KEYS, MAX_KEYS)  and
+ * $this.size = [number of keys in the leaves from $this.root]
+ * </pre>
+ * @correspondence this = [set of keys in the leaves from $this.root]
+ *
+ * @authors Charles Sirichoktanasup, Dylan Jian
+ *
+ */
+public class Set5<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Maximum number of keys in a node. With compressed references, 32 keys
+     * fill two 64-byte cache lines, which the hardware prefetcher loads
+     * together, and a binary search reads at most 6 of them.
+     */
+    private static final int MAX_KEYS = 32;
+
+    /**
+     * Minimum number of keys in a node other than the root.
+     */
+    private static final int MIN_KEYS = MAX_KEYS / 2;
+
+    /**
+     * Node class for B+-tree; a leaf if {@code children} is null.
+     *
+     * @param <T>
+     *            type of keys
+     */
+    private static final class Node<T> {
+
+        /**
+         * Keys in {@code keys[0, count)}, with room for one more while a
+         * node overflows before it is split.
+         */
+        private final T[] keys;
+
+        /**
+         * Number of keys.
+         */
+        private int count;
+
+        /**
+         * Children in {@code children[0, count]}, or null for a leaf.
+         */
+        private final Node<T>[] children;
+
+        /**
+         * Next leaf to the right, or null; used only in leaves.
+         */
+        private Node<T> next;
+
+        /**
+         * Constructor from kind.
+         *
+         * @param leaf
+         *            whether the node is a leaf
+         */
+        @SuppressWarnings("unchecked")
+        private Node(boolean leaf) {
+            /*
+             * T is erased to Comparable in Set5, so an array of Comparable can
+             * stand for an array of T
+             */
+            this.keys = (T[]) new Comparable<?>[MAX_KEYS + 1];
+            if (leaf) {
+                this.children = null;
+            } else {
+                this.children = (Node<T>[]) new Node<?>[MAX_KEYS + 2];
+            }
+        }
+
+        /**
+         * Reports whether this node is a leaf.
+         *
+         * @return true iff this node is a leaf
+         */
+        private boolean isLeaf() {
+            return this.children == null;
+        }
+
+    }
+
+    /**
+     * Root of the tree; an empty leaf if {@code this} is empty.
+     */
+    private Node<T> root;
+
+    /**
+     * Number of elements.
+     */
+    private int size;
+
+    /**
+     * Key promoted by the last split in {@code insertInTree}.
+     */
+    private T promoted;
+
+    /**
+     * Returns the index of the first of {@code n.keys[0, n.count)} that is
+     * not less than {@code x} (or {@code n.count} if there is none).
+     *
+     * @param <T>
+     *            type of keys
+     * @param n
+     *            the node to search
+     * @param x
+     *            the key to search for
+     * @return the index of the first key >= x
+     */
+    private static <T extends Comparable<T>> int lowerBound(Node<T> n, T x) {
+        int lo = 0;
+        int hi = n.count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (n.keys[mid].compareTo(x) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the index of the child of inner node {@code n} whose subtree
+     * would contain {@code x}: the number of keys of {@code n} that are at
+     * most {@code x}.
+     *
+     * @param <T>
+     *            type of keys
+     * @param n
+     *            the inner node
+     * @param x
+     *            the key to search for
+     * @return the index of the child to descend to
+     */
+    private static <T extends Comparable<T>> int childIndex(Node<T> n, T x) {
+        int lo = 0;
+        int hi = n.count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (n.keys[mid].compareTo(x) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the leaf whose key range includes {@code x}.
+     *
+     * @param x
+     *            the key to search for
+     * @return the leaf where x is, or would be inserted
+     */
+    private Node<T> findLeaf(T x) {
+        Node<T> n = this.root;
+        while (!n.isLeaf()) {
+            n = n.children[childIndex(n, x)];
+        }
+        return n;
+    }
+
+    /**
+     * Inserts {@code x} in the subtree rooted at {@code n}. If {@code n}
+     * overflows, splits it and returns the new right sibling, with the key
+     * that separates them in {@code $this.promoted}.
+     *
+     * @param n
+     *            the root of the subtree
+     * @param x
+     *            the key to be inserted
+     * @return the new right sibling of n, or null if n was not split
+     * @aliases reference {@code x}
+     * @updates n, $this.promoted
+     * @requires x is not in [the keys in the leaves from n]
+     * @ensures <pre>
+     * [the keys in the leaves from n and insertInTree (if not null)] =
+     *   [the keys in the leaves from #n] union {x}  and
+     * if insertInTree /= null then
+     *   [$this.promoted separates n and insertInTree]
+     * </pre>
+     */
+    private Node<T> insertInTree(Node<T> n, T x) {
+        Node<T> sibling = null;
+        if (n.isLeaf()) {
+            int pos = lowerBound(n, x);
+            System.arraycopy(n.keys, pos, n.keys, pos + 1, n.count - pos);
+            n.keys[pos] = x;
+            n.count++;
+            if (n.count > MAX_KEYS) {
+                /*
+                 * The upper half moves to a new leaf, whose first key is
+                 * copied up as the separator
+                 */
+                sibling = new Node<>(true);
+                int half = n.count / 2;
+                sibling.count = n.count - half;
+                System.arraycopy(n.keys, half, sibling.keys, 0, sibling.count);
+                Arrays.fill(n.keys, half, n.count, null);
+                n.count = half;
+                sibling.next = n.next;
+                n.next = sibling;
+                this.promoted = sibling.keys[0];
+            }
+        } else {
+            int i = childIndex(n, x);
+            Node<T> newChild = this.insertInTree(n.children[i], x);
+            if (newChild != null) {
+                System.arraycopy(n.keys, i, n.keys, i + 1, n.count - i);
+                System.arraycopy(n.children, i + 1, n.children, i + 2,
+                        n.count - i);
+                n.keys[i] = this.promoted;
+                n.children[i + 1] = newChild;
+                n.count++;
+                if (n.count > MAX_KEYS) {
+                    /*
+                     * The middle key moves up; keys and children after it
+                     * move to a new inner node
+                     */
+                    sibling = new Node<>(false);
+                    int mid = n.count / 2;
+                    this.promoted = n.keys[mid];
+                    sibling.count = n.count - mid - 1;
+                    System.arraycopy(n.keys, mid + 1, sibling.keys, 0,
+                            sibling.count);
+                    System.arraycopy(n.children, mid + 1, sibling.children, 0,
+                            sibling.count + 1);
+                    Arrays.fill(n.keys, mid, n.count, null);
+                    Arrays.fill(n.children, mid + 1, n.count + 1,
+                            null);
+                    n.count = mid;
+                }
+            }
+        }
+        return sibling;
+    }
+
+    /**
+     * Removes {@code x} from the subtree rooted at {@code n} and returns the
+     * removed key. Children that fall below {@code MIN_KEYS} keys borrow a
+     * key from a sibling or are merged with one, so only {@code n} itself may
+     * be left with fewer than {@code MIN_KEYS} keys.
+     *
+     * @param n
+     *            the root of the subtree
+     * @param x
+     *            the key to be removed
+     * @return the removed key
+     * @updates n
+     * @requires x is in [the keys in the leaves from n]
+     * @ensures <pre>
+     * removeFromTree = x  and
+     * [the keys in the leaves from n] = [the keys in the leaves from #n] \ {x}
+     * </pre>
+     */
+    private T removeFromTree(Node<T> n, T x) {
+        T removed;
+        if (n.isLeaf()) {
+            int pos = lowerBound(n, x);
+            assert pos < n.count && n.keys[pos].compareTo(x) == 0 : ""
+                    + "Violation of: x is in this";
+            removed = n.keys[pos];
+            System.arraycopy(n.keys, pos + 1, n.keys, pos, n.count - pos - 1);
+            n.count--;
+            n.keys[n.count] = null;
+        } else {
+            /*
+             * Separators above a removed key may now equal no key, but they
+             * still separate their children, so they are left in place
+             */
+            int i = childIndex(n, x);
+            removed = this.removeFromTree(n.children[i], x);
+            if (n.children[i].count < MIN_KEYS) {
+                fixUnderflow(n, i);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Restores {@code MIN_KEYS} keys in child {@code i} of {@code parent},
+     * which has one fewer, by borrowing a key from a sibling that can spare
+     * one or else merging it with a sibling.
+     *
+     * @param <T>
+     *            type of keys
+     * @param parent
+     *            the inner node
+     * @param i
+     *            the index of the child with too few keys
+     * @updates parent
+     * @requires parent.children[i].count = MIN_KEYS - 1
+     * @ensures <pre>
+     * [every child of parent has at least MIN_KEYS keys]  and
+     * [the keys in the leaves from parent] =
+     *   [the keys in the leaves from #parent]
+     * </pre>
+     */
+    private static <T> void fixUnderflow(Node<T> parent, int i) {
+        Node<T> child = parent.children[i];
+        if (i > 0 && parent.children[i - 1].count > MIN_KEYS) {
+            Node<T> left = parent.children[i - 1];
+            System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+            if (child.isLeaf()) {
+                child.keys[0] = left.keys[left.count - 1];
+                parent.keys[i - 1] = child.keys[0];
+            } else {
+                System.arraycopy(child.children, 0, child.children, 1,
+                        child.count + 1);
+                child.keys[0] = parent.keys[i - 1];
+                child.children[0] = left.children[left.count];
+                left.children[left.count] = null;
+                parent.keys[i - 1] = left.keys[left.count - 1];
+            }
+            child.count++;
+            left.count--;
+            left.keys[left.count] = null;
+        } else if (i < parent.count
+                && parent.children[i + 1].count > MIN_KEYS) {
+            Node<T> right = parent.children[i + 1];
+            if (child.isLeaf()) {
+                child.keys[child.count] = right.keys[0];
+                System.arraycopy(right.keys, 1, right.keys, 0,
+                        right.count - 1);
+                parent.keys[i] = right.keys[0];
+            } else {
+                child.keys[child.count] = parent.keys[i];
+                child.children[child.count + 1] = right.children[0];
+                parent.keys[i] = right.keys[0];
+                System.arraycopy(right.keys, 1, right.keys, 0,
+                        right.count - 1);
+                System.arraycopy(right.children, 1, right.children, 0,
+                        right.count);
+                right.children[right.count] = null;
+            }
+            child.count++;
+            right.count--;
+            right.keys[right.count] = null;
+        } else {
+            /*
+             * Neither sibling can spare a key, so two siblings together have
+             * fewer than MAX_KEYS keys and fit in one node
+             */
+            int j = i;
+            if (i > 0) {
+                j = i - 1;
+            }
+            Node<T> left = parent.children[j];
+            Node<T> right = parent.children[j + 1];
+            if (left.isLeaf()) {
+                System.arraycopy(right.keys, 0, left.keys, left.count,
+                        right.count);
+                left.count += right.count;
+                left.next = right.next;
+            } else {
+                left.keys[left.count] = parent.keys[j];
+                System.arraycopy(right.keys, 0, left.keys, left.count + 1,
+                        right.count);
+                System.arraycopy(right.children, 0, left.children,
+                        left.count + 1, right.count + 1);
+                left.count += right.count + 1;
+            }
+            System.arraycopy(parent.keys, j + 1, parent.keys, j,
+                    parent.count - j - 1);
+            System.arraycopy(parent.children, j + 2, parent.children, j + 1,
+                    parent.count - j - 1);
+            parent.count--;
+            parent.keys[parent.count] = null;
+            parent.children[parent.count + 1] = null;
+        }
+    }
+
+    /**
+     * Checks that the part of the convention about the subtree rooted at
+     * {@code n} holds, and returns the number of keys in its leaves.
+     *
+     * @param n
+     *            the root of the subtree
+     * @param low
+     *            a key every key in the subtree must be at least, or null
+     * @param high
+     *            a key every key in the subtree must be less than, or null
+     * @param depth
+     *            the number of levels below n at which its leaves must be
+     * @return the number of keys in the leaves from n
+     */
+    private int checkSubtree(Node<T> n, T low, T high, int depth) {
+        assert n.count <= MAX_KEYS : ""
+                + "Violation of: IS_B_PLUS_TREE($this.root, MIN_KEYS, MAX_KEYS)"
+                + " [too many keys]";
+        assert n == this.root || n.count >= MIN_KEYS : ""
+                + "Violation of: IS_B_PLUS_TREE($this.root, MIN_KEYS, MAX_KEYS)"
+                + " [too few keys]";
+        for (int i = 0; i < n.count; i++) {
+            assert (i == 0 || n.keys[i - 1].compareTo(n.keys[i]) < 0)
+                    && (low == null || low.compareTo(n.keys[i]) <= 0)
+                    && (high == null || n.keys[i].compareTo(high) < 0) : ""
+                            + "Violation of: IS_B_PLUS_TREE($this.root,"
+                            + " MIN_KEYS, MAX_KEYS) [keys out of order]";
+        }
+        int count;
+        if (n.isLeaf()) {
+            assert depth == 0 : ""
+                    + "Violation of: IS_B_PLUS_TREE($this.root, MIN_KEYS, MAX_KEYS)"
+                    + " [leaves at different depths]";
+            count = n.count;
+        } else {
+            count = 0;
+            for (int i = 0; i <= n.count; i++) {
+                T childLow = low;
+                if (i > 0) {
+                    childLow = n.keys[i - 1];
+                }
+                T childHigh = high;
+                if (i < n.count) {
+                    childHigh = n.keys[i];
+                }
+                count += this.checkSubtree(n.children[i], childLow, childHigh,
+                        depth - 1);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks that the convention holds for the current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     * @convention <pre>
+     * $this.root is not null  and
+     * IS_B_PLUS_TREE($this.root, MIN_KEYS, MAX_KEYS)  and
+     * $this.size = [number of keys in the leaves from $this.root]
+     * </pre>
+     */
+    private boolean conventionHolds() {
+        assert this.root != null : "Violation of: $this.root is not null";
+        int depth = 0;
+        Node<T> n = this.root;
+        while (!n.isLeaf()) {
+            n = n.children[0];
+            depth++;
+        }
+        assert this.checkSubtree(this.root, null, null, depth) == this.size : ""
+                + "Violation of: $this.size = [number of keys in the leaves"
+                + " from $this.root]";
+        int linked = 0;
+        while (n != null) {
+            linked += n.count;
+            n = n.next;
+        }
+        assert linked == this.size : ""
+                + "Violation of: IS_B_PLUS_TREE($this.root, MIN_KEYS, MAX_KEYS)"
+                + " [leaf links]";
+        return true;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.root = new Node<>(true);
+        this.size = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set5() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set5<?> : ""
+                + "Violation of: source is of dynamic type Set5<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Set5<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Set5<T> localSource = (Set5<T>) source;
+        this.root = localSource.root;
+        this.size = localSource.size;
+        localSource.createNewRep();
+        assert this.conventionHolds();
+        assert localSource.conventionHolds();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        Node<T> sibling = this.insertInTree(this.root, x);
+        if (sibling != null) {
+            // The root was split, so the tree grows a level
+            Node<T> newRoot = new Node<>(false);
+            newRoot.keys[0] = this.promoted;
+            newRoot.children[0] = this.root;
+            newRoot.children[1] = sibling;
+            newRoot.count = 1;
+            this.root = newRoot;
+        }
+        this.promoted = null;
+        this.size++;
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        T removed = this.removeFromTree(this.root, x);
+        if (!this.root.isLeaf() && this.root.count == 0) {
+            // The root's last two children were merged, so the tree shrinks
+            this.root = this.root.children[0];
+        }
+        this.size--;
+        assert this.conventionHolds();
+        return removed;
+    }
+
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        // Removes the smallest element, as Set3a does
+        Node<T> n = this.root;
+        while (!n.isLeaf()) {
+            n = n.children[0];
+        }
+        return this.remove(n.keys[0]);
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        Node<T> leaf = this.findLeaf(x);
+        int pos = lowerBound(leaf, x);
+        return pos < leaf.count && leaf.keys[pos].compareTo(x) == 0;
+    }
+
+    @Override
+    public final int size() {
+        assert this.conventionHolds();
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        assert this.conventionHolds();
+        return new Set5Iterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set5}; walks the
+     * linked leaves from left to right.
+     */
+    private final class Set5Iterator implements Iterator<T> {
+
+        /**
+         * Leaf holding the next key, or null when the iteration is done.
+         */
+        private Node<T> leaf;
+
+        /**
+         * Index of the next key in {@code leaf}.
+         */
+        private int index;
+
+        /**
+         * No-argument constructor.
+         */
+        private Set5Iterator() {
+            Node<T> n = Set5.this.root;
+            while (!n.isLeaf()) {
+                n = n.children[0];
+            }
+            this.leaf = n;
+            this.index = 0;
+            this.skipExhaustedLeaf();
+        }
+
+        /**
+         * Moves to the next leaf if every key of {@code leaf} was visited.
+         */
+        private void skipExhaustedLeaf() {
+            if (this.leaf != null && this.index == this.leaf.count) {
+                // Only an empty root leaf is empty, so one step suffices
+                this.leaf = this.leaf.next;
+                this.index = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.leaf != null;
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            T next = this.leaf.keys[this.index];
+            this.index++;
+            this.skipExhaustedLeaf();
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,692 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set} represented as a lock-free skip list (Herlihy and Shavit, "The
+ * Art of Multiprocessor Programming", section 14.4), with implementations of
+ * primary methods.
+ *
+ * <p>
+ * Unlike the other {@code Set} implementations, {@code add}, {@code remove},
+ * {@code removeAny}, {@code contains}, {@code size}, {@code iterator} and the
+ * extra methods {@code addIfAbsent} and {@code removeIfPresent} may be called
+ * by any number of threads at the same time. {@code contains} is wait-free:
+ * it never writes and never retries. The updates are lock-free: a node is
+ * removed by first marking its links (logically deleting it) and then
+ * unlinking it with compare-and-set, and any thread that finds a marked node
+ * helps unlink it. Under concurrent updates, {@code size} and iteration
+ * reflect some recent state of the set; {@code add} and {@code remove} keep
+ * their sequential preconditions, so threads that may race on the same
+ * element should use {@code addIfAbsent} and {@code removeIfPresent}
+ * instead. {@code clear}, {@code transferFrom} and the bulk secondary methods
+ * require that no other thread is using {@code this} or {@code source}.
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @convention <pre>
+ * [$this.head and $this.tail are sentinel nodes with null values and
+ *  MAX_LEVEL + 1 levels]  and
+ * [for every level l, following the unmarked next[l] links from $this.head
+ *  reaches $this.tail, through nodes whose values are in strictly increasing
+ *  order according to compareTo for T]  and
+ * [every node linked at level l > 0 is also linked at all lower levels,
+ *  unless it is marked]  and
+ * [when no operation is in progress, no marked node is linked and
+ *  $this.count = the number of nodes between $this.head and $this.tail at
+ *  level 0]
+ * </pre>
+ * @correspondence <pre>
+ * this = [set of values of the nodes between $this.head and $this.tail at
+ *  level 0 whose level-0 links are not marked]
+ * </pre>
+ *
+ * @authors Charles Sirichoktanasup, Dylan Jian
+ *
+ */
+public class Set6<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Highest level index; with a promotion probability of 1/2, enough for
+     * sets of up to about 2<sup>31</sup> elements.
+     */
+    private static final int MAX_LEVEL = 31;
+
+    /**
+     * Node class for skip list.
+     *
+     * @param <T>
+     *            type of values
+     */
+    private static final class Node<T> {
+
+        /**
+         * Value of node, or null for a sentinel.
+         */
+        private final T value;
+
+        /**
+         * Links to the next node at each level, marked once this node is
+         * (being) removed.
+         */
+        private final AtomicMarkableReference<Node<T>>[] next;
+
+        /**
+         * Constructor from value and top level.
+         *
+         * @param value
+         *            the value of the node, or null for a sentinel
+         * @param topLevel
+         *            the highest level the node is linked at
+         */
+        @SuppressWarnings("unchecked")
+        private Node(T value, int topLevel) {
+            this.value = value;
+            this.next = (AtomicMarkableReference<Node<T>>[])
+                    new AtomicMarkableReference<?>[topLevel + 1];
+            for (int i = 0; i <= topLevel; i++) {
+                this.next[i] = new AtomicMarkableReference<>(null, false);
+            }
+        }
+
+        /**
+         * Reports the highest level this node is linked at.
+         *
+         * @return the top level
+         */
+        private int topLevel() {
+            return this.next.length - 1;
+        }
+
+    }
+
+    /**
+     * Sentinel before every node, at every level.
+     */
+    private Node<T> head;
+
+    /**
+     * Sentinel after every node, at every level.
+     */
+    private Node<T> tail;
+
+    /**
+     * Number of elements, updated after each successful insertion or
+     * removal.
+     */
+    private AtomicInteger count;
+
+    /**
+     * Returns a random level for a new node: level l with probability
+     * 2<sup>-(l+1)</sup>, capped at {@code MAX_LEVEL}.
+     *
+     * @return the level
+     */
+    private static int randomLevel() {
+        return Integer.numberOfTrailingZeros(
+                ThreadLocalRandom.current().nextInt() | (1 << MAX_LEVEL));
+    }
+
+    /**
+     * Reports whether node {@code n} comes before value {@code x}.
+     *
+     * @param n
+     *            a node other than {@code $this.head}
+     * @param x
+     *            the value
+     * @return true iff n is not the tail and n.value < x
+     */
+    private boolean before(Node<T> n, T x) {
+        return n != this.tail && n.value.compareTo(x) < 0;
+    }
+
+    /**
+     * Finds, at every level, the last node before {@code x} and the node
+     * after it, unlinking every marked node met on the way.
+     *
+     * @param x
+     *            the value to search for
+     * @param preds
+     *            array receiving the predecessor at each level
+     * @param succs
+     *            array receiving the successor at each level
+     * @return true iff the successor at level 0 has value x
+     * @updates preds, succs
+     * @requires |preds| = |succs| = MAX_LEVEL + 1
+     * @ensures <pre>
+     * [for each level l, preds[l] was linked to succs[l] at level l,
+     *  preds[l] is $this.head or has value < x, and succs[l] is $this.tail
+     *  or has value >= x]  and
+     * find = (succs[0] is not $this.tail  and  succs[0].value = x)
+     * </pre>
+     */
+    private boolean find(T x, Node<T>[] preds, Node<T>[] succs) {
+        boolean[] marked = { false };
+        boolean retry = true;
+        Node<T> curr = null;
+        while (retry) {
+            retry = false;
+            Node<T> pred = this.head;
+            for (int level = MAX_LEVEL; level >= 0 && !retry; level--) {
+                curr = pred.next[level].getReference();
+                boolean advancing = true;
+                while (advancing && !retry) {
+                    Node<T> succ = curr.next[level].get(marked);
+                    while (marked[0] && !retry) {
+                        /*
+                         * curr is being removed: helps by unlinking it; if
+                         * pred changed meanwhile, starts over from the head
+                         */
+                        if (pred.next[level].compareAndSet(curr, succ, false,
+                                false)) {
+                            curr = succ;
+                            succ = curr.next[level].get(marked);
+                        } else {
+                            retry = true;
+                        }
+                    }
+                    if (!retry) {
+                        if (this.before(curr, x)) {
+                            pred = curr;
+                            curr = succ;
+                        } else {
+                            advancing = false;
+                        }
+                    }
+                }
+                preds[level] = pred;
+                succs[level] = curr;
+            }
+        }
+        return curr != this.tail && curr.value.compareTo(x) == 0;
+    }
+
+    /**
+     * Creates and returns an array for {@code find}.
+     *
+     * @return a new array of length MAX_LEVEL + 1
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T>[] newLevelArray() {
+        return (Node<T>[]) new Node<?>[MAX_LEVEL + 1];
+    }
+
+    /**
+     * Inserts {@code x} unless it is already there.
+     *
+     * @param x
+     *            the value to be inserted
+     * @return true iff x was inserted
+     * @aliases reference {@code x}
+     * @updates this
+     * @ensures insert = (x is not in #this)  and  this = #this union {x}
+     */
+    private boolean insert(T x) {
+        int topLevel = randomLevel();
+        Node<T>[] preds = newLevelArray();
+        Node<T>[] succs = newLevelArray();
+        boolean inserted = false;
+        boolean done = false;
+        while (!done) {
+            if (this.find(x, preds, succs)) {
+                done = true;
+            } else {
+                Node<T> node = new Node<>(x, topLevel);
+                for (int level = 0; level <= topLevel; level++) {
+                    node.next[level].set(succs[level], false);
+                }
+                /*
+                 * Linking at level 0 is what adds x to the set; the higher
+                 * levels only speed up searches
+                 */
+                if (preds[0].next[0].compareAndSet(succs[0], node, false,
+                        false)) {
+                    this.count.incrementAndGet();
+                    this.linkUpperLevels(node, preds, succs);
+                    inserted = true;
+                    done = true;
+                }
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Links {@code node}, already linked at level 0, at its upper levels,
+     * stopping early if it is removed meanwhile.
+     *
+     * @param node
+     *            the node being inserted
+     * @param preds
+     *            the predecessors found for node's value
+     * @param succs
+     *            the successors found for node's value
+     * @updates preds, succs
+     */
+    private void linkUpperLevels(Node<T> node, Node<T>[] preds,
+            Node<T>[] succs) {
+        boolean[] marked = { false };
+        boolean stop = false;
+        for (int level = 1; level <= node.topLevel() && !stop; level++) {
+            boolean linked = false;
+            while (!linked && !stop) {
+                Node<T> succ = succs[level];
+                Node<T> current = node.next[level].get(marked);
+                if (marked[0]) {
+                    // node is being removed: linking it higher is pointless
+                    stop = true;
+                } else if (current != succ && !node.next[level]
+                        .compareAndSet(current, succ, false, false)) {
+                    stop = true;
+                } else if (preds[level].next[level].compareAndSet(succ, node,
+                        false, false)) {
+                    linked = true;
+                    if (node.next[level].isMarked()) {
+                        /*
+                         * node was removed while being linked here, maybe
+                         * after the remover unlinked it: unlinks it again, so
+                         * no marked node stays linked
+                         */
+                        this.find(node.value, preds, succs);
+                        stop = true;
+                    }
+                } else {
+                    this.find(node.value, preds, succs);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes {@code x} if it is there, and returns the removed value.
+     *
+     * @param x
+     *            the value to be removed
+     * @return the removed value, or null if x was not in this
+     * @updates this
+     * @ensures <pre>
+     * this = #this \ {x}  and
+     * if x is in #this then delete = x else delete = null
+     * </pre>
+     */
+    private T delete(T x) {
+        Node<T>[] preds = newLevelArray();
+        Node<T>[] succs = newLevelArray();
+        T removed = null;
+        if (this.find(x, preds, succs)) {
+            Node<T> node = succs[0];
+            if (this.markForRemoval(node)) {
+                removed = node.value;
+                this.count.decrementAndGet();
+                // Unlinks the node at every level
+                this.find(x, preds, succs);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Marks every link of {@code node}, top level first, and reports whether
+     * this call is the one that marked level 0, which is what removes the
+     * node from the set.
+     *
+     * @param node
+     *            the node to remove
+     * @return true iff this call marked node's level-0 link
+     */
+    private boolean markForRemoval(Node<T> node) {
+        boolean[] marked = { false };
+        for (int level = node.topLevel(); level > 0; level--) {
+            Node<T> succ = node.next[level].get(marked);
+            while (!marked[0]) {
+                node.next[level].compareAndSet(succ, succ, false, true);
+                succ = node.next[level].get(marked);
+            }
+        }
+        boolean removedByMe = false;
+        boolean done = false;
+        while (!done) {
+            Node<T> succ = node.next[0].get(marked);
+            if (marked[0]) {
+                done = true;
+            } else if (node.next[0].compareAndSet(succ, succ, false, true)) {
+                removedByMe = true;
+                done = true;
+            }
+        }
+        return removedByMe;
+    }
+
+    /**
+     * Checks that the convention holds for the current representation. It
+     * checks the state of the skip list when no operation is in progress, so
+     * it is checked only by the methods that require that no other thread is
+     * using {@code this}.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     * @requires [no operation on this is in progress]
+     */
+    private boolean conventionHolds() {
+        assert this.head.value == null && this.tail.value == null
+                && this.head.topLevel() == MAX_LEVEL
+                && this.tail.topLevel() == MAX_LEVEL : ""
+                        + "Violation of: [$this.head and $this.tail are"
+                        + " sentinel nodes with null values and MAX_LEVEL + 1"
+                        + " levels]";
+        boolean[] marked = { false };
+        for (int level = 0; level <= MAX_LEVEL; level++) {
+            int count = 0;
+            Node<T> lower = this.head;
+            Node<T> previous = this.head;
+            Node<T> n = this.head.next[level].get(marked);
+            while (n != this.tail) {
+                assert !marked[0] : ""
+                        + "Violation of: [when no operation is in progress, no"
+                        + " marked node is linked]";
+                assert n != null && n != this.head && n.value != null : ""
+                        + "Violation of: [following the unmarked next[l] links"
+                        + " from $this.head reaches $this.tail]";
+                assert previous == this.head
+                        || previous.value.compareTo(n.value) < 0 : ""
+                                + "Violation of: [values are in strictly"
+                                + " increasing order at every level]";
+                assert level <= n.topLevel() : ""
+                        + "Violation of: [a node is linked only up to its top"
+                        + " level]";
+                if (level > 0) {
+                    while (lower != n && lower != this.tail) {
+                        lower = lower.next[level - 1].getReference();
+                    }
+                    assert lower == n : ""
+                            + "Violation of: [every node linked at level l > 0"
+                            + " is also linked at all lower levels]";
+                }
+                count++;
+                previous = n;
+                n = n.next[level].get(marked);
+            }
+            assert !marked[0] : ""
+                    + "Violation of: [when no operation is in progress, no"
+                    + " marked node is linked]";
+            assert level > 0 || count == this.count.get() : ""
+                    + "Violation of: [$this.count = the number of nodes"
+                    + " between $this.head and $this.tail at level 0]";
+        }
+        return true;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.head = new Node<>(null, MAX_LEVEL);
+        this.tail = new Node<>(null, MAX_LEVEL);
+        for (int level = 0; level <= MAX_LEVEL; level++) {
+            this.head.next[level].set(this.tail, false);
+        }
+        this.count = new AtomicInteger();
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set6() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set6<?> : ""
+                + "Violation of: source is of dynamic type Set6<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Set6<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Set6<T> localSource = (Set6<T>) source;
+        this.head = localSource.head;
+        this.tail = localSource.tail;
+        this.count = localSource.count;
+        localSource.createNewRep();
+        assert this.conventionHolds();
+        assert localSource.conventionHolds();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        this.insert(x);
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        return this.delete(x);
+    }
+
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        /*
+         * Removes the smallest element, as Set3a does; if another thread
+         * removes it first, tries the next smallest
+         */
+        boolean[] marked = { false };
+        T removed = null;
+        Node<T> n = this.head.next[0].getReference();
+        while (removed == null && n != this.tail) {
+            n.next[0].get(marked);
+            if (!marked[0] && this.markForRemoval(n)) {
+                removed = n.value;
+                this.count.decrementAndGet();
+                this.find(removed, newLevelArray(), newLevelArray());
+            } else {
+                n = n.next[0].getReference();
+            }
+        }
+        assert removed != null : "Violation of: this /= empty_set";
+        return removed;
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        /*
+         * Wait-free: skips marked nodes instead of unlinking them, so it never
+         * writes and never starts over
+         */
+        boolean[] marked = { false };
+        Node<T> pred = this.head;
+        Node<T> curr = null;
+        for (int level = MAX_LEVEL; level >= 0; level--) {
+            curr = pred.next[level].getReference();
+            boolean advancing = true;
+            while (advancing) {
+                Node<T> succ = curr.next[level].get(marked);
+                while (marked[0]) {
+                    curr = succ;
+                    succ = curr.next[level].get(marked);
+                }
+                if (this.before(curr, x)) {
+                    pred = curr;
+                    curr = succ;
+                } else {
+                    advancing = false;
+                }
+            }
+        }
+        return curr != this.tail && curr.value.compareTo(x) == 0;
+    }
+
+    @Override
+    public final int size() {
+        return this.count.get();
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Set6Iterator();
+    }
+
+    /*
+     * Concurrent update methods ----------------------------------------------
+     */
+
+    /**
+     * Adds {@code x} to {@code this} if it is not already there, and reports
+     * whether it was added. Safe to call from many threads at once, even for
+     * the same {@code x}: exactly one of several concurrent calls with equal
+     * values returns true.
+     *
+     * @param x
+     *            the element to be added
+     * @return true iff x was not in this
+     * @aliases reference {@code x}
+     * @updates this
+     * @ensures addIfAbsent = (x is not in #this)  and  this = #this union {x}
+     */
+    public final boolean addIfAbsent(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        return this.insert(x);
+    }
+
+    /**
+     * Removes {@code x} from {@code this} if it is there, and returns the
+     * removed element. Safe to call from many threads at once, even for the
+     * same {@code x}: at most one of several concurrent calls with equal
+     * values removes it.
+     *
+     * @param x
+     *            the element to be removed
+     * @return the removed element, or null if x was not in this
+     * @updates this
+     * @ensures <pre>
+     * this = #this \ {x}  and
+     * if x is in #this then removeIfPresent = x else removeIfPresent = null
+     * </pre>
+     */
+    public final T removeIfPresent(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        return this.delete(x);
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set6}; walks
+     * level 0 in increasing order, skipping removed nodes. It is weakly
+     * consistent: it never fails because of concurrent updates, returns every
+     * element that is in the set for the whole iteration exactly once, and may
+     * or may not return elements added or removed meanwhile.
+     */
+    private final class Set6Iterator implements Iterator<T> {
+
+        /**
+         * Next node to return, or the tail.
+         */
+        private Node<T> next;
+
+        /**
+         * No-argument constructor.
+         */
+        private Set6Iterator() {
+            this.next = this.skipRemoved(Set6.this.head.next[0].getReference());
+        }
+
+        /**
+         * Returns {@code n} or the first node after it that is not marked.
+         *
+         * @param n
+         *            the node to start from
+         * @return the first unmarked node from n on, or the tail
+         */
+        private Node<T> skipRemoved(Node<T> n) {
+            boolean[] marked = { false };
+            Node<T> current = n;
+            Node<T> succ = current.next[0].get(marked);
+            while (current != Set6.this.tail && marked[0]) {
+                current = succ;
+                succ = current.next[0].get(marked);
+            }
+            return current;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != Set6.this.tail;
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            T value = this.next.value;
+            this.next = this.skipRemoved(this.next.next[0].getReference());
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
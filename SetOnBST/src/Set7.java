@@ -0,0 +1,1528 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set<Integer>} represented as a compressed bitmap in the style of
+ * Roaring bitmaps, with implementations of primary methods.
+ *
+ * <p>
+ * Elements are split into chunks of 2<sup>16</sup> by their high 16 bits; each
+ * non-empty chunk keeps the low 16 bits of its elements in the smallest of
+ * three kinds of container: a sorted {@code char} array (up to
+ * {@code MAX_ARRAY} elements, 2 bytes each), a 65536-bit bitmap (8 KB), or a
+ * sorted list of runs of consecutive values (4 bytes per run). A dense range
+ * of IDs therefore costs about one bit per element, or a few bytes per run,
+ * instead of a boxed {@code Integer} and a tree node. {@code contains},
+ * {@code add} and {@code remove} take O(log c) time to find the chunk (c the
+ * number of chunks) plus O(log m) or O(1) time in the container.
+ * </p>
+ *
+ * <p>
+ * {@code add(Set)} and {@code remove(Set)} with another {@code Set7} combine
+ * the chunks the two sets share according to their kinds. Two arrays are
+ * merged in order, and an array and a bitmap (or, in {@code remove(Set)}, an
+ * array and any container) by looking up each array value in the other
+ * container; these results are arrays, or bitmaps past {@code MAX_ARRAY}
+ * values. Only the other pairs, which involve a dense container (a bitmap or
+ * runs), are combined on 1024-word bitmaps, with simple loops over
+ * {@code long}s that the JIT compiler turns into SIMD instructions, storing
+ * each result in its smallest container.
+ * {@code runOptimize} converts every container to its smallest kind, and
+ * {@code sizeInBytes} estimates the memory used.
+ * </p>
+ *
+ * <p>
+ * High 16 bits are compared with the sign bit flipped, so chunks, and
+ * iteration, follow the natural order of {@code Integer}s.
+ * </p>
+ *
+ * @mathdefinitions <pre>
+ * KEY(
+ *   x: integer
+ *  ): integer is
+ *  (x + 2^31) div 2^16
+ *
+ * LOW(
+ *   x: integer
+ *  ): integer is
+ *  (x + 2^31) mod 2^16
+ * </pre>
+ * @convention <pre>
+ * 0 <= $this.chunks <= |$this.keys|  and
+ * |$this.keys| = |$this.containers|  and
+ * [$this.keys[0, $this.chunks) is strictly increasing]  and
+ * [for each i < $this.chunks, $this.containers[i] is a valid container
+ *  holding at least one value: an array container has at most MAX_ARRAY
+ *  values in strictly increasing order, a bitmap container has more than
+ *  MAX_ARRAY values and counts them correctly, and a run container has at
+ *  most MAX_RUNS runs in increasing order, none adjacent to the next]  and
+ * $this.size = [sum of the numbers of values in the containers]
+ * </pre>
+ * @correspondence <pre>
+ * this = {x: integer
+ *         where (there exists i: integer
+ *                where (0 <= i < $this.chunks  and  $this.keys[i] = KEY(x)
+ *                       and  LOW(x) is in $this.containers[i]))
+ *        (x)}
+ * </pre>
+ *
+ * @authors Charles Sirichoktanasup, Dylan Jian
+ *
+ */
+public class Set7 extends SetSecondary<Integer> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Number of values in a chunk.
+     */
+    private static final int CHUNK_VALUES = 1 << 16;
+
+    /**
+     * Number of {@code long}s in a bitmap container.
+     */
+    private static final int BITMAP_WORDS = CHUNK_VALUES / Long.SIZE;
+
+    /**
+     * Largest number of values in an array container; an array of more would
+     * take more than the 8 KB of a bitmap.
+     */
+    private static final int MAX_ARRAY = 4096;
+
+    /**
+     * Largest number of runs in a run container; more would take more than
+     * the 8 KB of a bitmap.
+     */
+    private static final int MAX_RUNS = 2048;
+
+    /**
+     * Initial capacity of the chunk arrays.
+     */
+    private static final int INITIAL_CHUNKS = 4;
+
+    /**
+     * Container of the low 16 bits of the elements of one chunk.
+     */
+    private abstract static class Container {
+
+        /**
+         * Reports whether {@code x} is in this container.
+         *
+         * @param x
+         *            the low value
+         * @return true iff x is in this
+         */
+        abstract boolean contains(int x);
+
+        /**
+         * Adds {@code x} and returns the container now holding the values,
+         * which may be this one or a new one of another kind.
+         *
+         * @param x
+         *            the low value
+         * @return the container holding #this union {x}
+         * @requires x is not in this
+         */
+        abstract Container add(int x);
+
+        /**
+         * Removes {@code x} and returns the container now holding the values,
+         * which may be this one or a new one of another kind.
+         *
+         * @param x
+         *            the low value
+         * @return the container holding #this \ {x}
+         * @requires x is in this
+         */
+        abstract Container remove(int x);
+
+        /**
+         * Returns the number of values in this container.
+         *
+         * @return the number of values
+         */
+        abstract int cardinality();
+
+        /**
+         * Returns the smallest value in this container that is at least
+         * {@code from}, or -1 if there is none.
+         *
+         * @param from
+         *            the lower bound, in [0, CHUNK_VALUES)
+         * @return the next value, or -1
+         */
+        abstract int nextValue(int from);
+
+        /**
+         * Sets the bits of the values of this container in {@code words}.
+         *
+         * @param words
+         *            a bitmap of BITMAP_WORDS words
+         * @updates words
+         */
+        abstract void orInto(long[] words);
+
+        /**
+         * Returns the approximate number of bytes this container takes.
+         *
+         * @return the size in bytes
+         */
+        abstract long sizeInBytes();
+
+        /**
+         * Checks that this container is valid, and returns its number of
+         * values.
+         *
+         * @return the number of values
+         */
+        abstract int check();
+
+    }
+
+    /**
+     * Container of a sorted array of values.
+     */
+    private static final class ArrayContainer extends Container {
+
+        /**
+         * Values, increasing, in {@code values[0, count)}.
+         */
+        private char[] values;
+
+        /**
+         * Number of values.
+         */
+        private int count;
+
+        /**
+         * Constructor from values.
+         *
+         * @param values
+         *            the values, increasing, in values[0, count)
+         * @param count
+         *            the number of values
+         */
+        ArrayContainer(char[] values, int count) {
+            this.values = values;
+            this.count = count;
+        }
+
+        @Override
+        boolean contains(int x) {
+            return Arrays.binarySearch(this.values, 0, this.count,
+                    (char) x) >= 0;
+        }
+
+        @Override
+        Container add(int x) {
+            Container result = this;
+            if (this.count == MAX_ARRAY) {
+                long[] words = new long[BITMAP_WORDS];
+                this.orInto(words);
+                result = new BitmapContainer(words, this.count).add(x);
+            } else {
+                int pos = -Arrays.binarySearch(this.values, 0, this.count,
+                        (char) x) - 1;
+                if (this.count == this.values.length) {
+                    this.values = Arrays.copyOf(this.values,
+                            Math.min(2 * this.count, MAX_ARRAY));
+                }
+                System.arraycopy(this.values, pos, this.values, pos + 1,
+                        this.count - pos);
+                this.values[pos] = (char) x;
+                this.count++;
+            }
+            return result;
+        }
+
+        @Override
+        Container remove(int x) {
+            int pos = Arrays.binarySearch(this.values, 0, this.count,
+                    (char) x);
+            System.arraycopy(this.values, pos + 1, this.values, pos,
+                    this.count - pos - 1);
+            this.count--;
+            return this;
+        }
+
+        @Override
+        int cardinality() {
+            return this.count;
+        }
+
+        @Override
+        int nextValue(int from) {
+            int pos = Arrays.binarySearch(this.values, 0, this.count,
+                    (char) from);
+            if (pos < 0) {
+                pos = -pos - 1;
+            }
+            int next = -1;
+            if (pos < this.count) {
+                next = this.values[pos];
+            }
+            return next;
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (int i = 0; i < this.count; i++) {
+                int v = this.values[i];
+                words[v >>> 6] |= 1L << v;
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16L + 2L * this.values.length;
+        }
+
+        @Override
+        int check() {
+            assert this.count <= MAX_ARRAY : ""
+                    + "Violation of: [an array container has at most"
+                    + " MAX_ARRAY values]";
+            for (int i = 1; i < this.count; i++) {
+                assert this.values[i - 1] < this.values[i] : ""
+                        + "Violation of: [an array container has values in"
+                        + " strictly increasing order]";
+            }
+            return this.count;
+        }
+
+    }
+
+    /**
+     * Container of a 65536-bit bitmap.
+     */
+    private static final class BitmapContainer extends Container {
+
+        /**
+         * The bitmap: value v is in this iff bit v mod 64 of words[v / 64] is
+         * set.
+         */
+        private final long[] words;
+
+        /**
+         * Number of values.
+         */
+        private int cardinality;
+
+        /**
+         * Constructor from bitmap.
+         *
+         * @param words
+         *            the bitmap, taken over by this container
+         * @param cardinality
+         *            the number of bits set in words
+         */
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        boolean contains(int x) {
+            return (this.words[x >>> 6] & (1L << x)) != 0;
+        }
+
+        @Override
+        Container add(int x) {
+            this.words[x >>> 6] |= 1L << x;
+            this.cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(int x) {
+            this.words[x >>> 6] &= ~(1L << x);
+            this.cardinality--;
+            Container result = this;
+            if (this.cardinality <= MAX_ARRAY) {
+                result = arrayFromWords(this.words, this.cardinality);
+            }
+            return result;
+        }
+
+        @Override
+        int cardinality() {
+            return this.cardinality;
+        }
+
+        @Override
+        int nextValue(int from) {
+            return nextSetBit(this.words, from);
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] |= this.words[i];
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16L + (long) Long.BYTES * BITMAP_WORDS;
+        }
+
+        @Override
+        int check() {
+            int count = 0;
+            for (long w : this.words) {
+                count += Long.bitCount(w);
+            }
+            assert count == this.cardinality : ""
+                    + "Violation of: [a bitmap container counts its values"
+                    + " correctly]";
+            assert count > MAX_ARRAY : ""
+                    + "Violation of: [a bitmap container has more than"
+                    + " MAX_ARRAY values]";
+            return count;
+        }
+
+    }
+
+    /**
+     * Container of a sorted list of runs of consecutive values.
+     */
+    private static final class RunContainer extends Container {
+
+        /**
+         * Runs: run i is the values from {@code runs[2i]} to
+         * {@code runs[2i] + runs[2i + 1]}, inclusive.
+         */
+        private char[] runs;
+
+        /**
+         * Number of runs.
+         */
+        private int runCount;
+
+        /**
+         * Number of values.
+         */
+        private int cardinality;
+
+        /**
+         * Constructor from runs.
+         *
+         * @param runs
+         *            the runs, as (start, length - 1) pairs
+         * @param runCount
+         *            the number of runs
+         * @param cardinality
+         *            the number of values in the runs
+         */
+        RunContainer(char[] runs, int runCount, int cardinality) {
+            this.runs = runs;
+            this.runCount = runCount;
+            this.cardinality = cardinality;
+        }
+
+        /**
+         * Returns the first value of run {@code i}.
+         *
+         * @param i
+         *            the index of the run
+         * @return the start of run i
+         */
+        private int start(int i) {
+            return this.runs[2 * i];
+        }
+
+        /**
+         * Returns the last value of run {@code i}.
+         *
+         * @param i
+         *            the index of the run
+         * @return the end of run i
+         */
+        private int end(int i) {
+            return this.runs[2 * i] + this.runs[2 * i + 1];
+        }
+
+        /**
+         * Sets run {@code i} to the values from {@code start} to {@code end}.
+         *
+         * @param i
+         *            the index of the run
+         * @param start
+         *            the first value
+         * @param end
+         *            the last value
+         */
+        private void setRun(int i, int start, int end) {
+            this.runs[2 * i] = (char) start;
+            this.runs[2 * i + 1] = (char) (end - start);
+        }
+
+        /**
+         * Returns the index of the last run that starts at or before
+         * {@code x}, or -1 if there is none.
+         *
+         * @param x
+         *            the value
+         * @return the index of the run, or -1
+         */
+        private int find(int x) {
+            int lo = 0;
+            int hi = this.runCount;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (this.start(mid) <= x) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo - 1;
+        }
+
+        /**
+         * Inserts a run from {@code start} to {@code end} at index {@code i}.
+         *
+         * @param i
+         *            the index of the new run
+         * @param start
+         *            the first value
+         * @param end
+         *            the last value
+         */
+        private void insertRun(int i, int start, int end) {
+            if (2 * this.runCount == this.runs.length) {
+                this.runs = Arrays.copyOf(this.runs,
+                        Math.max(4, 2 * this.runs.length));
+            }
+            System.arraycopy(this.runs, 2 * i, this.runs, 2 * i + 2,
+                    2 * (this.runCount - i));
+            this.runCount++;
+            this.setRun(i, start, end);
+        }
+
+        /**
+         * Deletes run {@code i}.
+         *
+         * @param i
+         *            the index of the run
+         */
+        private void deleteRun(int i) {
+            System.arraycopy(this.runs, 2 * i + 2, this.runs, 2 * i,
+                    2 * (this.runCount - i - 1));
+            this.runCount--;
+        }
+
+        /**
+         * Returns this container, or one of another kind if this one now has
+         * too many runs.
+         *
+         * @return the container holding the values of this
+         */
+        private Container fitted() {
+            Container result = this;
+            if (this.runCount > MAX_RUNS) {
+                long[] words = new long[BITMAP_WORDS];
+                this.orInto(words);
+                result = fromWords(words);
+            }
+            return result;
+        }
+
+        @Override
+        boolean contains(int x) {
+            int i = this.find(x);
+            return i >= 0 && x <= this.end(i);
+        }
+
+        @Override
+        Container add(int x) {
+            int i = this.find(x);
+            boolean joinsNext = i + 1 < this.runCount
+                    && this.start(i + 1) == x + 1;
+            if (i >= 0 && this.end(i) == x - 1) {
+                if (joinsNext) {
+                    // x fills the gap between runs i and i + 1
+                    this.setRun(i, this.start(i), this.end(i + 1));
+                    this.deleteRun(i + 1);
+                } else {
+                    this.setRun(i, this.start(i), x);
+                }
+            } else if (joinsNext) {
+                this.setRun(i + 1, x, this.end(i + 1));
+            } else {
+                this.insertRun(i + 1, x, x);
+            }
+            this.cardinality++;
+            return this.fitted();
+        }
+
+        @Override
+        Container remove(int x) {
+            int i = this.find(x);
+            int start = this.start(i);
+            int end = this.end(i);
+            if (start == end) {
+                this.deleteRun(i);
+            } else if (x == start) {
+                this.setRun(i, start + 1, end);
+            } else if (x == end) {
+                this.setRun(i, start, end - 1);
+            } else {
+                this.setRun(i, start, x - 1);
+                this.insertRun(i + 1, x + 1, end);
+            }
+            this.cardinality--;
+            return this.fitted();
+        }
+
+        @Override
+        int cardinality() {
+            return this.cardinality;
+        }
+
+        @Override
+        int nextValue(int from) {
+            int i = this.find(from);
+            int next = -1;
+            if (i >= 0 && from <= this.end(i)) {
+                next = from;
+            } else if (i + 1 < this.runCount) {
+                next = this.start(i + 1);
+            }
+            return next;
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (int i = 0; i < this.runCount; i++) {
+                setRange(words, this.start(i), this.end(i) + 1);
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16L + 2L * this.runs.length;
+        }
+
+        @Override
+        int check() {
+            assert this.runCount <= MAX_RUNS : ""
+                    + "Violation of: [a run container has at most MAX_RUNS"
+                    + " runs]";
+            int count = 0;
+            for (int i = 0; i < this.runCount; i++) {
+                assert this.end(i) < CHUNK_VALUES : ""
+                        + "Violation of: [a run container has runs in"
+                        + " increasing order]";
+                assert i == 0 || this.end(i - 1) + 1 < this.start(i) : ""
+                        + "Violation of: [a run container has runs in"
+                        + " increasing order, none adjacent to the next]";
+                count += this.end(i) - this.start(i) + 1;
+            }
+            assert count == this.cardinality : ""
+                    + "Violation of: [a run container counts its values"
+                    + " correctly]";
+            return count;
+        }
+
+    }
+
+    /**
+     * High 16 bits of the elements of each chunk, flipped so they compare in
+     * the order of the elements, in {@code keys[0, chunks)}.
+     */
+    private char[] keys;
+
+    /**
+     * Container of each chunk, in {@code containers[0, chunks)}.
+     */
+    private Container[] containers;
+
+    /**
+     * Number of chunks.
+     */
+    private int chunks;
+
+    /**
+     * Number of elements.
+     */
+    private int size;
+
+    /**
+     * Returns the key of the chunk of {@code x}.
+     *
+     * @param x
+     *            the element
+     * @return KEY(x)
+     */
+    private static char key(int x) {
+        return (char) ((x ^ Integer.MIN_VALUE) >>> 16);
+    }
+
+    /**
+     * Returns the low value of {@code x} in its chunk.
+     *
+     * @param x
+     *            the element
+     * @return LOW(x)
+     */
+    private static int low(int x) {
+        return x & (CHUNK_VALUES - 1);
+    }
+
+    /**
+     * Returns the element with key {@code key} and low value {@code low}.
+     *
+     * @param key
+     *            the key of the chunk
+     * @param low
+     *            the low value
+     * @return the element x with KEY(x) = key and LOW(x) = low
+     */
+    private static int element(char key, int low) {
+        return ((key << 16) | low) ^ Integer.MIN_VALUE;
+    }
+
+    /**
+     * Sets bits {@code from} to {@code to - 1} of {@code words}.
+     *
+     * @param words
+     *            the bitmap
+     * @param from
+     *            the first bit to set
+     * @param to
+     *            one past the last bit to set
+     * @updates words
+     * @requires 0 <= from < to <= 64 * |words|
+     */
+    private static void setRange(long[] words, int from, int to) {
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            words[first] |= firstMask & lastMask;
+        } else {
+            words[first] |= firstMask;
+            for (int i = first + 1; i < last; i++) {
+                words[i] = -1L;
+            }
+            words[last] |= lastMask;
+        }
+    }
+
+    /**
+     * Returns the index of the first bit set in {@code words} at or after
+     * {@code from}, or -1 if there is none.
+     *
+     * @param words
+     *            the bitmap
+     * @param from
+     *            the first bit to look at
+     * @return the index of the bit, or -1
+     */
+    private static int nextSetBit(long[] words, int from) {
+        int i = from >>> 6;
+        int next = -1;
+        if (i < words.length) {
+            long w = words[i] & (-1L << from);
+            while (w == 0 && i + 1 < words.length) {
+                i++;
+                w = words[i];
+            }
+            if (w != 0) {
+                next = i * Long.SIZE + Long.numberOfTrailingZeros(w);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Returns the index of the first bit clear in {@code words} at or after
+     * {@code from}, or {@code 64 * |words|} if there is none.
+     *
+     * @param words
+     *            the bitmap
+     * @param from
+     *            the first bit to look at
+     * @return the index of the bit
+     */
+    private static int nextClearBit(long[] words, int from) {
+        int i = from >>> 6;
+        int next = words.length * Long.SIZE;
+        if (i < words.length) {
+            long w = ~words[i] & (-1L << from);
+            while (w == 0 && i + 1 < words.length) {
+                i++;
+                w = ~words[i];
+            }
+            if (w != 0) {
+                next = i * Long.SIZE + Long.numberOfTrailingZeros(w);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Returns an array container with the values of {@code words}.
+     *
+     * @param words
+     *            the bitmap
+     * @param cardinality
+     *            the number of bits set in words
+     * @return the container
+     */
+    private static ArrayContainer arrayFromWords(long[] words,
+            int cardinality) {
+        char[] values = new char[cardinality];
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            long w = words[i];
+            while (w != 0) {
+                values[count] = (char) (i * Long.SIZE
+                        + Long.numberOfTrailingZeros(w));
+                count++;
+                w &= w - 1;
+            }
+        }
+        return new ArrayContainer(values, count);
+    }
+
+    /**
+     * Returns the smallest container holding the values of {@code words}, or
+     * null if there are none.
+     *
+     * @param words
+     *            the bitmap, which is not kept
+     * @return the container, or null
+     */
+    private static Container fromWords(long[] words) {
+        /*
+         * A run starts at every set bit whose lower neighbour is clear
+         */
+        int cardinality = 0;
+        int runCount = 0;
+        long carry = 0;
+        for (long w : words) {
+            cardinality += Long.bitCount(w);
+            runCount += Long.bitCount(w & ~((w << 1) | carry));
+            carry = w >>> (Long.SIZE - 1);
+        }
+        Container result = null;
+        long runBytes = 4L * runCount;
+        if (cardinality == 0) {
+            result = null;
+        } else if (cardinality <= MAX_ARRAY && 2L * cardinality <= runBytes) {
+            result = arrayFromWords(words, cardinality);
+        } else if (cardinality > MAX_ARRAY
+                && (long) Long.BYTES * BITMAP_WORDS <= runBytes) {
+            result = new BitmapContainer(words.clone(), cardinality);
+        } else {
+            char[] runs = new char[2 * runCount];
+            RunContainer container = new RunContainer(runs, 0, cardinality);
+            int start = nextSetBit(words, 0);
+            while (start >= 0) {
+                int end = nextClearBit(words, start);
+                container.setRun(container.runCount, start, end - 1);
+                container.runCount++;
+                start = nextSetBit(words, end);
+            }
+            result = container;
+        }
+        return result;
+    }
+
+    /**
+     * Returns an array container, or a bitmap container if there are more
+     * than {@code MAX_ARRAY}, with the values in {@code values[0, count)}, or
+     * null if there are none.
+     *
+     * @param values
+     *            the values, increasing, which are not kept
+     * @param count
+     *            the number of values
+     * @return the container, or null
+     */
+    private static Container fromValues(char[] values, int count) {
+        Container result = null;
+        if (count > MAX_ARRAY) {
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < count; i++) {
+                int v = values[i];
+                words[v >>> 6] |= 1L << v;
+            }
+            result = new BitmapContainer(words, count);
+        } else if (count > 0) {
+            result = new ArrayContainer(Arrays.copyOf(values, count), count);
+        }
+        return result;
+    }
+
+    /**
+     * Combines two containers of the same chunk, putting the container of
+     * their union in {@code result[0]} and that of their intersection, or
+     * null if it is empty, in {@code result[1]}.
+     *
+     * @param a
+     *            one container, which may be reused
+     * @param b
+     *            the other container, which may be reused
+     * @param wordsA
+     *            a bitmap of BITMAP_WORDS words, for scratch
+     * @param wordsB
+     *            another bitmap of BITMAP_WORDS words, for scratch
+     * @param result
+     *            array receiving the two containers
+     * @updates wordsA, wordsB, result
+     * @requires |result| = 2
+     * @ensures <pre>
+     * [result[0] holds the values of #a union #b]  and
+     * [result[1] holds the values of #a intersection #b, or is null if
+     *  there are none]
+     * </pre>
+     */
+    private static void unite(Container a, Container b, long[] wordsA,
+            long[] wordsB, Container[] result) {
+        if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+            ArrayContainer x = (ArrayContainer) a;
+            ArrayContainer y = (ArrayContainer) b;
+            char[] union = new char[x.count + y.count];
+            char[] common = new char[Math.min(x.count, y.count)];
+            int unionCount = 0;
+            int commonCount = 0;
+            int i = 0;
+            int j = 0;
+            while (i < x.count || j < y.count) {
+                if (j == y.count
+                        || (i < x.count && x.values[i] < y.values[j])) {
+                    union[unionCount] = x.values[i];
+                    i++;
+                } else if (i == x.count || y.values[j] < x.values[i]) {
+                    union[unionCount] = y.values[j];
+                    j++;
+                } else {
+                    union[unionCount] = x.values[i];
+                    common[commonCount] = x.values[i];
+                    commonCount++;
+                    i++;
+                    j++;
+                }
+                unionCount++;
+            }
+            result[0] = fromValues(union, unionCount);
+            result[1] = fromValues(common, commonCount);
+        } else if (a instanceof ArrayContainer
+                && b instanceof BitmapContainer) {
+            addArrayToBitmap((ArrayContainer) a, (BitmapContainer) b, result);
+        } else if (a instanceof BitmapContainer
+                && b instanceof ArrayContainer) {
+            addArrayToBitmap((ArrayContainer) b, (BitmapContainer) a, result);
+        } else {
+            Arrays.fill(wordsA, 0);
+            Arrays.fill(wordsB, 0);
+            a.orInto(wordsA);
+            b.orInto(wordsB);
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long x = wordsA[w];
+                wordsA[w] = x | wordsB[w];
+                wordsB[w] = x & wordsB[w];
+            }
+            result[0] = fromWords(wordsA);
+            result[1] = fromWords(wordsB);
+        }
+    }
+
+    /**
+     * Adds the values of an array container to a bitmap container, looking
+     * each one up in the bitmap, and puts the bitmap container in
+     * {@code result[0]} and the container of the values that were already in
+     * it, or null if there are none, in {@code result[1]}.
+     *
+     * @param array
+     *            the array container
+     * @param bitmap
+     *            the bitmap container, which is updated
+     * @param result
+     *            array receiving the two containers
+     * @updates bitmap, result
+     * @requires |result| = 2
+     * @ensures <pre>
+     * bitmap = #bitmap union array  and  result[0] = bitmap  and
+     * [result[1] holds the values of array intersection #bitmap, or is
+     *  null if there are none]
+     * </pre>
+     */
+    private static void addArrayToBitmap(ArrayContainer array,
+            BitmapContainer bitmap, Container[] result) {
+        char[] common = new char[array.count];
+        int commonCount = 0;
+        for (int i = 0; i < array.count; i++) {
+            int v = array.values[i];
+            if (bitmap.contains(v)) {
+                common[commonCount] = (char) v;
+                commonCount++;
+            } else {
+                bitmap.add(v);
+            }
+        }
+        result[0] = bitmap;
+        result[1] = fromValues(common, commonCount);
+    }
+
+    /**
+     * Splits container {@code a} by the values of container {@code b} of the
+     * same chunk, putting the container of the values of {@code a} not in
+     * {@code b} in {@code result[0]} and that of the values in both in
+     * {@code result[1]}, either null if it would be empty.
+     *
+     * @param a
+     *            the container to split, which may be reused
+     * @param b
+     *            the container to split by, which is not changed
+     * @param wordsA
+     *            a bitmap of BITMAP_WORDS words, for scratch
+     * @param wordsB
+     *            another bitmap of BITMAP_WORDS words, for scratch
+     * @param result
+     *            array receiving the two containers
+     * @updates wordsA, wordsB, result
+     * @requires |result| = 2
+     * @ensures <pre>
+     * [result[0] holds the values of #a \ b, or is null if there are none]  and
+     * [result[1] holds the values of #a intersection b, or is null if there
+     *  are none]
+     * </pre>
+     */
+    private static void subtract(Container a, Container b, long[] wordsA,
+            long[] wordsB, Container[] result) {
+        if (a instanceof ArrayContainer) {
+            /*
+             * Each value of a is looked up in b: by a sorted merge if b is
+             * an array too, and otherwise by b's own lookup
+             */
+            ArrayContainer x = (ArrayContainer) a;
+            char[] difference = new char[x.count];
+            char[] common = new char[x.count];
+            int differenceCount = 0;
+            int commonCount = 0;
+            if (b instanceof ArrayContainer) {
+                ArrayContainer y = (ArrayContainer) b;
+                int j = 0;
+                for (int i = 0; i < x.count; i++) {
+                    while (j < y.count && y.values[j] < x.values[i]) {
+                        j++;
+                    }
+                    if (j < y.count && y.values[j] == x.values[i]) {
+                        common[commonCount] = x.values[i];
+                        commonCount++;
+                        j++;
+                    } else {
+                        difference[differenceCount] = x.values[i];
+                        differenceCount++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < x.count; i++) {
+                    if (b.contains(x.values[i])) {
+                        common[commonCount] = x.values[i];
+                        commonCount++;
+                    } else {
+                        difference[differenceCount] = x.values[i];
+                        differenceCount++;
+                    }
+                }
+            }
+            result[0] = fromValues(difference, differenceCount);
+            result[1] = fromValues(common, commonCount);
+        } else if (a instanceof BitmapContainer
+                && b instanceof ArrayContainer) {
+            BitmapContainer x = (BitmapContainer) a;
+            ArrayContainer y = (ArrayContainer) b;
+            char[] common = new char[y.count];
+            int commonCount = 0;
+            for (int j = 0; j < y.count; j++) {
+                int v = y.values[j];
+                if (x.contains(v)) {
+                    x.words[v >>> 6] &= ~(1L << v);
+                    x.cardinality--;
+                    common[commonCount] = (char) v;
+                    commonCount++;
+                }
+            }
+            Container rest = x;
+            if (x.cardinality <= MAX_ARRAY) {
+                rest = null;
+                if (x.cardinality > 0) {
+                    rest = arrayFromWords(x.words, x.cardinality);
+                }
+            }
+            result[0] = rest;
+            result[1] = fromValues(common, commonCount);
+        } else {
+            Arrays.fill(wordsA, 0);
+            Arrays.fill(wordsB, 0);
+            a.orInto(wordsA);
+            b.orInto(wordsB);
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long x = wordsA[w];
+                wordsA[w] = x & ~wordsB[w];
+                wordsB[w] = x & wordsB[w];
+            }
+            result[0] = fromWords(wordsA);
+            result[1] = fromWords(wordsB);
+        }
+    }
+
+    /**
+     * Returns the index of the chunk with key {@code key}, or
+     * {@code -(insertion point) - 1} if there is none.
+     *
+     * @param key
+     *            the key
+     * @return the index, as for Arrays.binarySearch
+     */
+    private int findChunk(char key) {
+        return Arrays.binarySearch(this.keys, 0, this.chunks, key);
+    }
+
+    /**
+     * Inserts a chunk with key {@code key} and container {@code container}
+     * at index {@code i}.
+     *
+     * @param i
+     *            the index of the new chunk
+     * @param key
+     *            the key
+     * @param container
+     *            the container
+     */
+    private void insertChunk(int i, char key, Container container) {
+        if (this.chunks == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, 2 * this.chunks);
+            this.containers = Arrays.copyOf(this.containers, 2 * this.chunks);
+        }
+        System.arraycopy(this.keys, i, this.keys, i + 1, this.chunks - i);
+        System.arraycopy(this.containers, i, this.containers, i + 1,
+                this.chunks - i);
+        this.keys[i] = key;
+        this.containers[i] = container;
+        this.chunks++;
+    }
+
+    /**
+     * Deletes the chunk at index {@code i}.
+     *
+     * @param i
+     *            the index of the chunk
+     */
+    private void deleteChunk(int i) {
+        System.arraycopy(this.keys, i + 1, this.keys, i, this.chunks - i - 1);
+        System.arraycopy(this.containers, i + 1, this.containers, i,
+                this.chunks - i - 1);
+        this.chunks--;
+        this.containers[this.chunks] = null;
+    }
+
+    /**
+     * Replaces the chunks of {@code this} with the first {@code count} of
+     * {@code newKeys} and {@code newContainers}, and recounts the size.
+     *
+     * @param newKeys
+     *            the keys
+     * @param newContainers
+     *            the containers
+     * @param count
+     *            the number of chunks
+     */
+    private void setChunks(char[] newKeys, Container[] newContainers,
+            int count) {
+        this.keys = newKeys;
+        this.containers = newContainers;
+        this.chunks = count;
+        this.size = 0;
+        for (int i = 0; i < count; i++) {
+            this.size += newContainers[i].cardinality();
+        }
+        if (this.keys.length == 0) {
+            this.keys = new char[INITIAL_CHUNKS];
+            this.containers = new Container[INITIAL_CHUNKS];
+        }
+    }
+
+    /**
+     * Checks that the convention holds for the current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     */
+    private boolean conventionHolds() {
+        assert this.keys.length == this.containers.length : ""
+                + "Violation of: |$this.keys| = |$this.containers|";
+        int count = 0;
+        for (int i = 0; i < this.chunks; i++) {
+            assert i == 0 || this.keys[i - 1] < this.keys[i] : ""
+                    + "Violation of: [$this.keys[0, $this.chunks) is strictly"
+                    + " increasing]";
+            int cardinality = this.containers[i].check();
+            assert cardinality > 0 : ""
+                    + "Violation of: [each container holds at least one value]";
+            count += cardinality;
+        }
+        assert count == this.size : ""
+                + "Violation of: $this.size = [sum of the numbers of values in"
+                + " the containers]";
+        return true;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.keys = new char[INITIAL_CHUNKS];
+        this.containers = new Container[INITIAL_CHUNKS];
+        this.chunks = 0;
+        this.size = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set7() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Set<Integer> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void transferFrom(Set<Integer> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set7 : ""
+                + "Violation of: source is of dynamic type Set7";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case.
+         */
+        Set7 localSource = (Set7) source;
+        this.keys = localSource.keys;
+        this.containers = localSource.containers;
+        this.chunks = localSource.chunks;
+        this.size = localSource.size;
+        localSource.createNewRep();
+        assert this.conventionHolds();
+        assert localSource.conventionHolds();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(Integer x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        char key = key(x);
+        int i = this.findChunk(key);
+        if (i >= 0) {
+            this.containers[i] = this.containers[i].add(low(x));
+        } else {
+            char[] values = { (char) low(x) };
+            this.insertChunk(-i - 1, key, new ArrayContainer(values, 1));
+        }
+        this.size++;
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final Integer remove(Integer x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        int i = this.findChunk(key(x));
+        this.containers[i] = this.containers[i].remove(low(x));
+        if (this.containers[i].cardinality() == 0) {
+            this.deleteChunk(i);
+        }
+        this.size--;
+        assert this.conventionHolds();
+        return x;
+    }
+
+    @Override
+    public final Integer removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        // Removes the smallest element, as Set3a does
+        int smallest = element(this.keys[0],
+                this.containers[0].nextValue(0));
+        return this.remove(smallest);
+    }
+
+    @Override
+    public final boolean contains(Integer x) {
+        assert x != null : "Violation of: x is not null";
+
+        int i = this.findChunk(key(x));
+        return i >= 0 && this.containers[i].contains(low(x));
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<Integer> iterator() {
+        return new Set7Iterator();
+    }
+
+    /*
+     * Bulk set-algebra methods -----------------------------------------------
+     */
+
+    @Override
+    public final void add(Set<Integer> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        if (s instanceof Set7) {
+            /*
+             * Merges the chunks in key order: a chunk in only one set goes to
+             * this (and leaves s); a chunk in both is combined by unite, with
+             * the union staying in this and the intersection in s
+             */
+            Set7 other = (Set7) s;
+            int capacity = this.chunks + other.chunks;
+            char[] unionKeys = new char[capacity];
+            Container[] union = new Container[capacity];
+            char[] commonKeys = new char[Math.min(this.chunks, other.chunks)];
+            Container[] common = new Container[commonKeys.length];
+            int unionCount = 0;
+            int commonCount = 0;
+            long[] a = new long[BITMAP_WORDS];
+            long[] b = new long[BITMAP_WORDS];
+            Container[] pair = new Container[2];
+            int i = 0;
+            int j = 0;
+            while (i < this.chunks || j < other.chunks) {
+                if (j == other.chunks
+                        || (i < this.chunks && this.keys[i] < other.keys[j])) {
+                    unionKeys[unionCount] = this.keys[i];
+                    union[unionCount] = this.containers[i];
+                    i++;
+                } else if (i == this.chunks || other.keys[j] < this.keys[i]) {
+                    unionKeys[unionCount] = other.keys[j];
+                    union[unionCount] = other.containers[j];
+                    j++;
+                } else {
+                    unite(this.containers[i], other.containers[j], a, b, pair);
+                    unionKeys[unionCount] = this.keys[i];
+                    union[unionCount] = pair[0];
+                    Container both = pair[1];
+                    if (both != null) {
+                        commonKeys[commonCount] = this.keys[i];
+                        common[commonCount] = both;
+                        commonCount++;
+                    }
+                    i++;
+                    j++;
+                }
+                unionCount++;
+            }
+            this.setChunks(unionKeys, union, unionCount);
+            other.setChunks(commonKeys, common, commonCount);
+            assert this.conventionHolds();
+            assert other.conventionHolds();
+        } else {
+            super.add(s);
+        }
+    }
+
+    @Override
+    public final Set<Integer> remove(Set<Integer> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        Set<Integer> result;
+        if (s instanceof Set7) {
+            /*
+             * A chunk only in this stays; a chunk in both is split by
+             * subtract into the difference, which stays, and the
+             * intersection, which goes to the result
+             */
+            Set7 other = (Set7) s;
+            char[] differenceKeys = new char[this.chunks];
+            Container[] difference = new Container[this.chunks];
+            char[] commonKeys = new char[Math.min(this.chunks, other.chunks)];
+            Container[] common = new Container[commonKeys.length];
+            int differenceCount = 0;
+            int commonCount = 0;
+            long[] a = new long[BITMAP_WORDS];
+            long[] b = new long[BITMAP_WORDS];
+            Container[] pair = new Container[2];
+            int j = 0;
+            for (int i = 0; i < this.chunks; i++) {
+                while (j < other.chunks && other.keys[j] < this.keys[i]) {
+                    j++;
+                }
+                Container rest = this.containers[i];
+                if (j < other.chunks && other.keys[j] == this.keys[i]) {
+                    subtract(this.containers[i], other.containers[j], a, b,
+                            pair);
+                    rest = pair[0];
+                    Container both = pair[1];
+                    if (both != null) {
+                        commonKeys[commonCount] = this.keys[i];
+                        common[commonCount] = both;
+                        commonCount++;
+                    }
+                }
+                if (rest != null) {
+                    differenceKeys[differenceCount] = this.keys[i];
+                    difference[differenceCount] = rest;
+                    differenceCount++;
+                }
+            }
+            this.setChunks(differenceKeys, difference, differenceCount);
+            Set7 intersection = (Set7) this.newInstance();
+            intersection.setChunks(commonKeys, common, commonCount);
+            assert this.conventionHolds();
+            assert intersection.conventionHolds();
+            result = intersection;
+        } else {
+            result = super.remove(s);
+        }
+        return result;
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Converts every container of {@code this} to the kind that takes the
+     * least memory for its values; worth calling once a set built by
+     * {@code add} has long runs of consecutive elements.
+     *
+     * @ensures this = #this
+     */
+    public final void runOptimize() {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < this.chunks; i++) {
+            Arrays.fill(words, 0);
+            this.containers[i].orInto(words);
+            this.containers[i] = fromWords(words);
+        }
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Reports the approximate number of bytes the representation of
+     * {@code this} takes.
+     *
+     * @return the size in bytes
+     */
+    public final long sizeInBytes() {
+        long bytes = 2L * this.keys.length + 4L * this.containers.length;
+        for (int i = 0; i < this.chunks; i++) {
+            bytes += this.containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set7}; visits
+     * elements in increasing order.
+     */
+    private final class Set7Iterator implements Iterator<Integer> {
+
+        /**
+         * Index of the chunk of the next element.
+         */
+        private int chunk;
+
+        /**
+         * Low value of the next element, or -1 if there is none.
+         */
+        private int next;
+
+        /**
+         * No-argument constructor.
+         */
+        private Set7Iterator() {
+            this.chunk = 0;
+            this.next = -1;
+            if (Set7.this.chunks > 0) {
+                this.next = Set7.this.containers[0].nextValue(0);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next >= 0;
+        }
+
+        @Override
+        public Integer next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            int x = element(Set7.this.keys[this.chunk], this.next);
+            if (this.next + 1 < CHUNK_VALUES) {
+                this.next = Set7.this.containers[this.chunk]
+                        .nextValue(this.next + 1);
+            } else {
+                this.next = -1;
+            }
+            if (this.next < 0 && this.chunk + 1 < Set7.this.chunks) {
+                this.chunk++;
+                this.next = Set7.this.containers[this.chunk].nextValue(0);
+            }
+            return x;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code BloomFilteredSet}.
+ */
+public class BloomFilteredSetTest extends SetTest {
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new BloomFilteredSet<String>();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Test for contains misses on a large set, which the filter should answer
+     * almost always by itself.
+     */
+    @Test
+    public final void testContainsMissesFiltered() {
+        /*
+         * Set up variables
+         */
+        final int count = 5000;
+        final double maxRate = 0.05;
+        BloomFilteredSet<String> s = new BloomFilteredSet<String>();
+        for (int i = 0; i < count; i++) {
+            s.add(String.format(Locale.ROOT, "in%05d", i));
+        }
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < count; i++) {
+            assertTrue(s.contains(String.format(Locale.ROOT, "in%05d", i)));
+            assertFalse(s.contains(String.format(Locale.ROOT, "out%05d", i)));
+        }
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(count, s.size());
+        assertTrue(s.observedFalsePositiveRate() < maxRate);
+        assertTrue(s.expectedFalsePositiveRate() < maxRate);
+        assertTrue(s.filterBytes() > 0);
+    }
+
+    /**
+     * Test for contains after many removes, which make the filter stale.
+     */
+    @Test
+    public final void testContainsAfterRemoves() {
+        /*
+         * Set up variables
+         */
+        final int count = 1000;
+        BloomFilteredSet<String> s = new BloomFilteredSet<String>();
+        Set<String> sExpected = this.constructorRef();
+        for (int i = 0; i < count; i++) {
+            String x = String.format(Locale.ROOT, "%04d", i);
+            s.add(x);
+            if (i % 4 == 0) {
+                sExpected.add(x);
+            }
+        }
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < count; i++) {
+            if (i % 4 != 0) {
+                s.remove(String.format(Locale.ROOT, "%04d", i));
+            }
+        }
+        /*
+         * Assert that values of variables match expectations
+         */
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 4 == 0,
+                    s.contains(String.format(Locale.ROOT, "%04d", i)));
+        }
+        assertEquals(sExpected, s);
+    }
+
+}
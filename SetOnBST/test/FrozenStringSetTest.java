@@ -0,0 +1,149 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import components.set.Set;
+
+/**
+ * JUnit test fixture for {@code FrozenStringSet}.
+ *
+ * @authors Charles Sirichoktanasup, Dylan Jian
+ *
+ */
+public class FrozenStringSetTest {
+
+    /**
+     * Freezes {@code s} into a temporary file, loads it, and returns the
+     * result.
+     *
+     * @param s
+     *            the set to freeze
+     * @return the loaded set
+     * @throws IOException
+     *             if the temporary file cannot be written or read
+     */
+    private static FrozenStringSet freezeAndLoad(Set<String> s)
+            throws IOException {
+        Path file = Files.createTempFile("FrozenStringSetTest", ".fss");
+        try {
+            FrozenStringSet.freeze(s, file);
+            return FrozenStringSet.load(file);
+        } finally {
+            /*
+             * Deleted at exit rather than now: some platforms cannot delete a
+             * file that is still mapped
+             */
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Test for an empty set.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be written or read
+     */
+    @Test
+    public final void testEmpty() throws IOException {
+        FrozenStringSet f = freezeAndLoad(new Set3a<String>());
+        assertEquals(0, f.size());
+        assertTrue(!f.contains(""));
+        assertTrue(!f.contains("a"));
+    }
+
+    /**
+     * Test for a few words, including prefixes of each other and non-ASCII
+     * strings.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be written or read
+     */
+    @Test
+    public final void testWords() throws IOException {
+        /*
+         * Set up variables
+         */
+        String[] words = { "", "a", "an", "and", "andromeda01", "andromeda02",
+                "the", "\u00E9t\u00E9", "\u65E5\u672C", "\uD83D\uDE00" };
+        String[] others = { "b", "andromeda0", "andromeda03", "andromeda011",
+                "th", "them", "ete", "\u65E5", "\u0000" };
+        Set3a<String> s = new Set3a<String>();
+        for (String w : words) {
+            s.add(w);
+        }
+        /*
+         * Call method under test
+         */
+        FrozenStringSet f = freezeAndLoad(s);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(words.length, f.size());
+        for (String w : words) {
+            assertTrue(f.contains(w));
+        }
+        for (String w : others) {
+            assertTrue(!f.contains(w));
+        }
+        assertEquals(words.length, s.size());
+    }
+
+    /**
+     * Test for many words, which fill several levels of the layout.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be written or read
+     */
+    @Test
+    public final void testMany() throws IOException {
+        /*
+         * Set up variables
+         */
+        final int count = 1000;
+        Set3a<String> s = new Set3a<String>();
+        for (int i = 0; i < count; i += 2) {
+            s.add(String.format(Locale.ROOT, "word%04d", i));
+        }
+        /*
+         * Call method under test
+         */
+        FrozenStringSet f = freezeAndLoad(s);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(count / 2, f.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 2 == 0,
+                    f.contains(String.format(Locale.ROOT, "word%04d", i)));
+        }
+    }
+
+    /**
+     * Test for load of a file that freeze did not write.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be written
+     */
+    @Test
+    public final void testLoadNotFrozen() throws IOException {
+        Path file = Files.createTempFile("FrozenStringSetTest", ".txt");
+        Files.write(file, "not a frozen set".getBytes(StandardCharsets.UTF_8));
+        boolean rejected = false;
+        try {
+            FrozenStringSet.load(file);
+        } catch (IOException e) {
+            rejected = true;
+        } finally {
+            Files.delete(file);
+        }
+        assertTrue(rejected);
+    }
+
+}
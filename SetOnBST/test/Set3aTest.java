@@ -1,3 +1,18 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.Test;
+
 import components.set.Set;
 import components.set.Set1L;
 
@@ -16,4 +31,637 @@ public class Set3aTest extends SetTest {
         return new Set1L<String>();
     }
 
+    /**
+     * Creates and returns a {@code Set<String>} of the given set's dynamic
+     * type with the given entries.
+     *
+     * @param set
+     *            an empty set of the type to create
+     * @param args
+     *            the entries for the set
+     * @return the given set, with the entries added
+     * @requires [every entry in args is unique]
+     * @ensures fill = [entries in args]
+     */
+    private static Set<String> fill(Set<String> set, String... args) {
+        for (String s : args) {
+            set.add(s);
+        }
+        return set;
+    }
+
+    /**
+     * Test for add(Set) with both sets of type {@code Set3a}.
+     */
+    @Test
+    public final void testAddSet() {
+        /*
+         * Set up variables
+         */
+        Set<String> s = fill(this.constructorTest(), "b", "d", "f", "h");
+        Set<String> t = fill(this.constructorTest(), "a", "d", "h", "z");
+        Set<String> sExpected = fill(this.constructorRef(), "a", "b", "d",
+                "f", "h", "z");
+        Set<String> tExpected = fill(this.constructorRef(), "d", "h");
+        /*
+         * Call method under test
+         */
+        s.add(t);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(tExpected, t);
+        assertEquals("a", s.removeAny());
+    }
+
+    /**
+     * Test for add(Set) with an argument of another {@code Set} type.
+     */
+    @Test
+    public final void testAddSetOtherType() {
+        /*
+         * Set up variables
+         */
+        Set<String> s = fill(this.constructorTest(), "m", "c");
+        Set<String> t = fill(this.constructorRef(), "x", "c", "a");
+        Set<String> sExpected = fill(this.constructorRef(), "a", "c", "m",
+                "x");
+        Set<String> tExpected = fill(this.constructorRef(), "c");
+        /*
+         * Call method under test
+         */
+        s.add(t);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(tExpected, t);
+    }
+
+    /**
+     * Test for remove(Set).
+     */
+    @Test
+    public final void testRemoveSet() {
+        /*
+         * Set up variables
+         */
+        Set<String> s = fill(this.constructorTest(), "b", "d", "f", "h");
+        Set<String> t = fill(this.constructorTest(), "a", "d", "h");
+        Set<String> sExpected = fill(this.constructorRef(), "b", "f");
+        Set<String> tExpected = fill(this.constructorRef(), "a", "d", "h");
+        Set<String> rExpected = fill(this.constructorRef(), "d", "h");
+        /*
+         * Call method under test
+         */
+        Set<String> r = s.remove(t);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(tExpected, t);
+        assertEquals(rExpected, r);
+    }
+
+    /**
+     * Test for remove(Set) with an empty argument.
+     */
+    @Test
+    public final void testRemoveEmptySet() {
+        Set<String> s = fill(this.constructorTest(), "b", "d");
+        Set<String> r = s.remove(this.constructorTest());
+        assertEquals(fill(this.constructorRef(), "b", "d"), s);
+        assertEquals(0, r.size());
+    }
+
+    /**
+     * Test for add(Set) with an argument small enough to be added one element
+     * at a time, with a run of new elements between the same two nodes.
+     */
+    @Test
+    public final void testAddSmallSet() {
+        /*
+         * Set up variables
+         */
+        final int count = 1000;
+        String[] labels = every(numbered(2 * count), 2);
+        String[] run = { "0002a", "0002b", "0002c", "0002d", "0002e", "0002f",
+            "0002g" };
+        Set3a<String> s = new Set3a<String>();
+        s.buildFrom(labels);
+        int balancedHeight = s.height();
+        Set<String> t = fill(this.constructorRef(), run);
+        t.add("0004");
+        Set<String> sExpected = fill(fill(this.constructorRef(), labels), run);
+        Set<String> tExpected = fill(this.constructorRef(), "0004");
+        s.startProfiling();
+        /*
+         * Call method under test
+         */
+        s.add(t);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(tExpected, t);
+        assertEquals(run.length, s.calls(Set3a.Operation.ADD));
+        /*
+         * Added in increasing order, the run would make a chain of 7
+         */
+        final int runHeight = 4;
+        assertTrue(s.height() <= balancedHeight + runHeight);
+    }
+
+    /**
+     * Test for remove(Set) with an argument small enough to be removed one
+     * element at a time.
+     */
+    @Test
+    public final void testRemoveSmallSet() {
+        /*
+         * Set up variables
+         */
+        final int count = 1000;
+        String[] labels = numbered(count);
+        Set3a<String> s = new Set3a<String>();
+        s.buildFrom(labels);
+        Set<String> t = fill(this.constructorTest(), "0005", "0500", "0999",
+                "x");
+        Set<String> sExpected = fill(this.constructorRef(), labels);
+        Set<String> rExpected = sExpected.remove(fill(this.constructorRef(),
+                "0005", "0500", "0999"));
+        Set<String> tExpected = fill(this.constructorRef(), "0005", "0500",
+                "0999", "x");
+        s.startProfiling();
+        /*
+         * Call method under test
+         */
+        Set<String> r = s.remove(t);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(tExpected, t);
+        assertEquals(rExpected, r);
+        assertEquals(rExpected.size(), s.calls(Set3a.Operation.REMOVE));
+    }
+
+    /**
+     * Test for add(Set) with an argument of comparable size, which merges and
+     * rebuilds instead.
+     */
+    @Test
+    public final void testAddComparableSetRebuilds() {
+        /*
+         * Set up variables
+         */
+        final int count = 16;
+        String[] labels = numbered(2 * count);
+        Set3a<String> s = new Set3a<String>();
+        s.buildFrom(every(labels, 2));
+        Set<String> t = fill(this.constructorTest(),
+                Arrays.copyOfRange(labels, 0, count));
+        s.startProfiling();
+        /*
+         * Call method under test
+         */
+        s.add(t);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(count + count / 2, s.size());
+        assertEquals(count / 2, t.size());
+        assertEquals(0, s.calls(Set3a.Operation.ADD));
+        assertEquals(5, s.height());
+    }
+
+    /**
+     * Test for profiling of add(Set) and remove(Set): with small arguments
+     * they count the kernel calls they make on this, and when they rebuild
+     * the tree they count nothing.
+     */
+    @Test
+    public final void testProfilingBulkCalls() {
+        /*
+         * Set up variables
+         */
+        final int count = 1000;
+        String[] labels = numbered(2 * count);
+        Set3a<String> s = new Set3a<String>();
+        s.buildFrom(every(labels, 2));
+        Set<String> t = fill(this.constructorTest(), labels[1], labels[3]);
+        Set<String> u = fill(this.constructorTest(), labels[0], labels[2]);
+        Set<String> w = fill(this.constructorTest(), labels);
+        s.startProfiling();
+        /*
+         * Call methods under test and assert that values of variables match
+         * expectations: the small arguments are taken one element at a time
+         */
+        s.add(t);
+        Set<String> r = s.remove(u);
+        assertEquals(2, r.size());
+        assertEquals(2, s.calls(Set3a.Operation.ADD));
+        assertEquals(2, s.calls(Set3a.Operation.REMOVE));
+        long contains = s.calls(Set3a.Operation.CONTAINS);
+        final int looked = 4;
+        assertTrue(contains >= looked);
+        /*
+         * The large argument is merged and the tree rebuilt
+         */
+        s.add(w);
+        assertEquals(2 * count, s.size());
+        assertEquals(2, s.calls(Set3a.Operation.ADD));
+        assertEquals(2, s.calls(Set3a.Operation.REMOVE));
+        assertEquals(contains, s.calls(Set3a.Operation.CONTAINS));
+    }
+
+    /**
+     * Test for buildFrom with elements in increasing order, replacing
+     * existing elements.
+     */
+    @Test
+    public final void testBuildFromSorted() {
+        /*
+         * Set up variables
+         */
+        Set3a<String> s = new Set3a<String>();
+        s.add("q");
+        String[] elements = { "a", "c", "e", "g", "i", "k", "m" };
+        Set<String> sExpected = fill(this.constructorRef(), elements);
+        /*
+         * Call method under test
+         */
+        s.buildFrom(elements);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals("a", s.removeAny());
+    }
+
+    /**
+     * Test for buildFrom with elements out of order, which are not changed.
+     */
+    @Test
+    public final void testBuildFromUnsorted() {
+        /*
+         * Set up variables
+         */
+        Set3a<String> s = new Set3a<String>();
+        String[] elements = { "m", "c", "x", "a" };
+        Set<String> sExpected = fill(this.constructorRef(), elements);
+        /*
+         * Call method under test
+         */
+        s.buildFrom(elements);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertArrayEquals(new String[] { "m", "c", "x", "a" }, elements);
+        s.add("b");
+        assertEquals(5, s.size());
+    }
+
+    /**
+     * Test for buildFrom with no elements.
+     */
+    @Test
+    public final void testBuildFromEmpty() {
+        Set3a<String> s = new Set3a<String>();
+        s.add("q");
+        s.buildFrom(new String[0]);
+        assertEquals(0, s.size());
+    }
+
+    /**
+     * Returns the labels "0000", "0001", ... for the numbers in [0, count).
+     *
+     * @param count
+     *            the number of labels
+     * @return the labels, in increasing order
+     */
+    private static String[] numbered(int count) {
+        String[] labels = new String[count];
+        for (int i = 0; i < count; i++) {
+            labels[i] = String.format(Locale.ROOT, "%04d", i);
+        }
+        return labels;
+    }
+
+    /**
+     * Splits {@code spliterator} as far as it goes, and adds what each part
+     * reports to {@code out}, in encounter order.
+     *
+     * @param spliterator
+     *            the spliterator to split
+     * @param out
+     *            the list to add to
+     */
+    private static void splitAll(Spliterator<String> spliterator,
+            List<String> out) {
+        Spliterator<String> prefix = spliterator.trySplit();
+        if (prefix != null) {
+            splitAll(prefix, out);
+            splitAll(spliterator, out);
+        } else {
+            spliterator.forEachRemaining(out::add);
+        }
+    }
+
+    /**
+     * Test for spliterator, splitting down to single labels.
+     */
+    @Test
+    public final void testSpliteratorSplitAll() {
+        /*
+         * Set up variables
+         */
+        final int count = 200;
+        Set3a<String> s = new Set3a<String>();
+        String[] labels = numbered(count);
+        s.buildFrom(labels);
+        List<String> visited = new ArrayList<>();
+        /*
+         * Call method under test
+         */
+        Spliterator<String> spliterator = s.spliterator();
+        assertEquals(count, spliterator.getExactSizeIfKnown());
+        splitAll(spliterator, visited);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(List.of(labels), visited);
+        assertEquals(count, s.size());
+    }
+
+    /**
+     * Test for spliterator with a parallel stream over an unbalanced tree.
+     */
+    @Test
+    public final void testSpliteratorParallelStream() {
+        /*
+         * Set up variables
+         */
+        final int count = 300;
+        final int step = 7;
+        Set3a<String> s = new Set3a<String>();
+        String[] labels = numbered(count);
+        for (int i = 0; i < count; i++) {
+            s.add(labels[(i * step) % count]);
+        }
+        /*
+         * Call method under test
+         */
+        List<String> visited = StreamSupport.stream(s.spliterator(), true)
+                .collect(Collectors.toList());
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(List.of(labels), visited);
+    }
+
+    /**
+     * Returns the labels at the multiples of {@code step} in {@code labels}.
+     *
+     * @param labels
+     *            the labels
+     * @param step
+     *            the distance between the labels returned
+     * @return the labels, in the same order
+     */
+    private static String[] every(String[] labels, int step) {
+        String[] chosen = new String[(labels.length + step - 1) / step];
+        for (int i = 0; i < chosen.length; i++) {
+            chosen[i] = labels[i * step];
+        }
+        return chosen;
+    }
+
+    /**
+     * Test for containsEach with keys both in and not in an unbalanced tree.
+     */
+    @Test
+    public final void testContainsEach() {
+        /*
+         * Set up variables
+         */
+        final int count = 100;
+        final int step = 7;
+        Set3a<String> s = new Set3a<String>();
+        String[] labels = numbered(count);
+        for (int i = 0; i < count; i++) {
+            String label = labels[(i * step) % count];
+            if ((i * step) % 2 == 0) {
+                s.add(label);
+            }
+        }
+        /*
+         * Call method under test
+         */
+        boolean[] found = s.containsEach(labels);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(count, found.length);
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 2 == 0, found[i]);
+        }
+        assertEquals(count / 2, s.size());
+    }
+
+    /**
+     * Test for addAll with keys both in and not in the tree, and between and
+     * beyond its labels.
+     */
+    @Test
+    public final void testAddAll() {
+        /*
+         * Set up variables
+         */
+        final int count = 100;
+        final int step = 3;
+        Set3a<String> s = new Set3a<String>();
+        String[] labels = numbered(count);
+        String[] labelsIn = every(labels, step);
+        s.buildFrom(labelsIn);
+        Set<String> sExpected = fill(this.constructorRef(), labels);
+        /*
+         * Call method under test
+         */
+        int added = s.addAll(labels);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(count - labelsIn.length, added);
+        assertEquals(sExpected, s);
+        assertEquals(List.of(labels),
+                StreamSupport.stream(s.spliterator(), false)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Test for addAll into an empty tree.
+     */
+    @Test
+    public final void testAddAllEmpty() {
+        /*
+         * Set up variables
+         */
+        Set3a<String> s = new Set3a<String>();
+        Set<String> sExpected = fill(this.constructorRef(), "a", "b", "c");
+        /*
+         * Call method under test
+         */
+        int added = s.addAll(new String[] { "a", "b", "c" });
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(2 + 1, added);
+        assertEquals(sExpected, s);
+    }
+
+    /**
+     * Test for addAll and containsEach in a fork-join pool, with batches
+     * large enough to be split.
+     */
+    @Test
+    public final void testAddAllParallel() {
+        /*
+         * Set up variables
+         */
+        final int count = 5000;
+        final int step = 3;
+        Set3a<String> s = new Set3a<String>();
+        String[] labels = numbered(count);
+        String[] labelsIn = every(labels, step);
+        s.buildFrom(labelsIn);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        /*
+         * Call method under test
+         */
+        int added = s.addAll(labels, pool);
+        boolean[] found = s.containsEach(labels, pool);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(count - labelsIn.length, added);
+        assertEquals(count, s.size());
+        for (boolean f : found) {
+            assertTrue(f);
+        }
+        assertEquals(List.of(labels),
+                StreamSupport.stream(s.spliterator(), false)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Test for height and averageDepth, on a perfectly balanced tree and on
+     * a degenerate one.
+     */
+    @Test
+    public final void testHeightAndAverageDepth() {
+        /*
+         * Set up variables
+         */
+        final int count = 7;
+        final double delta = 1e-9;
+        Set3a<String> balanced = new Set3a<String>();
+        Set3a<String> degenerate = new Set3a<String>();
+        String[] labels = numbered(count);
+        balanced.buildFrom(labels);
+        for (String label : labels) {
+            degenerate.add(label);
+        }
+        /*
+         * Call method under test and assert that values of variables match
+         * expectations
+         */
+        assertEquals(2 + 1, balanced.height());
+        assertEquals((0 + 1 * 2 + 2 * 4) / (double) count,
+                balanced.averageDepth(), delta);
+        assertEquals(count, degenerate.height());
+        assertEquals((count - 1) / 2.0, degenerate.averageDepth(), delta);
+        assertEquals(0, new Set3a<String>().height());
+    }
+
+    /**
+     * Test for profiling of contains, add and remove.
+     */
+    @Test
+    public final void testProfiling() {
+        /*
+         * Set up variables
+         */
+        final int count = 7;
+        final double delta = 1e-9;
+        Set3a<String> s = new Set3a<String>();
+        String[] labels = numbered(count + 1);
+        s.buildFrom(Arrays.copyOf(labels, count));
+        s.startProfiling();
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < count; i++) {
+            s.contains(labels[i]);
+        }
+        long containsCalls = s.calls(Set3a.Operation.CONTAINS);
+        double containsVisited = s
+                .nodesVisitedPerCall(Set3a.Operation.CONTAINS);
+        s.add(labels[count]);
+        s.remove(labels[count]);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(count, containsCalls);
+        assertEquals((1 + 2 * 2 + (2 + 1) * 4) / (double) count,
+                containsVisited, delta);
+        assertEquals(0.0,
+                s.nodesAllocatedPerCall(Set3a.Operation.CONTAINS), delta);
+        assertEquals(1, s.calls(Set3a.Operation.ADD));
+        assertEquals(2 + 1, s.nodesVisitedPerCall(Set3a.Operation.ADD), delta);
+        assertEquals(1.0, s.nodesAllocatedPerCall(Set3a.Operation.ADD),
+                delta);
+        assertEquals(1, s.calls(Set3a.Operation.REMOVE));
+        assertEquals(2 + 2, s.nodesVisitedPerCall(Set3a.Operation.REMOVE),
+                delta);
+        assertEquals(0.0, s.nodesAllocatedPerCall(Set3a.Operation.REMOVE),
+                delta);
+    }
+
+    /**
+     * Test for the height alarm, which sorted additions set off and a
+     * balanced tree does not.
+     */
+    @Test
+    public final void testHeightAlarm() {
+        /*
+         * Set up variables
+         */
+        final int count = 1000;
+        final int firstAlarmSize = 6;
+        final double c = 2;
+        Set3a<String> sorted = new Set3a<String>();
+        Set3a<String> balanced = new Set3a<String>();
+        String[] labels = numbered(count);
+        balanced.buildFrom(every(labels, 2));
+        List<Integer> alarmSizes = new ArrayList<>();
+        sorted.setHeightAlarm(c, 1, set -> alarmSizes.add(set.size()));
+        balanced.setHeightAlarm(c, 1, set -> alarmSizes.add(-set.size()));
+        /*
+         * Call method under test
+         */
+        for (int i = 1; i < count; i += 2) {
+            balanced.add(labels[i]);
+        }
+        for (int i = 0; i < firstAlarmSize; i++) {
+            sorted.add(labels[i]);
+        }
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(List.of(firstAlarmSize), alarmSizes);
+    }
+
 }
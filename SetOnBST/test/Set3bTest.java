@@ -0,0 +1,145 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code Set3b}.
+ */
+public class Set3bTest extends SetTest {
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set3b<String>();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Test for add and remove of elements in increasing order, which needs
+     * rebalancing after almost every operation.
+     */
+    @Test
+    public final void testAddRemoveSorted() {
+        /*
+         * Set up variables
+         */
+        final int count = 200;
+        Set<String> s = this.constructorTest();
+        Set<String> sExpected = this.constructorRef();
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < count; i++) {
+            String x = String.format(Locale.ROOT, "%04d", i);
+            s.add(x);
+            sExpected.add(x);
+        }
+        for (int i = 0; i < count; i += 2) {
+            String x = String.format(Locale.ROOT, "%04d", i);
+            assertEquals(x, s.remove(x));
+            sExpected.remove(x);
+        }
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals("0001", s.removeAny());
+    }
+
+    /**
+     * Creates and returns a {@code Set3b<String>} with the given entries.
+     *
+     * @param args
+     *            the entries for the set
+     * @return the constructed set
+     * @requires [every entry in args is unique]
+     * @ensures createFromArgs = [entries in args]
+     */
+    private static Set3b<String> createFromArgs(String... args) {
+        Set3b<String> set = new Set3b<String>();
+        for (String s : args) {
+            set.add(s);
+        }
+        return set;
+    }
+
+    /**
+     * Test for first and last.
+     */
+    @Test
+    public final void testFirstLast() {
+        Set3b<String> s = createFromArgs("m", "c", "x", "a", "q");
+        assertEquals("a", s.first());
+        assertEquals("x", s.last());
+        assertEquals(5, s.size());
+    }
+
+    /**
+     * Test for floor and ceiling, with bounds in, between, and outside the
+     * elements.
+     */
+    @Test
+    public final void testFloorCeiling() {
+        Set3b<String> s = createFromArgs("d", "b", "f", "h");
+        assertEquals("d", s.floor("d"));
+        assertEquals("d", s.floor("e"));
+        assertEquals("h", s.floor("z"));
+        assertNull(s.floor("a"));
+        assertEquals("d", s.ceiling("d"));
+        assertEquals("f", s.ceiling("e"));
+        assertEquals("b", s.ceiling("a"));
+        assertNull(s.ceiling("i"));
+    }
+
+    /**
+     * Test for rank and select on every position of a larger set.
+     */
+    @Test
+    public final void testRankSelect() {
+        final int count = 50;
+        Set3b<String> s = new Set3b<String>();
+        for (int i = count - 1; i >= 0; i--) {
+            s.add(String.format(Locale.ROOT, "%03d", 2 * i));
+        }
+        for (int i = 0; i < count; i++) {
+            String x = String.format(Locale.ROOT, "%03d", 2 * i);
+            assertEquals(x, s.select(i));
+            assertEquals(i, s.rank(x));
+            assertEquals(i + 1,
+                    s.rank(String.format(Locale.ROOT, "%03d", 2 * i + 1)));
+        }
+        assertEquals(0, s.rank(""));
+    }
+
+    /**
+     * Test for rangeIterator over a range with bounds that are, and are not,
+     * elements.
+     */
+    @Test
+    public final void testRangeIterator() {
+        Set3b<String> s = createFromArgs("d", "b", "f", "h", "a", "c", "g");
+        List<String> seen = new ArrayList<>();
+        Iterator<String> it = s.rangeIterator("c", "g");
+        while (it.hasNext()) {
+            seen.add(it.next());
+        }
+        assertEquals(Arrays.asList("c", "d", "f"), seen);
+        assertEquals(false, s.rangeIterator("i", "z").hasNext());
+        assertEquals(false, s.rangeIterator("c", "c").hasNext());
+        assertEquals(7, s.size());
+    }
+
+}
@@ -0,0 +1,132 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code Set3d}.
+ */
+public class Set3dTest extends SetTest {
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set3d<String>();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Creates and returns a {@code Set3d<String>} with the given entries.
+     *
+     * @param args
+     *            the entries for the set
+     * @return the constructed set
+     */
+    private Set3d<String> createFromArgs(String... args) {
+        Set3d<String> set = new Set3d<String>();
+        for (String s : args) {
+            set.add(s);
+        }
+        return set;
+    }
+
+    /**
+     * Creates and returns a reference {@code Set<String>} with the given
+     * entries.
+     *
+     * @param args
+     *            the entries for the set
+     * @return the constructed set
+     */
+    private Set<String> createFromArgsRef(String... args) {
+        Set<String> set = this.constructorRef();
+        for (String s : args) {
+            set.add(s);
+        }
+        return set;
+    }
+
+    /**
+     * Test for snapshot, then changes to the original.
+     */
+    @Test
+    public final void testSnapshotThenUpdateOriginal() {
+        /*
+         * Set up variables
+         */
+        Set3d<String> s = this.createFromArgs("d", "b", "f", "a", "c", "e");
+        Set<String> sExpected = this.createFromArgsRef("a", "c", "e", "g");
+        Set<String> snapshotExpected = this.createFromArgsRef("a", "b", "c",
+                "d", "e", "f");
+        /*
+         * Call method under test
+         */
+        Set3d<String> snapshot = s.snapshot();
+        s.remove("b");
+        s.remove("d");
+        s.remove("f");
+        s.add("g");
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(snapshotExpected, snapshot);
+    }
+
+    /**
+     * Test for snapshot, then changes to the snapshot.
+     */
+    @Test
+    public final void testSnapshotThenUpdateSnapshot() {
+        /*
+         * Set up variables
+         */
+        Set3d<String> s = this.createFromArgs("d", "b", "f", "a", "c", "e");
+        Set<String> sExpected = this.createFromArgsRef("a", "b", "c", "d",
+                "e", "f");
+        Set<String> snapshotExpected = this.createFromArgsRef("b", "c", "e",
+                "x");
+        /*
+         * Call method under test
+         */
+        Set3d<String> snapshot = s.snapshot();
+        snapshot.removeAny();
+        snapshot.remove("d");
+        snapshot.remove("f");
+        snapshot.add("x");
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(snapshotExpected, snapshot);
+    }
+
+    /**
+     * Test for updating {@code this} while iterating over it.
+     */
+    @Test
+    public final void testUpdateWhileIterating() {
+        /*
+         * Set up variables
+         */
+        Set3d<String> s = this.createFromArgs("b", "a", "c");
+        Set<String> sExpected = this.createFromArgsRef("a2", "b2", "c2");
+        /*
+         * Call method under test
+         */
+        for (String x : s) {
+            s.remove(x);
+            s.add(x + "2");
+        }
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+    }
+
+}
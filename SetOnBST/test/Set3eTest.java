@@ -0,0 +1,73 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code Set3e}.
+ */
+public class Set3eTest extends SetTest {
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set3e<String>();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Test for adds in increasing order, which make a path, then repeated
+     * lookups of a few hot elements, misses, and removes.
+     */
+    @Test
+    public final void testSkewedLookups() {
+        /*
+         * Set up variables
+         */
+        final int count = 2000;
+        final int hot = 5;
+        final int rounds = 100;
+        Set<String> s = this.constructorTest();
+        Set<String> sExpected = this.constructorRef();
+        for (int i = 0; i < count; i++) {
+            String x = String.format(Locale.ROOT, "%05d", i);
+            s.add(x);
+            if (i % 2 == 0) {
+                sExpected.add(x);
+            }
+        }
+        /*
+         * Call method under test
+         */
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < hot; i++) {
+                assertTrue(s.contains(String.format(Locale.ROOT, "%05d",
+                        i * (count / hot))));
+            }
+            assertTrue(!s.contains(String.format(Locale.ROOT, "%05d",
+                    count + round)));
+        }
+        for (int i = 1; i < count; i += 2) {
+            String x = String.format(Locale.ROOT, "%05d", i);
+            assertEquals(x, s.remove(x));
+        }
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        while (s.size() > 0) {
+            String x = s.removeAny();
+            assertEquals(x, sExpected.remove(x));
+        }
+        assertEquals(0, sExpected.size());
+    }
+
+}
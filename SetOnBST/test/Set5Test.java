@@ -0,0 +1,62 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code Set5}.
+ */
+public class Set5Test extends SetTest {
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set5<String>();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Test for many adds and removes in a scattered order, which split, merge,
+     * and borrow between nodes on several levels.
+     */
+    @Test
+    public final void testAddRemoveMany() {
+        /*
+         * Set up variables
+         */
+        final int count = 1500;
+        final int step = 37;
+        Set<String> s = this.constructorTest();
+        Set<String> sExpected = this.constructorRef();
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < count; i++) {
+            String x = String.format(Locale.ROOT, "%04d", (i * step) % count);
+            s.add(x);
+            sExpected.add(x);
+        }
+        for (int i = 0; i < count; i += 3) {
+            String x = String.format(Locale.ROOT, "%04d", (i * step) % count);
+            assertEquals(x, s.remove(x));
+            sExpected.remove(x);
+        }
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        while (s.size() > 0) {
+            String x = s.removeAny();
+            assertEquals(x, sExpected.remove(x));
+        }
+        assertEquals(0, sExpected.size());
+    }
+
+}
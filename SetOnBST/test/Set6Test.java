@@ -0,0 +1,143 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code Set6}.
+ */
+public class Set6Test extends SetTest {
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set6<String>();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Runs {@code task} on {@code threads} threads at once, passing each its
+     * index, and waits for all of them.
+     *
+     * @param threads
+     *            the number of threads
+     * @param task
+     *            the work of one thread
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private static void runConcurrently(int threads, IntConsumer task)
+            throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            workers[t] = new Thread(() -> task.accept(index));
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    /**
+     * Test for addIfAbsent from several threads with overlapping ranges.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    @Test
+    public final void testAddIfAbsentConcurrent() throws InterruptedException {
+        /*
+         * Set up variables
+         */
+        final int threads = 4;
+        final int perThread = 2000;
+        final int overlap = 2;
+        Set6<String> s = new Set6<>();
+        Set<String> sExpected = this.constructorRef();
+        final int distinct = perThread * (threads + overlap - 1) / overlap;
+        for (int i = 0; i < distinct; i++) {
+            sExpected.add(String.format(Locale.ROOT, "%05d", i));
+        }
+        AtomicInteger added = new AtomicInteger();
+        /*
+         * Call method under test
+         */
+        runConcurrently(threads, t -> {
+            int start = t * perThread / overlap;
+            for (int i = start; i < start + perThread; i++) {
+                if (s.addIfAbsent(String.format(Locale.ROOT, "%05d", i))) {
+                    added.incrementAndGet();
+                }
+            }
+        });
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected.size(), added.get());
+        /*
+         * Moving the set checks its convention, now that no thread uses it
+         */
+        Set6<String> sMoved = new Set6<>();
+        sMoved.transferFrom(s);
+        assertEquals(sExpected, sMoved);
+    }
+
+    /**
+     * Test for removeIfPresent from several threads, each removing every
+     * element, while another set of elements stays.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    @Test
+    public final void testRemoveIfPresentConcurrent()
+            throws InterruptedException {
+        /*
+         * Set up variables
+         */
+        final int threads = 4;
+        final int count = 2000;
+        Set6<String> s = new Set6<>();
+        Set<String> sExpected = this.constructorRef();
+        for (int i = 0; i < count; i++) {
+            String x = String.format(Locale.ROOT, "%05d", i);
+            s.add(x);
+            if (i % 2 == 1) {
+                sExpected.add(x);
+            }
+        }
+        AtomicInteger removed = new AtomicInteger();
+        /*
+         * Call method under test
+         */
+        runConcurrently(threads, t -> {
+            for (int i = 0; i < count; i += 2) {
+                String x = String.format(Locale.ROOT, "%05d", i);
+                if (s.removeIfPresent(x) != null) {
+                    removed.incrementAndGet();
+                }
+            }
+        });
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(count / 2, removed.get());
+        /*
+         * Moving the set checks its convention, now that no thread uses it
+         */
+        Set6<String> sMoved = new Set6<>();
+        sMoved.transferFrom(s);
+        assertEquals(sExpected, sMoved);
+    }
+
+}
@@ -0,0 +1,485 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * JUnit test fixture for {@code Set7}, the {@code Set<Integer>} on compressed
+ * bitmaps.
+ *
+ * @authors Charles Sirichoktanasup, Dylan Jian
+ *
+ */
+public class Set7Test {
+
+    /**
+     * Creates and returns a {@code Set7} with the given entries.
+     *
+     * @param args
+     *            the entries for the set
+     * @return the constructed set
+     * @requires [every entry in args is unique]
+     * @ensures createFromArgsTest = [entries in args]
+     */
+    private static Set7 createFromArgsTest(int... args) {
+        Set7 set = new Set7();
+        for (int x : args) {
+            set.add(x);
+        }
+        return set;
+    }
+
+    /**
+     * Creates and returns a reference {@code Set<Integer>} with the given
+     * entries.
+     *
+     * @param args
+     *            the entries for the set
+     * @return the constructed set
+     * @requires [every entry in args is unique]
+     * @ensures createFromArgsRef = [entries in args]
+     */
+    private static Set<Integer> createFromArgsRef(int... args) {
+        Set<Integer> set = new Set1L<Integer>();
+        for (int x : args) {
+            set.add(x);
+        }
+        return set;
+    }
+
+    /**
+     * Adds to {@code s} the multiples of {@code step} in [{@code from},
+     * {@code to}).
+     *
+     * @param s
+     *            the set to add to
+     * @param from
+     *            the first element
+     * @param to
+     *            the bound on the elements
+     * @param step
+     *            the distance between elements
+     * @updates s
+     * @requires [no element added is in s]
+     */
+    private static void addRange(Set<Integer> s, int from, int to, int step) {
+        for (int x = from; x < to; x += step) {
+            s.add(x);
+        }
+    }
+
+    /**
+     * Returns a reference {@code Set<Integer>} with the elements of
+     * {@code elements}.
+     *
+     * @param elements
+     *            the elements for the set
+     * @return the constructed set
+     * @ensures refOf = elements
+     */
+    private static Set<Integer> refOf(java.util.Set<Integer> elements) {
+        Set<Integer> set = new Set1L<Integer>();
+        for (int x : elements) {
+            set.add(x);
+        }
+        return set;
+    }
+
+    /**
+     * Adds the multiples of {@code step} in [{@code from}, {@code to}) to
+     * both {@code s} and {@code elements}.
+     *
+     * @param s
+     *            the set to add to
+     * @param elements
+     *            the same elements, to compute expected results with
+     * @param from
+     *            the first element
+     * @param to
+     *            the bound on the elements
+     * @param step
+     *            the distance between elements
+     * @updates s, elements
+     * @requires [no element added is in s]
+     */
+    private static void addRange(Set7 s, java.util.Set<Integer> elements,
+            int from, int to, int step) {
+        for (int x = from; x < to; x += step) {
+            s.add(x);
+            elements.add(x);
+        }
+    }
+
+    /**
+     * Fills {@code s} and {@code t}, and the matching {@code sElements} and
+     * {@code tElements}, with one chunk for each pair of container kinds:
+     * two arrays whose union does not fit an array, two arrays whose union
+     * does, an array and a bitmap both ways round, runs and a bitmap, and an
+     * array and runs.
+     *
+     * @param s
+     *            one set
+     * @param sElements
+     *            the elements of s
+     * @param t
+     *            the other set
+     * @param tElements
+     *            the elements of t
+     * @updates s, sElements, t, tElements
+     * @requires s, sElements, t and tElements are empty
+     */
+    private static void fillMixedKinds(Set7 s, java.util.Set<Integer> sElements,
+            Set7 t, java.util.Set<Integer> tElements) {
+        final int chunk = 1 << 16;
+        /*
+         * runOptimize makes the run containers; add then makes arrays, which
+         * turn into bitmaps past 4096 values
+         */
+        addRange(s, sElements, 4 * chunk, 4 * chunk + 8000, 1);
+        addRange(t, tElements, 5 * chunk + 1000, 5 * chunk + 2000, 1);
+        s.runOptimize();
+        t.runOptimize();
+        addRange(s, sElements, 0, 6000, 2);
+        addRange(t, tElements, 0, 9000, 3);
+        addRange(s, sElements, chunk, chunk + 200, 2);
+        addRange(t, tElements, chunk + 100, chunk + 300, 2);
+        addRange(s, sElements, 2 * chunk, 2 * chunk + 5000, 5);
+        addRange(t, tElements, 2 * chunk, 2 * chunk + 6000, 1);
+        addRange(s, sElements, 3 * chunk, 3 * chunk + 6000, 1);
+        addRange(t, tElements, 3 * chunk, 3 * chunk + 10000, 3);
+        addRange(t, tElements, 4 * chunk + 7000, 4 * chunk + 16000, 1);
+        addRange(s, sElements, 5 * chunk, 5 * chunk + 3000, 3);
+    }
+
+    /**
+     * Test for empty constructor.
+     */
+    @Test
+    public final void constructorTestEmpty() {
+        Set7 s = createFromArgsTest();
+        Set<Integer> sExpected = createFromArgsRef();
+        assertEquals(sExpected, s);
+        assertEquals(0, s.size());
+    }
+
+    /**
+     * Test for add with elements of both signs, in several chunks.
+     */
+    @Test
+    public final void addTestMixedSigns() {
+        /*
+         * Set up variables
+         */
+        Set7 s = createFromArgsTest(0, -1, 65536);
+        Set<Integer> sExpected = createFromArgsRef(0, -1, 65536,
+                Integer.MIN_VALUE, Integer.MAX_VALUE, -65537);
+        /*
+         * Call method under test
+         */
+        s.add(Integer.MIN_VALUE);
+        s.add(Integer.MAX_VALUE);
+        s.add(-65537);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertTrue(s.contains(Integer.MIN_VALUE));
+        assertTrue(!s.contains(1));
+    }
+
+    /**
+     * Test for remove, down to an empty chunk.
+     */
+    @Test
+    public final void removeTest() {
+        /*
+         * Set up variables
+         */
+        Set7 s = createFromArgsTest(5, 70000, -3);
+        Set<Integer> sExpected = createFromArgsRef(5, -3);
+        /*
+         * Call method under test
+         */
+        Integer x = s.remove(70000);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(Integer.valueOf(70000), x);
+        assertEquals(sExpected, s);
+    }
+
+    /**
+     * Test for removeAny, which removes the smallest element.
+     */
+    @Test
+    public final void removeAnyTest() {
+        /*
+         * Set up variables
+         */
+        Set7 s = createFromArgsTest(7, Integer.MIN_VALUE, -2);
+        Set<Integer> sExpected = createFromArgsRef(7, -2);
+        /*
+         * Call method under test
+         */
+        Integer x = s.removeAny();
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(Integer.valueOf(Integer.MIN_VALUE), x);
+        assertEquals(sExpected, s);
+    }
+
+    /**
+     * Test for iterator, which visits elements in increasing order.
+     */
+    @Test
+    public final void iteratorTestOrder() {
+        /*
+         * Set up variables
+         */
+        int[] sorted = { Integer.MIN_VALUE, -70000, -1, 0, 1, 65535, 65536,
+                Integer.MAX_VALUE };
+        Set7 s = createFromArgsTest(65536, 0, Integer.MAX_VALUE, -1, 65535,
+                Integer.MIN_VALUE, 1, -70000);
+        /*
+         * Call method under test
+         */
+        Iterator<Integer> it = s.iterator();
+        /*
+         * Assert that values of variables match expectations
+         */
+        for (int x : sorted) {
+            assertTrue(it.hasNext());
+            assertEquals(Integer.valueOf(x), it.next());
+        }
+        assertTrue(!it.hasNext());
+    }
+
+    /**
+     * Test for add and remove on a dense chunk, which changes between array
+     * and bitmap containers.
+     */
+    @Test
+    public final void addRemoveTestDense() {
+        /*
+         * Set up variables
+         */
+        final int count = 10000;
+        Set7 s = new Set7();
+        Set<Integer> sExpected = new Set1L<Integer>();
+        addRange(s, 0, count, 1);
+        addRange(sExpected, 0, count, 2);
+        /*
+         * Call method under test
+         */
+        for (int x = 1; x < count; x += 2) {
+            s.remove(x);
+        }
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+    }
+
+    /**
+     * Test for runOptimize, then add and remove on the run container.
+     */
+    @Test
+    public final void runOptimizeTest() {
+        /*
+         * Set up variables
+         */
+        final int count = 70000;
+        final long maxBytes = 200;
+        Set7 s = new Set7();
+        Set<Integer> sExpected = new Set1L<Integer>();
+        addRange(s, 0, count, 1);
+        addRange(sExpected, 0, count, 1);
+        sExpected.remove(100);
+        sExpected.remove(0);
+        sExpected.add(-1);
+        /*
+         * Call method under test
+         */
+        s.runOptimize();
+        long bytes = s.sizeInBytes();
+        s.remove(100);
+        s.remove(0);
+        s.add(-1);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertTrue(bytes < maxBytes);
+        assertEquals(sExpected, s);
+    }
+
+    /**
+     * Test for add(Set) with another {@code Set7}, over sparse, dense and
+     * disjoint chunks.
+     */
+    @Test
+    public final void addSetTest() {
+        /*
+         * Set up variables
+         */
+        Set7 s = new Set7();
+        Set7 t = new Set7();
+        Set<Integer> sExpected = new Set1L<Integer>();
+        Set<Integer> tExpected = new Set1L<Integer>();
+        addRange(s, 0, 20000, 2);
+        addRange(t, 0, 20000, 3);
+        addRange(s, 100000, 100010, 1);
+        addRange(t, -300000, -299990, 1);
+        addRange(sExpected, 0, 20000, 1);
+        for (int x = 0; x < 20000; x++) {
+            if (x % 6 == 0) {
+                tExpected.add(x);
+            } else if (x % 2 != 0 && x % 3 != 0) {
+                sExpected.remove(x);
+            }
+        }
+        addRange(sExpected, 100000, 100010, 1);
+        addRange(sExpected, -300000, -299990, 1);
+        /*
+         * Call method under test
+         */
+        s.add(t);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(tExpected, t);
+    }
+
+    /**
+     * Test for add(Set) with a {@code Set} of another type.
+     */
+    @Test
+    public final void addSetTestOtherType() {
+        /*
+         * Set up variables
+         */
+        Set7 s = createFromArgsTest(1, 2, 3);
+        Set<Integer> t = createFromArgsRef(3, 4, 70000);
+        Set<Integer> sExpected = createFromArgsRef(1, 2, 3, 4, 70000);
+        Set<Integer> tExpected = createFromArgsRef(3);
+        /*
+         * Call method under test
+         */
+        s.add(t);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(tExpected, t);
+    }
+
+    /**
+     * Test for remove(Set) with another {@code Set7}.
+     */
+    @Test
+    public final void removeSetTest() {
+        /*
+         * Set up variables
+         */
+        Set7 s = new Set7();
+        Set7 t = new Set7();
+        Set<Integer> sExpected = new Set1L<Integer>();
+        Set<Integer> tExpected = new Set1L<Integer>();
+        Set<Integer> rExpected = new Set1L<Integer>();
+        addRange(s, 0, 20000, 1);
+        addRange(s, 200000, 200005, 1);
+        addRange(t, 10000, 30000, 1);
+        addRange(tExpected, 10000, 30000, 1);
+        addRange(sExpected, 0, 10000, 1);
+        addRange(sExpected, 200000, 200005, 1);
+        addRange(rExpected, 10000, 20000, 1);
+        /*
+         * Call method under test
+         */
+        Set<Integer> r = s.remove(t);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(tExpected, t);
+        assertEquals(rExpected, r);
+    }
+
+    /**
+     * Test for add(Set) with another {@code Set7}, over every pair of
+     * container kinds.
+     */
+    @Test
+    public final void addSetTestMixedKinds() {
+        /*
+         * Set up variables
+         */
+        Set7 s = new Set7();
+        Set7 t = new Set7();
+        java.util.Set<Integer> sElements = new TreeSet<Integer>();
+        java.util.Set<Integer> tElements = new TreeSet<Integer>();
+        fillMixedKinds(s, sElements, t, tElements);
+        java.util.Set<Integer> common = new TreeSet<Integer>(sElements);
+        common.retainAll(tElements);
+        sElements.addAll(tElements);
+        Set<Integer> sExpected = refOf(sElements);
+        Set<Integer> tExpected = refOf(common);
+        /*
+         * Call method under test
+         */
+        s.add(t);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(tExpected, t);
+    }
+
+    /**
+     * Test for remove(Set) with another {@code Set7}, over every pair of
+     * container kinds, each way round.
+     */
+    @Test
+    public final void removeSetTestMixedKinds() {
+        /*
+         * Set up variables
+         */
+        Set7 s = new Set7();
+        Set7 t = new Set7();
+        java.util.Set<Integer> sElements = new TreeSet<Integer>();
+        java.util.Set<Integer> tElements = new TreeSet<Integer>();
+        fillMixedKinds(s, sElements, t, tElements);
+        Set7 u = new Set7();
+        Set7 v = new Set7();
+        fillMixedKinds(u, new TreeSet<Integer>(), v, new TreeSet<Integer>());
+        java.util.Set<Integer> common = new TreeSet<Integer>(sElements);
+        common.retainAll(tElements);
+        java.util.Set<Integer> sOnly = new TreeSet<Integer>(sElements);
+        sOnly.removeAll(tElements);
+        java.util.Set<Integer> tOnly = new TreeSet<Integer>(tElements);
+        tOnly.removeAll(sElements);
+        Set<Integer> rExpected = refOf(common);
+        /*
+         * Call method under test
+         */
+        Set<Integer> r = s.remove(t);
+        Set<Integer> q = v.remove(u);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(refOf(sOnly), s);
+        assertEquals(refOf(tElements), t);
+        assertEquals(rExpected, r);
+        assertEquals(refOf(tOnly), v);
+        assertEquals(refOf(sElements), u);
+        assertEquals(rExpected, q);
+    }
+
+}
@@ -0,0 +1,519 @@
+package benchmarks;
+
+import java.lang.reflect.Constructor;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import components.sortingmachine.SortingMachine;
+import components.sortingmachine.SortingMachine1L;
+import components.sortingmachine.SortingMachine2;
+import components.sortingmachine.SortingMachine3;
+
+/**
+ * JMH benchmarks of the {@code SortingMachine} kernel operations for
+ * {@code SortingMachine5a} against the library sorting machines and a
+ * {@code java.util.PriorityQueue} baseline.
+ *
+ * <p>
+ * Each benchmark is parameterized by the implementation, the number of
+ * entries, the order in which they are added and the cost of the comparator.
+ * {@code add} and {@code sort} build their own machines and are timed on
+ * average; {@code changeToExtractionMode} and {@code removeFirst} use up the
+ * machine they are given, so each gets a freshly filled one per iteration and
+ * is timed as a single shot.
+ * </p>
+ *
+ * <p>
+ * JMH does not accept benchmarks in the unnamed package, and classes in a
+ * named package cannot refer to {@code SortingMachine5a} in the unnamed one,
+ * so this class is in {@code benchmarks} and constructs
+ * {@code SortingMachine5a} reflectively. There is no build file; with the OSU
+ * {@code components.jar} and the JMH jars ({@code jmh-core},
+ * {@code jmh-generator-annprocess}, {@code jopt-simple} and
+ * {@code commons-math3}) in {@code lib}, compile with the JMH annotation
+ * processor and run the JMH main class from this project's directory, adding
+ * the GC profiler to report allocation, e.g.
+ * </p>
+ *
+ * <pre>
+ * javac -cp "lib/*" -d bench-classes src/*.java bench/benchmarks/*.java
+ * java -cp "bench-classes:lib/*" org.openjdk.jmh.Main \
+ *     SortingMachineBenchmark -prof gc
+ * java -cp "bench-classes:lib/*" org.openjdk.jmh.Main \
+ *     SortingMachineBenchmark -p n=1000000 -p input=RANDOM
+ * </pre>
+ *
+ * <p>
+ * The quadratic library machines are very slow at the largest sizes; narrow
+ * the run with {@code -p implementation=...} when needed.
+ * </p>
+ *
+ * @author Put your name here
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class SortingMachineBenchmark {
+
+    /**
+     * Machine implementations under test.
+     */
+    public enum Implementation {
+        /**
+         * {@code SortingMachine5a} (heapsort).
+         */
+        SORTING_MACHINE_5A,
+        /**
+         * Library {@code SortingMachine1L}.
+         */
+        SORTING_MACHINE_1L,
+        /**
+         * Library {@code SortingMachine2}.
+         */
+        SORTING_MACHINE_2,
+        /**
+         * Library {@code SortingMachine3}.
+         */
+        SORTING_MACHINE_3,
+        /**
+         * {@code java.util.PriorityQueue}, as a baseline.
+         */
+        PRIORITY_QUEUE
+    }
+
+    /**
+     * Orders in which entries are added.
+     */
+    public enum Input {
+        /**
+         * Uniformly random values.
+         */
+        RANDOM,
+        /**
+         * Increasing values.
+         */
+        SORTED,
+        /**
+         * Decreasing values.
+         */
+        REVERSED,
+        /**
+         * Random values from a range of only {@code DUPLICATE_RANGE} values.
+         */
+        DUPLICATES
+    }
+
+    /**
+     * Comparator costs.
+     */
+    public enum ComparatorCost {
+        /**
+         * {@code Integer.compare} only.
+         */
+        CHEAP,
+        /**
+         * {@code Integer.compare} after {@code EXPENSIVE_TOKENS} of busy
+         * work, standing in for comparators on composite keys.
+         */
+        EXPENSIVE
+    }
+
+    /**
+     * Range of the values in {@code Input.DUPLICATES}.
+     */
+    private static final int DUPLICATE_RANGE = 16;
+
+    /**
+     * Busy-work tokens consumed by each {@code ComparatorCost.EXPENSIVE}
+     * comparison.
+     */
+    private static final long EXPENSIVE_TOKENS = 20;
+
+    /**
+     * Seed for the random inputs, so every run sorts the same data.
+     */
+    private static final long SEED = 2231L;
+
+    /**
+     * Warmup iterations of the single-shot benchmarks, each one call.
+     */
+    private static final int SINGLE_SHOT_WARMUPS = 10;
+
+    /**
+     * Measurement iterations of the single-shot benchmarks, each one call.
+     */
+    private static final int SINGLE_SHOT_MEASUREMENTS = 20;
+
+    /**
+     * Uniform view of a sorting machine or priority queue.
+     */
+    private interface Machine {
+
+        /**
+         * Adds {@code x}.
+         *
+         * @param x
+         *            the entry to add
+         */
+        void add(Integer x);
+
+        /**
+         * Changes to extraction mode.
+         */
+        void changeToExtractionMode();
+
+        /**
+         * Removes and returns the smallest entry.
+         *
+         * @return the entry removed
+         */
+        Integer removeFirst();
+
+    }
+
+    /**
+     * {@code Machine} on a {@code SortingMachine}.
+     */
+    private static final class SortingMachineAdapter implements Machine {
+
+        /**
+         * The machine.
+         */
+        private final SortingMachine<Integer> machine;
+
+        /**
+         * Constructor from machine.
+         *
+         * @param machine
+         *            the machine to adapt
+         */
+        SortingMachineAdapter(SortingMachine<Integer> machine) {
+            this.machine = machine;
+        }
+
+        @Override
+        public void add(Integer x) {
+            this.machine.add(x);
+        }
+
+        @Override
+        public void changeToExtractionMode() {
+            this.machine.changeToExtractionMode();
+        }
+
+        @Override
+        public Integer removeFirst() {
+            return this.machine.removeFirst();
+        }
+
+    }
+
+    /**
+     * {@code Machine} on a {@code PriorityQueue}.
+     */
+    private static final class PriorityQueueAdapter implements Machine {
+
+        /**
+         * The queue.
+         */
+        private final PriorityQueue<Integer> queue;
+
+        /**
+         * Constructor from order.
+         *
+         * @param order
+         *            the order of the queue
+         */
+        PriorityQueueAdapter(Comparator<Integer> order) {
+            this.queue = new PriorityQueue<>(order);
+        }
+
+        @Override
+        public void add(Integer x) {
+            this.queue.add(x);
+        }
+
+        @Override
+        public void changeToExtractionMode() {
+            // a priority queue has no insertion mode
+        }
+
+        @Override
+        public Integer removeFirst() {
+            return this.queue.poll();
+        }
+
+    }
+
+    /**
+     * Implementation under test.
+     */
+    @Param
+    private Implementation implementation;
+
+    /**
+     * Number of entries.
+     */
+    @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+    private int n;
+
+    /**
+     * Order of the entries.
+     */
+    @Param
+    private Input input;
+
+    /**
+     * Comparator cost.
+     */
+    @Param
+    private ComparatorCost comparatorCost;
+
+    /**
+     * Entries, in the order they are added; boxed once in setup so boxing is
+     * not measured.
+     */
+    private Integer[] values;
+
+    /**
+     * Order used by every machine.
+     */
+    private Comparator<Integer> order;
+
+    /**
+     * Constructor of {@code SortingMachine5a} from an order.
+     */
+    private Constructor<?> machine5aConstructor;
+
+    /**
+     * Machine filled in insertion mode, for {@code changeToExtractionMode}.
+     */
+    @State(Scope.Thread)
+    public static class Filled {
+
+        /**
+         * The machine.
+         */
+        private Machine machine;
+
+        /**
+         * Fills a new machine for the next iteration.
+         *
+         * @param benchmark
+         *            the benchmark state, with the entries and order
+         */
+        @Setup(Level.Iteration)
+        public void setUp(SortingMachineBenchmark benchmark) {
+            this.machine = benchmark.newFilledMachine();
+        }
+
+    }
+
+    /**
+     * Machine filled and in extraction mode, for {@code removeFirst}.
+     */
+    @State(Scope.Thread)
+    public static class Extracting {
+
+        /**
+         * The machine.
+         */
+        private Machine machine;
+
+        /**
+         * Fills a new machine and changes it to extraction mode for the next
+         * iteration.
+         *
+         * @param benchmark
+         *            the benchmark state, with the entries and order
+         */
+        @Setup(Level.Iteration)
+        public void setUp(SortingMachineBenchmark benchmark) {
+            this.machine = benchmark.newFilledMachine();
+            this.machine.changeToExtractionMode();
+        }
+
+    }
+
+    /**
+     * Creates the entries and the comparator for the current parameters.
+     */
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        Random random = new Random(SEED);
+        this.values = new Integer[this.n];
+        for (int i = 0; i < this.n; i++) {
+            int value;
+            switch (this.input) {
+                case SORTED:
+                    value = i;
+                    break;
+                case REVERSED:
+                    value = this.n - i;
+                    break;
+                case DUPLICATES:
+                    value = random.nextInt(DUPLICATE_RANGE);
+                    break;
+                default:
+                    value = random.nextInt();
+                    break;
+            }
+            this.values[i] = value;
+        }
+        if (this.comparatorCost == ComparatorCost.EXPENSIVE) {
+            this.order = (x, y) -> {
+                Blackhole.consumeCPU(EXPENSIVE_TOKENS);
+                return Integer.compare(x, y);
+            };
+        } else {
+            this.order = Integer::compare;
+        }
+        try {
+            this.machine5aConstructor = Class.forName("SortingMachine5a")
+                    .getConstructor(Comparator.class);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot find constructor of type SortingMachine5a", e);
+        }
+    }
+
+    /**
+     * Creates an empty machine of the implementation under test.
+     *
+     * @return the new machine
+     */
+    private Machine newMachine() {
+        Machine machine;
+        switch (this.implementation) {
+            case SORTING_MACHINE_1L:
+                machine = new SortingMachineAdapter(
+                        new SortingMachine1L<>(this.order));
+                break;
+            case SORTING_MACHINE_2:
+                machine = new SortingMachineAdapter(
+                        new SortingMachine2<>(this.order));
+                break;
+            case SORTING_MACHINE_3:
+                machine = new SortingMachineAdapter(
+                        new SortingMachine3<>(this.order));
+                break;
+            case PRIORITY_QUEUE:
+                machine = new PriorityQueueAdapter(this.order);
+                break;
+            default:
+                machine = new SortingMachineAdapter(this.newMachine5a());
+                break;
+        }
+        return machine;
+    }
+
+    /**
+     * Creates an empty {@code SortingMachine5a} with the current order.
+     *
+     * @return the new machine
+     */
+    @SuppressWarnings("unchecked")
+    private SortingMachine<Integer> newMachine5a() {
+        try {
+            return (SortingMachine<Integer>) this.machine5aConstructor
+                    .newInstance(this.order);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type SortingMachine5a", e);
+        }
+    }
+
+    /**
+     * Creates a machine of the implementation under test holding every entry,
+     * in insertion mode.
+     *
+     * @return the new machine
+     */
+    private Machine newFilledMachine() {
+        Machine machine = this.newMachine();
+        for (Integer x : this.values) {
+            machine.add(x);
+        }
+        return machine;
+    }
+
+    /**
+     * Adds every entry to a new machine.
+     *
+     * @return the machine, so the work is not eliminated
+     */
+    @Benchmark
+    public Machine add() {
+        return this.newFilledMachine();
+    }
+
+    /**
+     * Changes a filled machine to extraction mode.
+     *
+     * @param filled
+     *            the state holding the machine
+     * @return the machine, so the work is not eliminated
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = SINGLE_SHOT_WARMUPS)
+    @Measurement(iterations = SINGLE_SHOT_MEASUREMENTS)
+    public Machine changeToExtractionMode(Filled filled) {
+        filled.machine.changeToExtractionMode();
+        return filled.machine;
+    }
+
+    /**
+     * Removes every entry from a machine in extraction mode.
+     *
+     * @param extracting
+     *            the state holding the machine
+     * @param blackhole
+     *            sink for the removed entries
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = SINGLE_SHOT_WARMUPS)
+    @Measurement(iterations = SINGLE_SHOT_MEASUREMENTS)
+    public void removeFirst(Extracting extracting, Blackhole blackhole) {
+        for (int i = 0; i < this.n; i++) {
+            blackhole.consume(extracting.machine.removeFirst());
+        }
+    }
+
+    /**
+     * Sorts every entry: add, change to extraction mode, remove all.
+     *
+     * @param blackhole
+     *            sink for the removed entries
+     */
+    @Benchmark
+    public void sort(Blackhole blackhole) {
+        Machine machine = this.newFilledMachine();
+        machine.changeToExtractionMode();
+        for (int i = 0; i < this.n; i++) {
+            blackhole.consume(machine.removeFirst());
+        }
+    }
+
+}
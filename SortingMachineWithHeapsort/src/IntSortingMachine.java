@@ -0,0 +1,298 @@
+/**
+ * Sorting machine for {@code int} entries in increasing order, represented as
+ * an {@code int} array (using an embedding of heap sort), with implementations
+ * of the {@code SortingMachine} kernel methods specialized to the primitive
+ * type so that no entry is boxed.
+ *
+ * @mathdefinitions <pre>
+ * SUBTREE_IS_HEAP (
+ *   a: string of integer,
+ *   start: integer,
+ *   stop: integer
+ *  ) : boolean is
+ *  [the subtree of a (when a is interpreted as a complete binary tree) rooted
+ *   at index start and only through entry stop of a satisfies the heap
+ *   ordering property according to <=]
+ * </pre>
+ * @convention <pre>
+ * 0 <= $this.size <= |$this.entries|  and
+ * if not $this.insertionMode then
+ *   SUBTREE_IS_HEAP($this.entries, 0, $this.size - 1)
+ * </pre>
+ * @correspondence <pre>
+ * this = ($this.insertionMode,
+ *   multiset_entries($this.entries[0, $this.size)))
+ * </pre>
+ *
+ * @author Put your name here
+ *
+ */
+public class IntSortingMachine {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Initial length of the entries array.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Insertion mode.
+     */
+    private boolean insertionMode;
+
+    /**
+     * Entries; a heap in extraction mode.
+     */
+    private int[] entries;
+
+    /**
+     * Number of entries in use.
+     */
+    private int size;
+
+    /**
+     * Given an array that represents a complete binary tree and an index
+     * referring to the root of a subtree that would be a heap except for its
+     * root, sifts the root down to turn that whole subtree into a heap.
+     *
+     * @param array
+     *            the complete binary tree
+     * @param top
+     *            the index of the root of the "subtree"
+     * @param last
+     *            the index of the last entry in the heap
+     * @updates array
+     * @requires <pre>
+     * 0 <= top  and  last < |array|  and
+     * SUBTREE_IS_HEAP(array, 2 * top + 1, last)  and
+     * SUBTREE_IS_HEAP(array, 2 * top + 2, last)
+     * </pre>
+     * @ensures <pre>
+     * SUBTREE_IS_HEAP(array, top, last)  and
+     * perms(array, #array)  and
+     * [the other entries in array are the same as in #array]
+     * </pre>
+     */
+    private static void siftDown(int[] array, int top, int last) {
+        /*
+         * The root is held aside and children are moved up into the hole
+         * until the root's value fits, so each level costs one write
+         */
+        int value = array[top];
+        int hole = top;
+        int child = 2 * hole + 1;
+        while (child <= last) {
+            if (child < last && array[child + 1] < array[child]) {
+                child++;
+            }
+            if (array[child] < value) {
+                array[hole] = array[child];
+                hole = child;
+                child = 2 * hole + 1;
+            } else {
+                child = last + 1;
+            }
+        }
+        array[hole] = value;
+    }
+
+    /**
+     * Checks if the subtree of the given {@code array} rooted at the given
+     * {@code top} is a heap.
+     *
+     * @param array
+     *            the complete binary tree
+     * @param top
+     *            the index of the root of the "subtree"
+     * @param last
+     *            the index of the last entry in the heap
+     * @return true if the subtree of the given {@code array} rooted at the
+     *         given {@code top} is a heap; false otherwise
+     * @requires 0 <= top  and  last < |array|
+     * @ensures isHeap = SUBTREE_IS_HEAP(array, top, last)
+     */
+    private static boolean isHeap(int[] array, int top, int last) {
+        boolean isHeap = true;
+        for (int i = 2 * top + 1; i <= last && isHeap; i++) {
+            isHeap = array[(i - 1) / 2] <= array[i];
+        }
+        return isHeap;
+    }
+
+    /**
+     * Checks that the part of the convention repeated below holds for the
+     * current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     * @convention <pre>
+     * 0 <= $this.size <= |$this.entries|  and
+     * if not $this.insertionMode then
+     *   SUBTREE_IS_HEAP($this.entries, 0, $this.size - 1)
+     * </pre>
+     */
+    private boolean conventionHolds() {
+        assert 0 <= this.size : "Violation of: 0 <= $this.size";
+        assert this.size <= this.entries.length : ""
+                + "Violation of: $this.size <= |$this.entries|";
+        assert this.insertionMode
+                || isHeap(this.entries, 0, this.size - 1) : ""
+                        + "Violation of: if not $this.insertionMode then"
+                        + " SUBTREE_IS_HEAP($this.entries, 0, $this.size - 1)";
+        return true;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.insertionMode = true;
+        this.entries = new int[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public IntSortingMachine() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    /**
+     * Resets {@code this} to an empty machine in insertion mode.
+     *
+     * @clears this
+     */
+    public final void clear() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Sets {@code this} to the incoming value of {@code source}, and resets
+     * {@code source} to an empty machine in insertion mode.
+     *
+     * @param source
+     *            the machine whose value is transferred
+     * @replaces this
+     * @clears source
+     * @requires source is not this
+     * @ensures this = #source
+     */
+    public final void transferFrom(IntSortingMachine source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        this.insertionMode = source.insertionMode;
+        this.entries = source.entries;
+        this.size = source.size;
+        source.createNewRep();
+        assert this.conventionHolds();
+        assert source.conventionHolds();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    /**
+     * Adds {@code x} to the contents of {@code this}.
+     *
+     * @param x
+     *            the element to be added
+     * @updates this.contents
+     * @requires this.insertion_mode
+     * @ensures this.contents = #this.contents union {x}
+     */
+    public final void add(int x) {
+        assert this.insertionMode : "Violation of: this.insertion_mode";
+
+        if (this.size == this.entries.length) {
+            int[] grown = new int[2 * this.entries.length];
+            System.arraycopy(this.entries, 0, grown, 0, this.size);
+            this.entries = grown;
+        }
+        this.entries[this.size] = x;
+        this.size++;
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Changes the mode of {@code this} from insertion to extraction.
+     *
+     * @updates this.insertion_mode
+     * @requires this.insertion_mode
+     * @ensures not this.insertion_mode
+     */
+    public final void changeToExtractionMode() {
+        assert this.insertionMode : "Violation of: this.insertion_mode";
+
+        /*
+         * Heapifies bottom-up in place: every subtree rooted past the last
+         * internal node is already a heap
+         */
+        for (int top = this.size / 2 - 1; top >= 0; top--) {
+            siftDown(this.entries, top, this.size - 1);
+        }
+        this.insertionMode = false;
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Removes and returns the smallest entry in {@code this.contents}.
+     *
+     * @return the entry removed
+     * @updates this.contents
+     * @requires not this.insertion_mode and this.contents /= {}
+     * @ensures <pre>
+     * removeFirst is in #this.contents  and
+     * for all x: integer where (x is in #this.contents) (removeFirst <= x)  and
+     * this.contents = #this.contents \ {removeFirst}
+     * </pre>
+     */
+    public final int removeFirst() {
+        assert !this.insertionMode : "Violation of: not this.insertion_mode";
+        assert this.size > 0 : "Violation of: this.contents /= {}";
+
+        int result = this.entries[0];
+        this.size--;
+        this.entries[0] = this.entries[this.size];
+        siftDown(this.entries, 0, this.size - 1);
+        assert this.conventionHolds();
+        return result;
+    }
+
+    /**
+     * Reports whether {@code this} is in insertion mode.
+     *
+     * @return true iff {@code this} is in insertion mode
+     * @ensures isInInsertionMode = this.insertion_mode
+     */
+    public final boolean isInInsertionMode() {
+        assert this.conventionHolds();
+        return this.insertionMode;
+    }
+
+    /**
+     * Reports the number of entries in {@code this}.
+     *
+     * @return the (multiset) size of {@code this.contents}
+     * @ensures size = |this.contents|
+     */
+    public final int size() {
+        assert this.conventionHolds();
+        return this.size;
+    }
+
+}
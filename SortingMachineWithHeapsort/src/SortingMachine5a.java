@@ -1,15 +1,58 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import jdk.jfr.Event;
 
-import components.queue.Queue;
-import components.queue.Queue1L;
 import components.sortingmachine.SortingMachine;
 import components.sortingmachine.SortingMachineSecondary;
 
 /**
- * {@code SortingMachine} represented as a {@code Queue} and an array (using an
- * embedding of heap sort), with implementations of primary methods.
+ * {@code SortingMachine} represented as an array (using an embedding of heap
+ * sort), with implementations of primary methods.
+ *
+ * <p>
+ * Entries are kept in the array in both modes: unordered in insertion mode,
+ * and as a heap in extraction mode, which is built in place. {@code clear} and
+ * {@code transferFrom} keep an emptied array for reuse as long as its length
+ * is at most the retention cap (see {@link #setRetentionCap}), so a machine
+ * that is filled, drained and cleared over and over allocates nothing once
+ * its array is large enough. Slots past the last entry are always null, so a
+ * retained array holds no references to removed entries.
+ * </p>
+ *
+ * <p>
+ * A machine constructed with live insertion enabled also accepts {@code add}
+ * in extraction mode: the new entry is sifted up into the heap, which grows by
+ * doubling, so the machine can be used as a long-lived priority queue with
+ * O(log n) {@code add} and {@code removeFirst}.
+ * </p>
+ *
+ * <p>
+ * After {@code enableConcurrentInsertion}, any number of threads may call
+ * {@code concurrentAdd} at the same time; each thread appends to its own
+ * buffer without locking. All other methods require that no
+ * {@code concurrentAdd} is in progress and that the producers' calls happen
+ * before them (for example, by joining the producer threads).
+ * {@code disableConcurrentInsertion} releases the per-thread buffers.
+ * </p>
+ *
+ * <p>
+ * How much of the convention is checked when assertions are enabled is set by
+ * {@link #setInvariantCheckLevel} (or the {@code SortingMachine5a.checkLevel}
+ * system property, read ignoring case, with {@code FULL} if it names no level),
+ * so that long runs can keep assertions on without every operation becoming
+ * O(n).
+ * </p>
+ *
+ * <p>
+ * {@link #enableStatistics} turns on operation counters and timings (see
+ * {@link SortingMachineStats}); until then no statistics code runs.
+ * </p>
  *
  * @param <T>
  *            type of {@code SortingMachine} entries
@@ -42,20 +85,20 @@ import components.sortingmachine.SortingMachineSecondary;
  * </pre>
  * @convention <pre>
  * IS_TOTAL_PREORDER([relation computed by $this.machineOrder.compare method]  and
- * if $this.insertionMode then
- *   $this.heapSize = 0
- * else
- *   $this.entries = <>  and
- *   for all i: integer
- *       where (0 <= i  and  i < |$this.heap|)
- *     ([entry at position i in $this.heap is not null])  and
+ * 0 <= $this.heapSize <= |$this.heap|  and
+ * for all i: integer
+ *     where (0 <= i  and  i < |$this.heap|)
+ *   ([entry at position i in $this.heap is not null] iff i < $this.heapSize)  and
+ * if not $this.insertionMode then
+ *   [every buffer in $this.producerBuffers is empty]  and
  *   SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,
- *     [relation computed by $this.machineOrder.compare method])  and
- *   0 <= $this.heapSize <= |$this.heap|
+ *     [relation computed by $this.machineOrder.compare method])
  * </pre>
  * @correspondence <pre>
  * if $this.insertionMode then
- *   this = (true, $this.machineOrder, multiset_entries($this.entries))
+ *   this = (true, $this.machineOrder,
+ *     multiset_entries($this.heap[0, $this.heapSize)) union
+ *     [multiset of the entries of every buffer in $this.producerBuffers])
  * else
  *   this = (false, $this.machineOrder, multiset_entries($this.heap[0, $this.heapSize)))
  * </pre>
@@ -65,10 +108,76 @@ import components.sortingmachine.SortingMachineSecondary;
  */
 public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
 
+    /**
+     * How much of the convention is checked when assertions are enabled.
+     */
+    public enum CheckLevel {
+        /**
+         * No checks.
+         */
+        OFF,
+        /**
+         * O(1) checks on every operation, and the whole convention after
+         * every N-th operation that changes each machine (see
+         * {@link SortingMachine5a#setInvariantSampleInterval}).
+         */
+        SAMPLED,
+        /**
+         * O(1) checks on every operation, and the heap ordering only along the
+         * root-to-leaf path through the entries the operation moved; whole
+         * convention after operations that rebuild the heap.
+         */
+        INCREMENTAL,
+        /**
+         * The whole convention, including the internal helpers' requires
+         * clauses, on every operation.
+         */
+        FULL
+    }
+
     /*
      * Private members --------------------------------------------------------
      */
 
+    /**
+     * Value of {@code touched} when the last operation moved no heap entry.
+     */
+    private static final int UNTOUCHED = -1;
+
+    /**
+     * Value of {@code touched} when the last operation rebuilt the heap.
+     */
+    private static final int ALL_TOUCHED = -2;
+
+    /**
+     * Default number of changing operations between whole-convention checks
+     * at {@code CheckLevel.SAMPLED}.
+     */
+    private static final int DEFAULT_SAMPLE_INTERVAL = 1024;
+
+    /**
+     * Length of a newly allocated heap array.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Default retention cap, in entries.
+     */
+    private static final int DEFAULT_RETENTION_CAP = 1 << 16;
+
+    /**
+     * Current check level for all machines.
+     */
+    private static volatile CheckLevel checkLevel = parseCheckLevel(
+            System.getProperty("SortingMachine5a.checkLevel"));
+
+    /**
+     * Current sample interval for all machines.
+     */
+    private static volatile int sampleInterval = Math.max(1, Integer
+            .getInteger("SortingMachine5a.sampleInterval",
+                    DEFAULT_SAMPLE_INTERVAL));
+
     /**
      * Order.
      */
@@ -80,19 +189,179 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
     private boolean insertionMode;
 
     /**
-     * Entries.
+     * Entries; a heap in extraction mode.
      */
-    private Queue<T> entries;
+    private T[] heap;
 
     /**
-     * Heap.
+     * Number of entries in {@code heap}.
      */
-    private T[] heap;
+    private int heapSize;
 
     /**
-     * Heap size.
+     * Longest heap array that {@code clear} and {@code transferFrom} keep for
+     * reuse.
      */
-    private int heapSize;
+    private int retentionCap = Integer.getInteger(
+            "SortingMachine5a.retentionCap", DEFAULT_RETENTION_CAP);
+
+    /**
+     * Whether {@code add} is allowed in extraction mode.
+     */
+    private boolean liveInsertion;
+
+    /**
+     * Every buffer created by {@code producerBuffer}, or null if concurrent
+     * insertion is not enabled.
+     */
+    private ConcurrentLinkedQueue<ArrayList<T>> producerBuffers;
+
+    /**
+     * The calling thread's buffer for {@code concurrentAdd}, or null if
+     * concurrent insertion is not enabled.
+     */
+    private ThreadLocal<ArrayList<T>> producerBuffer;
+
+    /**
+     * Index of a heap entry on the path moved by the last changing operation,
+     * or {@code UNTOUCHED} or {@code ALL_TOUCHED}; read by the incremental
+     * check.
+     */
+    private int touched;
+
+    /**
+     * Number of changing operations so far; read by the sampled check.
+     */
+    private long changes;
+
+    /**
+     * Operation statistics, or null if statistics are not enabled.
+     */
+    private SortingMachineStats stats;
+
+    /**
+     * Order used by heap operations: {@code machineOrder}, or a view of it
+     * that counts comparisons when statistics are enabled.
+     */
+    private Comparator<T> heapOrder;
+
+    /**
+     * View of an order that counts the comparisons made through it.
+     *
+     * @param <T>
+     *            type of entries compared
+     */
+    private static final class CountingOrder<T> implements Comparator<T> {
+
+        /**
+         * The order compared with.
+         */
+        private final Comparator<T> base;
+
+        /**
+         * The statistics that count the comparisons.
+         */
+        private final SortingMachineStats stats;
+
+        /**
+         * Constructor from the order and the statistics.
+         *
+         * @param base
+         *            the order to compare with
+         * @param stats
+         *            the statistics to count comparisons in
+         */
+        private CountingOrder(Comparator<T> base, SortingMachineStats stats) {
+            this.base = base;
+            this.stats = stats;
+        }
+
+        @Override
+        public int compare(T x, T y) {
+            this.stats.recordComparison();
+            return this.base.compare(x, y);
+        }
+
+    }
+
+    /**
+     * Returns {@code order} without the comparison counting of statistics, so
+     * that checks made only by assertions are not counted.
+     *
+     * @param <T>
+     *            type of entries compared
+     * @param order
+     *            {@code machineOrder} or a counting view of it
+     * @return the order that order views
+     */
+    private static <T> Comparator<T> uncounted(Comparator<T> order) {
+        Comparator<T> base = order;
+        if (order instanceof CountingOrder<?>) {
+            base = ((CountingOrder<T>) order).base;
+        }
+        return base;
+    }
+
+    /**
+     * Sets {@code heapOrder} from {@code machineOrder}, counting comparisons
+     * if statistics are enabled.
+     *
+     * @updates this.heapOrder
+     */
+    private void resetHeapOrder() {
+        if (this.stats == null) {
+            this.heapOrder = this.machineOrder;
+        } else {
+            this.heapOrder = new CountingOrder<T>(this.machineOrder,
+                    this.stats);
+        }
+    }
+
+    /**
+     * Reports whether the internal helpers should check their requires
+     * clauses in full.
+     *
+     * @return true iff the check level is {@code CheckLevel.FULL}
+     */
+    private static boolean fullChecks() {
+        return checkLevel == CheckLevel.FULL;
+    }
+
+    /**
+     * Returns the check level named by {@code name}, ignoring case and
+     * surrounding white space, or {@code CheckLevel.FULL} if {@code name} is
+     * null or names no check level.
+     *
+     * @param name
+     *            the name of a check level, or null
+     * @return the check level named
+     */
+    private static CheckLevel parseCheckLevel(String name) {
+        CheckLevel result = CheckLevel.FULL;
+        if (name != null) {
+            for (CheckLevel level : CheckLevel.values()) {
+                if (level.name().equalsIgnoreCase(name.trim())) {
+                    result = level;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records that the current operation changed {@code this}, moving heap
+     * entries as described by {@code moved}.
+     *
+     * @param moved
+     *            the index of a heap entry on the path moved, or
+     *            {@code UNTOUCHED} or {@code ALL_TOUCHED}
+     * @updates $this.touched, $this.changes
+     * @ensures $this.touched = moved  and  $this.changes = #$this.changes + 1
+     */
+    private void recordChange(int moved) {
+        this.touched = moved;
+        this.changes++;
+    }
 
     /**
      * Exchanges entries at indices {@code i} and {@code j} of {@code array}.
@@ -141,11 +410,12 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
      *            the index of the last entry in the heap
      * @param order
      *            total preorder for sorting
+     * @return the number of levels the root moved down
      * @updates array
      * @requires <pre>
      * 0 <= top  and  last < |array|  and
      * for all i: integer
-     *     where (0 <= i  and  i < |array|)
+     *     where (0 <= i  and  i <= last)
      *   ([entry at position i in array is not null])  and
      * [subtree rooted at {@code top} is a complete binary tree]  and
      * SUBTREE_IS_HEAP(array, 2 * top + 1, last,
@@ -160,25 +430,30 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
      * perms(array, #array)  and
      * SUBTREE_ARRAY_ENTRIES(array, top, last) =
      *  SUBTREE_ARRAY_ENTRIES(#array, top, last)  and
-     * [the other entries in array are the same as in #array]
+     * [the other entries in array are the same as in #array]  and
+     * siftDown = [the number of levels #array[top] moved down]
      * </pre>
      */
-    private static <T> void siftDown(T[] array, int top, int last,
+    private static <T> int siftDown(T[] array, int top, int last,
             Comparator<T> order) {
         assert array != null : "Violation of: array is not null";
         assert order != null : "Violation of: order is not null";
         assert 0 <= top : "Violation of: 0 <= top";
         assert last < array.length : "Violation of: last < |array|";
-        for (int i = 0; i < array.length; i++) {
-            assert array[i] != null : ""
-                    + "Violation of: all entries in array are not null";
-        }
-        assert isHeap(array, 2 * top + 1, last, order) : ""
-                + "Violation of: SUBTREE_IS_HEAP(array, 2 * top + 1, last,"
-                + " [relation computed by order.compare method])";
-        assert isHeap(array, 2 * top + 2, last, order) : ""
-                + "Violation of: SUBTREE_IS_HEAP(array, 2 * top + 2, last,"
-                + " [relation computed by order.compare method])";
+        if (fullChecks()) {
+            for (int i = 0; i <= last; i++) {
+                assert array[i] != null : ""
+                        + "Violation of: all entries in array[0, last] are not null";
+            }
+        }
+        assert !fullChecks()
+                || isHeap(array, 2 * top + 1, last, uncounted(order)) : ""
+                        + "Violation of: SUBTREE_IS_HEAP(array, 2 * top + 1,"
+                        + " last, [relation computed by order.compare method])";
+        assert !fullChecks()
+                || isHeap(array, 2 * top + 2, last, uncounted(order)) : ""
+                        + "Violation of: SUBTREE_IS_HEAP(array, 2 * top + 2,"
+                        + " last, [relation computed by order.compare method])";
         /*
          * Impractical to check last requires clause; no need to check the other
          * requires clause, because it must be true when using the array
@@ -191,6 +466,7 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
          * be swapped with the tree's root
          */
         int smallest = top;
+        int levels = 0;
         if (array.length > 1) {
             /*
              * left and right are in the position of the root*2+1 and root*2+2,
@@ -220,10 +496,137 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
                      * exchange them, and recursively call the method
                      */
                     exchangeEntries(array, top, smallest);
-                    siftDown(array, smallest, last, order);
+                    levels = 1 + siftDown(array, smallest, last, order);
                 }
             }
         }
+        return levels;
+    }
+
+    /**
+     * Given an array that represents a complete binary tree with a hole at
+     * index {@code top}, whose subtrees are heaps, puts {@code entry} into the
+     * subtree so that the whole subtree is a heap. This is {@code siftDown}
+     * without the per-call checks and swaps, for the batch loops.
+     *
+     * @param <T>
+     *            type of array entries
+     * @param array
+     *            the complete binary tree
+     * @param entry
+     *            the entry to put into the hole
+     * @param top
+     *            the index of the hole
+     * @param last
+     *            the index of the last entry in the heap
+     * @param order
+     *            total preorder for sorting
+     * @return the number of levels the hole moved down
+     * @updates array
+     * @requires <pre>
+     * 0 <= top  and  last < |array|  and
+     * for all i: integer
+     *     where (0 <= i  and  i <= last)
+     *   ([entry at position i in array is not null])  and
+     * SUBTREE_IS_HEAP(array, 2 * top + 1, last,
+     *     [relation computed by order.compare method])  and
+     * SUBTREE_IS_HEAP(array, 2 * top + 2, last,
+     *     [relation computed by order.compare method])  and
+     * IS_TOTAL_PREORDER([relation computed by order.compare method])
+     * </pre>
+     * @ensures <pre>
+     * SUBTREE_IS_HEAP(array, top, last,
+     *     [relation computed by order.compare method])  and
+     * SUBTREE_ARRAY_ENTRIES(array, top, last) =
+     *  (SUBTREE_ARRAY_ENTRIES(#array, top, last) \ {#array[top]})
+     *    union {entry}  and
+     * [the other entries in array are the same as in #array]  and
+     * siftHoleDown = [the number of levels the hole moved down]
+     * </pre>
+     */
+    private static <T> int siftHoleDown(T[] array, T entry, int top,
+            int last, Comparator<T> order) {
+        int hole = top;
+        int child = 2 * hole + 1;
+        int levels = 0;
+        while (child <= last) {
+            if (child < last
+                    && order.compare(array[child + 1], array[child]) < 0) {
+                child++;
+            }
+            if (order.compare(array[child], entry) < 0) {
+                array[hole] = array[child];
+                hole = child;
+                child = 2 * hole + 1;
+                levels++;
+            } else {
+                child = last + 1;
+            }
+        }
+        array[hole] = entry;
+        return levels;
+    }
+
+    /**
+     * Given an array that represents a complete binary tree and an index
+     * referring to an entry that would be in heap order with its ancestors
+     * except for itself, sifts that entry up to turn the whole tree into a
+     * heap.
+     *
+     * @param <T>
+     *            type of array entries
+     * @param array
+     *            the complete binary tree
+     * @param bottom
+     *            the index of the entry to sift up
+     * @param order
+     *            total preorder for sorting
+     * @return the number of levels the entry moved up
+     * @updates array
+     * @requires <pre>
+     * 0 <= bottom  and  bottom < |array|  and
+     * for all i: integer
+     *     where (0 <= i  and  i <= bottom)
+     *   ([entry at position i in array is not null])  and
+     * [array[0, bottom] would satisfy SUBTREE_IS_HEAP(array, 0, bottom,
+     *   [relation computed by order.compare method]) if the entry at
+     *   bottom were removed]  and
+     * IS_TOTAL_PREORDER([relation computed by order.compare method])
+     * </pre>
+     * @ensures <pre>
+     * SUBTREE_IS_HEAP(array, 0, bottom,
+     *     [relation computed by order.compare method])  and
+     * perms(array, #array)  and
+     * [the other entries in array are the same as in #array]  and
+     * siftUp = [the number of levels #array[bottom] moved up]
+     * </pre>
+     */
+    private static <T> int siftUp(T[] array, int bottom,
+            Comparator<T> order) {
+        assert array != null : "Violation of: array is not null";
+        assert order != null : "Violation of: order is not null";
+        assert 0 <= bottom : "Violation of: 0 <= bottom";
+        assert bottom < array.length : "Violation of: bottom < |array|";
+        /*
+         * Impractical to check the heap requires clause.
+         */
+
+        /*
+         * Moves the entry up past each parent that is larger than it; the
+         * parent moves down into the vacated slot
+         */
+        T entry = array[bottom];
+        int child = bottom;
+        int parent = (child - 1) / 2;
+        int levels = 0;
+        while (child > 0 && order.compare(entry, array[parent]) < 0) {
+            array[child] = array[parent];
+            child = parent;
+            parent = (child - 1) / 2;
+            levels++;
+        }
+        array[child] = entry;
+        return levels;
     }
 
     /**
@@ -235,30 +638,39 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
      *            the complete binary tree
      * @param top
      *            the index of the root of the "subtree" to heapify
+     * @param last
+     *            the index of the last entry in the heap
      * @param order
      *            the total preorder for sorting
+     * @return the total number of levels entries were sifted down
      * @updates array
      * @requires <pre>
-     * 0 <= top  and
+     * 0 <= top  and  last < |array|  and
      * for all i: integer
-     *     where (0 <= i  and  i < |array|)
+     *     where (0 <= i  and  i <= last)
      *   ([entry at position i in array is not null])  and
      * [subtree rooted at {@code top} is a complete binary tree]  and
      * IS_TOTAL_PREORDER([relation computed by order.compare method])
      * </pre>
      * @ensures <pre>
-     * SUBTREE_IS_HEAP(array, top, |array| - 1,
+     * SUBTREE_IS_HEAP(array, top, last,
      *     [relation computed by order.compare method])  and
-     * perms(array, #array)
+     * perms(array, #array)  and
+     * [the other entries in array are the same as in #array]  and
+     * heapify = [the total number of levels entries were sifted down]
      * </pre>
      */
-    private static <T> void heapify(T[] array, int top, Comparator<T> order) {
+    private static <T> int heapify(T[] array, int top, int last,
+            Comparator<T> order) {
         assert array != null : "Violation of: array is not null";
         assert order != null : "Violation of: order is not null";
         assert 0 <= top : "Violation of: 0 <= top";
-        for (int i = 0; i < array.length; i++) {
-            assert array[i] != null : ""
-                    + "Violation of: all entries in array are not null";
+        assert last < array.length : "Violation of: last < |array|";
+        if (fullChecks()) {
+            for (int i = 0; i <= last; i++) {
+                assert array[i] != null : ""
+                        + "Violation of: all entries in array[0, last] are not null";
+            }
         }
         /*
          * Impractical to check last requires clause; no need to check the other
@@ -266,7 +678,8 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
          * representation for a complete binary tree.
          */
 
-        if (array.length > 1) {
+        int levels = 0;
+        if (last > 0) {
             /*
              * left and right are in the position of the root*2+1 and root*2+2,
              * respectively
@@ -276,65 +689,39 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
             /*
              * recursively heapify subtrees
              */
-            if (left < array.length) {
-                heapify(array, left, order);
+            if (left <= last) {
+                levels += heapify(array, left, last, order);
             }
-            if (right < array.length) {
-                heapify(array, right, order);
+            if (right <= last) {
+                levels += heapify(array, right, last, order);
             }
-            siftDown(array, top, array.length - 1, order);
+            levels += siftDown(array, top, last, order);
         }
-
+        return levels;
     }
 
     /**
-     * Constructs and returns an array representing a heap with the entries from
-     * the given {@code Queue}.
+     * Creates and returns an array of the given length with every entry null.
      *
      * @param <T>
-     *            type of {@code Queue} and array entries
-     * @param q
-     *            the {@code Queue} with the entries for the heap
-     * @param order
-     *            the total preorder for sorting
-     * @return the array representation of a heap
-     * @clears q
-     * @requires IS_TOTAL_PREORDER([relation computed by order.compare method])
+     *            type of array entries
+     * @param length
+     *            the length of the array
+     * @return the new array
+     * @requires length >= 0
      * @ensures <pre>
-     * SUBTREE_IS_HEAP(buildHeap, 0, |buildHeap| - 1)  and
-     * perms(buildHeap, #q)  and
-     * for all i: integer
-     *     where (0 <= i  and  i < |buildHeap|)
-     *   ([entry at position i in buildHeap is not null])  and
+     * |newArray| = length  and
+     * [every entry of newArray is null]
      * </pre>
      */
     @SuppressWarnings("unchecked")
-    private static <T> T[] buildHeap(Queue<T> q, Comparator<T> order) {
-        assert q != null : "Violation of: q is not null";
-        assert order != null : "Violation of: order is not null";
-        /*
-         * Impractical to check the requires clause.
-         */
+    private static <T> T[] newArray(int length) {
         /*
          * With "new T[...]" in place of "new Object[...]" it does not compile;
          * as shown, it results in a warning about an unchecked cast, though it
          * cannot fail.
          */
-        T[] heap = (T[]) (new Object[q.length()]);
-
-        /*
-         * Dequeues each item of insertion-mode queue and adds it to the heap
-         * array by increasing index, heapifies the array afterwards.
-         */
-        int i = 0;
-        while (q.length() != 0) {
-            T element = q.dequeue();
-            heap[i] = element;
-            i++;
-        }
-        heapify(heap, 0, order);
-
-        return heap;
+        return (T[]) (new Object[length]);
     }
 
     /**
@@ -356,7 +743,7 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
      * @requires <pre>
      * 0 <= top  and  last < |array|  and
      * for all i: integer
-     *     where (0 <= i  and  i < |array|)
+     *     where (0 <= i  and  i <= last)
      *   ([entry at position i in array is not null])  and
      * [subtree rooted at {@code top} is a complete binary tree]
      * </pre>
@@ -370,9 +757,11 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
         assert array != null : "Violation of: array is not null";
         assert 0 <= top : "Violation of: 0 <= top";
         assert last < array.length : "Violation of: last < |array|";
-        for (int i = 0; i < array.length; i++) {
-            assert array[i] != null : ""
-                    + "Violation of: all entries in array are not null";
+        if (fullChecks()) {
+            for (int i = 0; i <= last; i++) {
+                assert array[i] != null : ""
+                        + "Violation of: all entries in array[0, last] are not null";
+            }
         }
         /*
          * No need to check the other requires clause, because it must be true
@@ -392,6 +781,61 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
         return isHeap;
     }
 
+    /**
+     * Checks the heap ordering of the given {@code array} along the path from
+     * the root to {@code index}, and from {@code index} down along smaller
+     * children to a leaf, which together cover every entry moved by
+     * {@code siftUp} from {@code index} or {@code siftDown} from the root.
+     *
+     * @param <T>
+     *            type of array entries
+     * @param array
+     *            the complete binary tree
+     * @param index
+     *            the index the checked path goes through
+     * @param last
+     *            the index of the last entry in the heap
+     * @param order
+     *            total preorder for sorting
+     * @return true if every entry on the path is in heap order with its
+     *         children; false otherwise
+     * @requires <pre>
+     * 0 <= index  and  index <= last  and  last < |array|  and
+     * for all i: integer
+     *     where (0 <= i  and  i <= last)
+     *   ([entry at position i in array is not null])
+     * </pre>
+     * @ensures <pre>
+     * isHeapAround = [every entry on the path from 0 through index and then
+     *   down along smaller children is in order with its children according
+     *   to the relation computed by order.compare method]
+     * </pre>
+     */
+    private static <T> boolean isHeapAround(T[] array, int index, int last,
+            Comparator<T> order) {
+        boolean isHeap = true;
+        int i = index;
+        while (isHeap && i > 0) {
+            int parent = (i - 1) / 2;
+            isHeap = order.compare(array[parent], array[i]) <= 0;
+            i = parent;
+        }
+        /*
+         * Checking against the smaller child covers the larger one too
+         */
+        i = index;
+        while (isHeap && 2 * i + 1 <= last) {
+            int child = 2 * i + 1;
+            if (child < last
+                    && order.compare(array[child + 1], array[child]) < 0) {
+                child++;
+            }
+            isHeap = order.compare(array[i], array[child]) <= 0;
+            i = child;
+        }
+        return isHeap;
+    }
+
     /**
      * Checks that the part of the convention repeated below holds for the
      * current representation.
@@ -399,41 +843,85 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
      * @return true if the convention holds (or if assertion checking is off);
      *         otherwise reports a violated assertion
      * @convention <pre>
-     * if $this.insertionMode then
-     *   $this.heapSize = 0
-     * else
-     *   $this.entries = <>  and
-     *   for all i: integer
-     *       where (0 <= i  and  i < |$this.heap|)
-     *     ([entry at position i in $this.heap is not null])  and
+     * 0 <= $this.heapSize <= |$this.heap|  and
+     * for all i: integer
+     *     where (0 <= i  and  i < |$this.heap|)
+     *   ([entry at position i in $this.heap is not null] iff i < $this.heapSize)  and
+     * if not $this.insertionMode then
+     *   [every buffer in $this.producerBuffers is empty]  and
      *   SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,
-     *     [relation computed by $this.machineOrder.compare method])  and
-     *   0 <= $this.heapSize <= |$this.heap|
+     *     [relation computed by $this.machineOrder.compare method])
      * </pre>
+     *
+     *             How much is checked depends on the current
+     *             {@code CheckLevel}; see {@link CheckLevel}.
      */
     private boolean conventionHolds() {
-        if (this.insertionMode) {
-            assert this.heapSize == 0 : ""
-                    + "Violation of: if $this.insertionMode then $this.heapSize = 0";
-        } else {
-            assert this.entries.length() == 0 : ""
-                    + "Violation of: if not $this.insertionMode then $this.entries = <>";
-            assert 0 <= this.heapSize : ""
-                    + "Violation of: if not $this.insertionMode then 0 <= $this.heapSize";
+        /*
+         * Only reads the representation, so that it behaves the same whether
+         * or not assertions are enabled. full: check everything; otherwise
+         * only the O(1) parts and, at INCREMENTAL, the heap ordering around
+         * the entries the last changing operation moved
+         */
+        CheckLevel level = checkLevel;
+        int lastTouched = this.touched;
+        boolean full = level == CheckLevel.FULL;
+        if (level == CheckLevel.SAMPLED) {
+            full = this.changes % sampleInterval == 0;
+        } else if (level == CheckLevel.INCREMENTAL) {
+            full = lastTouched == ALL_TOUCHED;
+        }
+        if (level != CheckLevel.OFF) {
+            assert 0 <= this.heapSize : "Violation of: 0 <= $this.heapSize";
             assert this.heapSize <= this.heap.length : ""
-                    + "Violation of: if not $this.insertionMode then"
-                    + " $this.heapSize <= |$this.heap|";
-            for (int i = 0; i < this.heap.length; i++) {
-                assert this.heap[i] != null : ""
-                        + "Violation of: if not $this.insertionMode then"
-                        + " all entries in $this.heap are not null";
+                    + "Violation of: $this.heapSize <= |$this.heap|";
+            /*
+             * Insertion-mode adds only write one slot, so between resets
+             * only the slots next to the boundary are checked, as before the
+             * array was kept in insertion mode
+             */
+            if (full && (!this.insertionMode || lastTouched == ALL_TOUCHED)) {
+                for (int i = 0; i < this.heap.length; i++) {
+                    assert (this.heap[i] != null) == (i < this.heapSize) : ""
+                            + "Violation of: [entry at position i in $this.heap"
+                            + " is not null] iff i < $this.heapSize";
+                }
+            } else {
+                assert this.heapSize == 0
+                        || this.heap[this.heapSize - 1] != null : ""
+                                + "Violation of: [entry at position"
+                                + " $this.heapSize - 1 in $this.heap is not null]";
+                assert this.heapSize == this.heap.length
+                        || this.heap[this.heapSize] == null : ""
+                                + "Violation of: [entry at position"
+                                + " $this.heapSize in $this.heap is null]";
+            }
+            if (!this.insertionMode) {
+                if (this.producerBuffers != null) {
+                    for (ArrayList<T> buffer : this.producerBuffers) {
+                        assert buffer.isEmpty() : ""
+                                + "Violation of: if not $this.insertionMode then"
+                                + " [every buffer in $this.producerBuffers is empty]";
+                    }
+                }
+                if (full) {
+                    assert isHeap(this.heap, 0, this.heapSize - 1,
+                            this.machineOrder) : ""
+                                    + "Violation of: if not $this.insertionMode"
+                                    + " then SUBTREE_IS_HEAP($this.heap, 0,"
+                                    + " $this.heapSize - 1, [relation computed by"
+                                    + " $this.machineOrder.compare method])";
+                } else if (level == CheckLevel.INCREMENTAL && 0 <= lastTouched
+                        && lastTouched < this.heapSize) {
+                    assert isHeapAround(this.heap, lastTouched,
+                            this.heapSize - 1, this.machineOrder) : ""
+                                    + "Violation of: if not $this.insertionMode"
+                                    + " then SUBTREE_IS_HEAP($this.heap, 0,"
+                                    + " $this.heapSize - 1, [relation computed by"
+                                    + " $this.machineOrder.compare method])"
+                                    + " [around index " + lastTouched + "]";
+                }
             }
-            assert isHeap(this.heap, 0, this.heapSize - 1,
-                    this.machineOrder) : ""
-                            + "Violation of: if not $this.insertionMode then"
-                            + " SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,"
-                            + " [relation computed by $this.machineOrder.compare"
-                            + " method])";
         }
         return true;
     }
@@ -441,26 +929,222 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
     /**
      * Creator of initial representation.
      *
+     * Keeps {@code $this.heap}, with its entries nulled out, if its length is
+     * at most {@code $this.retentionCap}; otherwise replaces it with a new
+     * array.
+     *
      * @param order
      *            total preorder for sorting
-     * @requires IS_TOTAL_PREORDER([relation computed by order.compare method]
+     * @requires <pre>
+     * IS_TOTAL_PREORDER([relation computed by order.compare method]  and
+     * ($this.heap = null  or  0 <= $this.heapSize <= |$this.heap|)
+     * </pre>
      * @ensures <pre>
      * $this.insertionMode = true  and
      * $this.machineOrder = order  and
-     * $this.entries = <>  and
-     * $this.heapSize = 0
+     * $this.heapSize = 0  and
+     * [every entry of $this.heap is null]  and
+     * [every buffer in $this.producerBuffers is empty]
      * </pre>
      */
     private void createNewRep(Comparator<T> order) {
 
         /*
-         * Sets comparing order, sets insertion mode to true, initializes
-         * insertion-mode representation queue
+         * Sets comparing order, sets insertion mode to true, and keeps the old
+         * array (only its used slots can be non-null) or allocates a new one
          */
         this.machineOrder = order;
-        this.entries = new Queue1L<T>();
+        this.resetHeapOrder();
+        if (this.heap != null && this.heap.length <= this.retentionCap) {
+            Arrays.fill(this.heap, 0, this.heapSize, null);
+        } else {
+            this.heap = newArray(INITIAL_CAPACITY);
+        }
+        this.heapSize = 0;
         this.insertionMode = true;
+        this.recordChange(ALL_TOUCHED);
+        this.clearProducerBuffers();
+
+    }
+
+    /**
+     * Makes {@code $this.heap} long enough to hold {@code capacity} entries,
+     * doubling its length as needed.
+     *
+     * @param capacity
+     *            the number of entries needed
+     * @updates $this.heap
+     * @ensures <pre>
+     * |$this.heap| >= capacity  and
+     * [$this.heap starts with the entries of #$this.heap, followed by nulls]
+     * </pre>
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.heap.length) {
+            int length = Math.max(1, this.heap.length);
+            while (length < capacity) {
+                length *= 2;
+            }
+            this.heap = Arrays.copyOf(this.heap, length);
+        }
+    }
+
+    /**
+     * Removes and returns the root of the heap, moving the last entry into the
+     * hole and sifting it down, with none of the per-call checks of
+     * {@code removeFirst}; records the sift in the statistics, if enabled,
+     * as {@code removeFirst} does, but not in the latency histogram.
+     *
+     * @return the entry removed
+     * @updates $this.heap, $this.heapSize
+     * @requires not $this.insertionMode  and  $this.heapSize > 0
+     * @ensures <pre>
+     * removeRoot = #$this.heap[0]  and
+     * $this.heapSize = #$this.heapSize - 1  and
+     * multiset_entries($this.heap[0, $this.heapSize)) =
+     *   multiset_entries(#$this.heap[0, #$this.heapSize)) \ {removeRoot}  and
+     * SUBTREE_IS_HEAP($this.heap, 0, $this.heapSize - 1,
+     *   [relation computed by $this.machineOrder.compare method])  and
+     * $this.heap[$this.heapSize] = null
+     * </pre>
+     */
+    private T removeRoot() {
+        T root = this.heap[0];
+        this.heapSize--;
+        T last = this.heap[this.heapSize];
+        this.heap[this.heapSize] = null;
+        int depth = 0;
+        if (this.heapSize > 0) {
+            depth = siftHoleDown(this.heap, last, 0, this.heapSize - 1,
+                    this.heapOrder);
+        }
+        if (this.stats != null) {
+            this.stats.recordSiftDown(depth);
+        }
+        return root;
+    }
+
+    /**
+     * Empties every producer buffer and releases its backing array, so a
+     * pool thread's buffer, which its thread-local map keeps as long as the
+     * thread lives, does not hold on to the largest batch it ever saw.
+     *
+     * @updates $this.producerBuffers
+     * @ensures [every buffer in $this.producerBuffers is empty]
+     */
+    private void clearProducerBuffers() {
+        if (this.producerBuffers != null) {
+            for (ArrayList<T> buffer : this.producerBuffers) {
+                buffer.clear();
+                buffer.trimToSize();
+            }
+        }
+    }
+
+    /**
+     * Moves the entries of every producer buffer to the end of
+     * {@code $this.heap}.
+     *
+     * @updates $this.heap, $this.heapSize, $this.producerBuffers
+     * @requires $this.insertionMode
+     * @ensures <pre>
+     * $this.heap[0, $this.heapSize) = #$this.heap[0, #$this.heapSize) *
+     *   [concatenation of the entries of #$this.producerBuffers]  and
+     * [every buffer in $this.producerBuffers is empty]
+     * </pre>
+     */
+    private void absorbProducerBuffers() {
+        if (this.producerBuffers != null) {
+            for (ArrayList<T> buffer : this.producerBuffers) {
+                this.ensureCapacity(this.heapSize + buffer.size());
+                for (T x : buffer) {
+                    this.heap[this.heapSize] = x;
+                    this.heapSize++;
+                }
+            }
+            this.clearProducerBuffers();
+        }
+    }
+
+    /*
+     * Invariant checking configuration ---------------------------------------
+     */
+
+    /**
+     * Sets how much of the convention all machines check when assertions are
+     * enabled.
+     *
+     * @param level
+     *            the new check level
+     * @ensures [the check level is level]
+     */
+    public static void setInvariantCheckLevel(CheckLevel level) {
+        assert level != null : "Violation of: level is not null";
+        checkLevel = level;
+    }
 
+    /**
+     * Reports how much of the convention all machines check when assertions
+     * are enabled.
+     *
+     * @return the current check level
+     */
+    public static CheckLevel invariantCheckLevel() {
+        return checkLevel;
+    }
+
+    /**
+     * Sets the number of changing operations between whole-convention checks
+     * at {@code CheckLevel.SAMPLED}.
+     *
+     * @param interval
+     *            the new sample interval
+     * @requires interval > 0
+     * @ensures [the sample interval is interval]
+     */
+    public static void setInvariantSampleInterval(int interval) {
+        assert interval > 0 : "Violation of: interval > 0";
+        sampleInterval = interval;
+    }
+
+    /**
+     * Reports the number of changing operations between whole-convention
+     * checks at {@code CheckLevel.SAMPLED}.
+     *
+     * @return the current sample interval
+     */
+    public static int invariantSampleInterval() {
+        return sampleInterval;
+    }
+
+    /*
+     * Storage retention configuration ----------------------------------------
+     */
+
+    /**
+     * Sets the retention cap of {@code this}: the longest heap array that
+     * {@code clear} and {@code transferFrom} keep for reuse instead of
+     * replacing it with a new, short one. The default is
+     * {@value #DEFAULT_RETENTION_CAP} entries, or the value of the
+     * {@code SortingMachine5a.retentionCap} system property.
+     *
+     * @param cap
+     *            the new retention cap, in entries
+     * @requires cap >= 0
+     * @ensures [the retention cap of this is cap]
+     */
+    public final void setRetentionCap(int cap) {
+        assert cap >= 0 : "Violation of: cap >= 0";
+        this.retentionCap = cap;
+    }
+
+    /**
+     * Reports the retention cap of {@code this}.
+     *
+     * @return the retention cap, in entries
+     */
+    public final int retentionCap() {
+        return this.retentionCap;
     }
 
     /*
@@ -474,6 +1158,19 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
      *            total preorder for sorting
      */
     public SortingMachine5a(Comparator<T> order) {
+        this(order, false);
+    }
+
+    /**
+     * Constructor from order and live-insertion flag.
+     *
+     * @param order
+     *            total preorder for sorting
+     * @param liveInsertion
+     *            whether {@code add} is allowed in extraction mode
+     */
+    public SortingMachine5a(Comparator<T> order, boolean liveInsertion) {
+        this.liveInsertion = liveInsertion;
         this.createNewRep(order);
         assert this.conventionHolds();
     }
@@ -486,8 +1183,9 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
     @Override
     public final SortingMachine<T> newInstance() {
         try {
-            return this.getClass().getConstructor(Comparator.class)
-                    .newInstance(this.machineOrder);
+            return this.getClass()
+                    .getConstructor(Comparator.class, boolean.class)
+                    .newInstance(this.machineOrder, this.liveInsertion);
         } catch (ReflectiveOperationException e) {
             throw new AssertionError(
                     "Cannot construct object of type " + this.getClass());
@@ -513,11 +1211,23 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
          * compiled.
          */
         SortingMachine5a<T> localSource = (SortingMachine5a<T>) source;
+        localSource.absorbProducerBuffers();
+        this.clearProducerBuffers();
+        /*
+         * The arrays are exchanged rather than dropped, so source can reuse
+         * the old array of this (subject to its own retention cap)
+         */
+        T[] oldHeap = this.heap;
+        int oldHeapSize = this.heapSize;
         this.insertionMode = localSource.insertionMode;
         this.machineOrder = localSource.machineOrder;
-        this.entries = localSource.entries;
+        this.resetHeapOrder();
+        this.liveInsertion = localSource.liveInsertion;
         this.heap = localSource.heap;
         this.heapSize = localSource.heapSize;
+        localSource.heap = oldHeap;
+        localSource.heapSize = oldHeapSize;
+        this.recordChange(ALL_TOUCHED);
         localSource.createNewRep(localSource.machineOrder);
         assert this.conventionHolds();
         assert localSource.conventionHolds();
@@ -530,10 +1240,26 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
     @Override
     public final void add(T x) {
         assert x != null : "Violation of: x is not null";
-        assert this.isInInsertionMode() : "Violation of: this.insertion_mode";
+        assert this.liveInsertion
+                || this.isInInsertionMode() : "Violation of: this.insertion_mode";
 
-        //add
-        this.entries.enqueue(x);
+        /*
+         * Grows the array by doubling when it is full and puts x after the
+         * last entry; in extraction mode (live insertion), sifts it up
+         */
+        this.ensureCapacity(this.heapSize + 1);
+        this.heap[this.heapSize] = x;
+        if (this.insertionMode) {
+            this.recordChange(UNTOUCHED);
+            this.heapSize++;
+        } else {
+            int levels = siftUp(this.heap, this.heapSize, this.heapOrder);
+            if (this.stats != null) {
+                this.stats.recordExchanges(levels);
+            }
+            this.recordChange(this.heapSize);
+            this.heapSize++;
+        }
         assert this.conventionHolds();
     }
 
@@ -541,12 +1267,28 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
     public final void changeToExtractionMode() {
         assert this.isInInsertionMode() : "Violation of: this.insertion_mode";
 
+        long startNanos = 0;
+        long comparisonsBefore = 0;
+        if (this.stats != null) {
+            startNanos = System.nanoTime();
+            comparisonsBefore = this.stats.comparisons();
+        }
+        /*
+         * Producer buffers are appended unsorted; heapify is linear, which is
+         * cheaper than sorting them and merging the runs
+         */
+        this.absorbProducerBuffers();
         //change insertionMode to false
         this.insertionMode = false;
-        //make it a heap
-        this.heap = buildHeap(this.entries, this.machineOrder);
-        //set heapSize
-        this.heapSize = this.heap.length;
+        //make it a heap, in place
+        int levels = heapify(this.heap, 0, this.heapSize - 1,
+                this.heapOrder);
+        this.recordChange(ALL_TOUCHED);
+        if (this.stats != null) {
+            this.stats.recordExchanges(levels);
+            this.stats.recordExtractionModeChange(this.heapSize,
+                    comparisonsBefore, startNanos);
+        }
         assert this.conventionHolds();
     }
 
@@ -562,10 +1304,22 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
          * of the heap, sifts the old last item now at index 0 until it is back
          * in proper location.
          */
+        long startNanos = 0;
+        Event event = null;
+        if (this.stats != null) {
+            event = this.stats.startRemoveFirst();
+            startNanos = System.nanoTime();
+        }
         T result = this.heap[0];
         exchangeEntries(this.heap, 0, this.heapSize - 1);
         this.heapSize--;
-        siftDown(this.heap, 0, this.heapSize - 1, this.machineOrder);
+        this.heap[this.heapSize] = null;
+        int depth = siftDown(this.heap, 0, this.heapSize - 1, this.heapOrder);
+        this.recordChange(0);
+        if (this.stats != null) {
+            this.stats.recordRemoveFirst(event, depth, this.heapSize,
+                    startNanos);
+        }
         assert this.conventionHolds();
         return result;
     }
@@ -586,23 +1340,212 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
 
     @Override
     public final int size() {
+        this.absorbProducerBuffers();
         assert this.conventionHolds();
-        int size;
-        //if it is in insertion mode, use the length of the Queue.
-        if (this.insertionMode) {
-            size = this.entries.length();
-            //if not, use the instance variable heapSize.
-        } else {
-            size = this.heapSize;
-        }
-        return size;
+        //both modes keep the entries in heap[0, heapSize)
+        return this.heapSize;
     }
 
     @Override
     public final Iterator<T> iterator() {
+        this.absorbProducerBuffers();
         return new SortingMachine5aIterator();
     }
 
+    /**
+     * Returns an iterator over the entries of {@code this.contents} in the
+     * order removeFirst would remove them, without changing {@code this}.
+     * The first k entries cost O(k log k) time and O(k) extra space.
+     *
+     * @return an iterator over this.contents in sorted order
+     * @requires <pre>
+     * not this.insertion_mode  and
+     * [this is not changed while the iterator is in use]
+     * </pre>
+     * @ensures <pre>
+     * [sortedIterator returns the entries of this.contents in order by the
+     *  relation computed by this.order().compare method]
+     * </pre>
+     */
+    public final Iterator<T> sortedIterator() {
+        assert !this
+                .isInInsertionMode() : "Violation of: not this.insertion_mode";
+        return new SortedIterator();
+    }
+
+    /*
+     * Statistics methods -----------------------------------------------------
+     */
+
+    /**
+     * Enables operation statistics on {@code this} and returns them; returns
+     * the existing statistics if they are already enabled. Statistics belong
+     * to this machine object and are kept across {@code clear} and
+     * {@code transferFrom}.
+     *
+     * @return the statistics of this
+     */
+    public final SortingMachineStats enableStatistics() {
+        if (this.stats == null) {
+            this.stats = new SortingMachineStats();
+            this.resetHeapOrder();
+        }
+        return this.stats;
+    }
+
+    /**
+     * Reports the operation statistics of {@code this}.
+     *
+     * @return the statistics of this, or null if they are not enabled
+     */
+    public final SortingMachineStats statistics() {
+        return this.stats;
+    }
+
+    /*
+     * Concurrent insertion methods -------------------------------------------
+     */
+
+    /**
+     * Enables {@code concurrentAdd} on {@code this}; has no effect if it is
+     * already enabled.
+     *
+     * @requires [no other thread is using this]
+     */
+    public final void enableConcurrentInsertion() {
+        if (this.producerBuffers == null) {
+            ConcurrentLinkedQueue<ArrayList<T>> buffers =
+                    new ConcurrentLinkedQueue<>();
+            this.producerBuffers = buffers;
+            this.producerBuffer = ThreadLocal.withInitial(() -> {
+                ArrayList<T> buffer = new ArrayList<>();
+                buffers.add(buffer);
+                return buffer;
+            });
+        }
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Disables {@code concurrentAdd} on {@code this}, first moving the entries
+     * added by it into the machine; has no effect if it is not enabled. The
+     * calling thread's buffer is removed from its thread-local map; other
+     * threads' buffers are already empty, with no backing array, and their
+     * thread-local entries are reclaimed once the machine is unreachable.
+     *
+     * @requires [no other thread is using this]
+     */
+    public final void disableConcurrentInsertion() {
+        if (this.producerBuffers != null) {
+            if (this.insertionMode) {
+                this.absorbProducerBuffers();
+            }
+            this.producerBuffer.remove();
+            this.producerBuffer = null;
+            this.producerBuffers = null;
+        }
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Adds {@code x} to the contents of {@code this}. Unlike {@code add}, this
+     * may be called by several threads at the same time: each thread appends
+     * to its own buffer, with no lock on the path.
+     *
+     * @param x
+     *            the element to be added
+     * @aliases reference {@code x}
+     * @updates this.contents
+     * @requires <pre>
+     * this.insertion_mode  and
+     * [enableConcurrentInsertion was called on this, and
+     *  disableConcurrentInsertion has not been called since]  and
+     * [the only concurrent calls on this are to concurrentAdd]
+     * </pre>
+     * @ensures this.contents = #this.contents union {x}
+     */
+    public final void concurrentAdd(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.producerBuffer != null : ""
+                + "Violation of: enableConcurrentInsertion was called on this";
+        assert this.insertionMode : "Violation of: this.insertion_mode";
+
+        this.producerBuffer.get().add(x);
+    }
+
+    /*
+     * Batch methods ----------------------------------------------------------
+     */
+
+    /**
+     * Removes the {@code n} smallest entries of {@code this.contents} and puts
+     * them, in order, in {@code dest[0, n)}.
+     *
+     * <p>
+     * Entries are extracted in one loop without the per-entry checks of
+     * {@code removeFirst}, in place: each removed root is replaced by the last
+     * heap entry, which is sifted down, so no scratch space is allocated.
+     * </p>
+     *
+     * @param n
+     *            the number of entries to remove
+     * @param dest
+     *            the array receiving the removed entries
+     * @updates this.contents, dest
+     * @requires <pre>
+     * not this.insertion_mode  and  0 <= n  and  n <= |this.contents|  and
+     * n <= |dest|
+     * </pre>
+     * @ensures <pre>
+     * [dest[0, n) are the n smallest entries of #this.contents, in order]  and
+     * this.contents = #this.contents \ multiset_entries(dest[0, n))  and
+     * [the other entries in dest are the same as in #dest]
+     * </pre>
+     */
+    public final void removeFirst(int n, T[] dest) {
+        assert dest != null : "Violation of: dest is not null";
+        assert !this
+                .isInInsertionMode() : "Violation of: not this.insertion_mode";
+        assert 0 <= n : "Violation of: 0 <= n";
+        assert n <= this.size() : "Violation of: n <= |this.contents|";
+        assert n <= dest.length : "Violation of: n <= |dest|";
+
+        for (int i = 0; i < n; i++) {
+            dest[i] = this.removeRoot();
+        }
+        this.recordChange(0);
+        assert this.conventionHolds();
+    }
+
+    /**
+     * Removes every entry of {@code this.contents} and adds them, in order, to
+     * {@code c}, extracting them in place as {@code removeFirst(int, T[])}
+     * does.
+     *
+     * @param c
+     *            the collection receiving the removed entries
+     * @return the number of entries removed
+     * @updates this.contents, c
+     * @requires not this.insertion_mode
+     * @ensures <pre>
+     * drainTo = |#this.contents|  and  this.contents = {}  and
+     * [c is #c with the entries of #this.contents added in order]
+     * </pre>
+     */
+    public final int drainTo(Collection<? super T> c) {
+        assert c != null : "Violation of: c is not null";
+        assert !this
+                .isInInsertionMode() : "Violation of: not this.insertion_mode";
+
+        int count = this.heapSize;
+        while (this.heapSize > 0) {
+            c.add(this.removeRoot());
+        }
+        this.recordChange(ALL_TOUCHED);
+        assert this.conventionHolds();
+        return count;
+    }
+
     /**
      * Implementation of {@code Iterator} interface for
      * {@code SortingMachine5a}.
@@ -610,12 +1553,7 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
     private final class SortingMachine5aIterator implements Iterator<T> {
 
         /**
-         * Representation iterator when in insertion mode.
-         */
-        private Iterator<T> queueIterator;
-
-        /**
-         * Representation iterator count when in extraction mode.
+         * Representation iterator count.
          */
         private int arrayCurrentIndex;
 
@@ -623,22 +1561,14 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
          * No-argument constructor.
          */
         private SortingMachine5aIterator() {
-            if (SortingMachine5a.this.insertionMode) {
-                this.queueIterator = SortingMachine5a.this.entries.iterator();
-            } else {
-                this.arrayCurrentIndex = 0;
-            }
+            this.arrayCurrentIndex = 0;
             assert SortingMachine5a.this.conventionHolds();
         }
 
         @Override
         public boolean hasNext() {
-            boolean hasNext;
-            if (SortingMachine5a.this.insertionMode) {
-                hasNext = this.queueIterator.hasNext();
-            } else {
-                hasNext = this.arrayCurrentIndex < SortingMachine5a.this.heapSize;
-            }
+            boolean hasNext = this.arrayCurrentIndex < SortingMachine5a.this
+                    .heapSize;
             assert SortingMachine5a.this.conventionHolds();
             return hasNext;
         }
@@ -654,13 +1584,8 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
                  */
                 throw new NoSuchElementException();
             }
-            T next;
-            if (SortingMachine5a.this.insertionMode) {
-                next = this.queueIterator.next();
-            } else {
-                next = SortingMachine5a.this.heap[this.arrayCurrentIndex];
-                this.arrayCurrentIndex++;
-            }
+            T next = SortingMachine5a.this.heap[this.arrayCurrentIndex];
+            this.arrayCurrentIndex++;
             assert SortingMachine5a.this.conventionHolds();
             return next;
         }
@@ -673,4 +1598,140 @@ public class SortingMachine5a<T> extends SortingMachineSecondary<T> {
 
     }
 
+    /**
+     * Sorted-order {@code Iterator} for {@code SortingMachine5a} in extraction
+     * mode. It keeps a priority queue (a binary heap of indices into
+     * {@code heap}) of the entries that may come next: initially the root, and
+     * after an entry is returned, its children.
+     */
+    private final class SortedIterator implements Iterator<T> {
+
+        /**
+         * Initial length of {@code frontier}.
+         */
+        private static final int INITIAL_FRONTIER_LENGTH = 16;
+
+        /**
+         * Indices into {@code heap} of the entries that may come next, as a
+         * binary heap ordered by those entries.
+         */
+        private int[] frontier;
+
+        /**
+         * Number of indices in {@code frontier}.
+         */
+        private int frontierSize;
+
+        /**
+         * No-argument constructor.
+         */
+        private SortedIterator() {
+            this.frontier = new int[INITIAL_FRONTIER_LENGTH];
+            this.frontierSize = 0;
+            if (SortingMachine5a.this.heapSize > 0) {
+                this.push(0);
+            }
+        }
+
+        /**
+         * Reports whether the entry at heap index {@code i} comes before the
+         * entry at heap index {@code j}.
+         *
+         * @param i
+         *            one heap index
+         * @param j
+         *            the other heap index
+         * @return true iff heap[i] is smaller than heap[j]
+         */
+        private boolean less(int i, int j) {
+            return SortingMachine5a.this.machineOrder.compare(
+                    SortingMachine5a.this.heap[i],
+                    SortingMachine5a.this.heap[j]) < 0;
+        }
+
+        /**
+         * Adds heap index {@code i} to {@code frontier}.
+         *
+         * @param i
+         *            the heap index to add
+         */
+        private void push(int i) {
+            if (this.frontierSize == this.frontier.length) {
+                this.frontier = Arrays.copyOf(this.frontier,
+                        2 * this.frontier.length);
+            }
+            int child = this.frontierSize;
+            this.frontierSize++;
+            while (child > 0
+                    && this.less(i, this.frontier[(child - 1) / 2])) {
+                this.frontier[child] = this.frontier[(child - 1) / 2];
+                child = (child - 1) / 2;
+            }
+            this.frontier[child] = i;
+        }
+
+        /**
+         * Removes and returns the heap index of the smallest entry in
+         * {@code frontier}.
+         *
+         * @return the heap index removed
+         */
+        private int pop() {
+            int result = this.frontier[0];
+            this.frontierSize--;
+            int moved = this.frontier[this.frontierSize];
+            int hole = 0;
+            int child = 1;
+            while (child < this.frontierSize) {
+                if (child + 1 < this.frontierSize && this
+                        .less(this.frontier[child + 1], this.frontier[child])) {
+                    child++;
+                }
+                if (this.less(this.frontier[child], moved)) {
+                    this.frontier[hole] = this.frontier[child];
+                    hole = child;
+                    child = 2 * hole + 1;
+                } else {
+                    child = this.frontierSize;
+                }
+            }
+            this.frontier[hole] = moved;
+            return result;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.frontierSize > 0;
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            int i = this.pop();
+            int left = 2 * i + 1;
+            if (left < SortingMachine5a.this.heapSize) {
+                this.push(left);
+                if (left + 1 < SortingMachine5a.this.heapSize) {
+                    this.push(left + 1);
+                }
+            }
+            return SortingMachine5a.this.heap[i];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
 }
@@ -0,0 +1,881 @@
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.sortingmachine.SortingMachine;
+import components.sortingmachine.SortingMachineSecondary;
+
+/**
+ * {@code SortingMachine} represented as a {@code Queue} and an array (using an
+ * embedding of radix sort), with implementations of primary methods.
+ *
+ * <p>
+ * The entries are sorted by a {@link RadixKey} strategy when the machine
+ * changes to extraction mode: MSD radix sort for {@code String} keys and LSD
+ * radix sort for {@code int}/{@code long} keys. Both run in time linear in the
+ * total size of the keys, after which {@code removeFirst} is O(1).
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code SortingMachine} entries
+ * @mathdefinitions <pre>
+ * IS_TOTAL_PREORDER (
+ *   r: binary relation on T
+ *  ) : boolean is
+ *  for all x, y, z: T
+ *   ((r(x, y) or r(y, x))  and
+ *    (if (r(x, y) and r(y, z)) then r(x, z)))
+ *
+ * IS_CONSISTENT_KEY (
+ *   k: radix key strategy for T,
+ *   r: binary relation on T
+ *  ) : boolean is
+ *  [for all x, y: T, the keys k computes for x and y are in order (by the
+ *   radix order of k) iff r(x, y)]
+ * </pre>
+ * @convention <pre>
+ * IS_TOTAL_PREORDER([relation computed by $this.machineOrder.compare method])  and
+ * IS_CONSISTENT_KEY($this.keyStrategy,
+ *   [relation computed by $this.machineOrder.compare method])  and
+ * if $this.insertionMode then
+ *   $this.front = 0  and  $this.sorted = <>
+ * else
+ *   $this.entries = <>  and
+ *   0 <= $this.front <= |$this.sorted|  and
+ *   for all i: integer
+ *       where ($this.front <= i  and  i < |$this.sorted|)
+ *     ([entry at position i in $this.sorted is not null])  and
+ *   [$this.sorted[$this.front, |$this.sorted|) is sorted according to
+ *    the relation computed by $this.machineOrder.compare method]
+ * </pre>
+ * @correspondence <pre>
+ * if $this.insertionMode then
+ *   this = (true, $this.machineOrder, multiset_entries($this.entries))
+ * else
+ *   this = (false, $this.machineOrder,
+ *     multiset_entries($this.sorted[$this.front, |$this.sorted|)))
+ * </pre>
+ *
+ * @author Put your name here
+ *
+ */
+public class SortingMachine6<T> extends SortingMachineSecondary<T> {
+
+    /**
+     * Strategy that extracts a radix key from each entry and sorts an array
+     * of entries by those keys.
+     *
+     * @param <T>
+     *            type of entries
+     */
+    public interface RadixKey<T> {
+
+        /**
+         * Sorts the first {@code length} entries of {@code array} by the keys
+         * this strategy extracts from them.
+         *
+         * @param array
+         *            the array to be sorted
+         * @param length
+         *            the number of entries to sort
+         * @updates array
+         * @requires <pre>
+         * 0 <= length <= |array|  and
+         * for all i: integer
+         *     where (0 <= i  and  i < length)
+         *   ([entry at position i in array is not null])
+         * </pre>
+         * @ensures <pre>
+         * perms(array[0, length), #array[0, length))  and
+         * [array[0, length) is sorted by the keys of its entries]  and
+         * [the other entries in array are the same as in #array]
+         * </pre>
+         */
+        void sort(T[] array, int length);
+
+    }
+
+    /**
+     * Returns a {@code RadixKey} that sorts entries by a {@code String} key
+     * with MSD radix sort, comparing {@code char}s as unsigned values (the
+     * order of {@link String#compareTo}).
+     *
+     * @param <T>
+     *            type of entries
+     * @param key
+     *            the function computing the key of an entry
+     * @return the key strategy
+     */
+    public static <T> RadixKey<T> stringKey(Function<T, String> key) {
+        assert key != null : "Violation of: key is not null";
+        return new StringKey<T>(key);
+    }
+
+    /**
+     * Returns a {@code RadixKey} that sorts entries by an {@code int} key, in
+     * increasing signed order, with LSD radix sort.
+     *
+     * @param <T>
+     *            type of entries
+     * @param key
+     *            the function computing the key of an entry
+     * @return the key strategy
+     */
+    public static <T> RadixKey<T> intKey(ToIntFunction<T> key) {
+        assert key != null : "Violation of: key is not null";
+        return new LongKey<T>(
+                x -> (key.applyAsInt(x) ^ Integer.MIN_VALUE) & 0xFFFFFFFFL,
+                Integer.BYTES);
+    }
+
+    /**
+     * Returns a {@code RadixKey} that sorts entries by a {@code long} key, in
+     * increasing signed order, with LSD radix sort.
+     *
+     * @param <T>
+     *            type of entries
+     * @param key
+     *            the function computing the key of an entry
+     * @return the key strategy
+     */
+    public static <T> RadixKey<T> longKey(ToLongFunction<T> key) {
+        assert key != null : "Violation of: key is not null";
+        return new LongKey<T>(x -> key.applyAsLong(x) ^ Long.MIN_VALUE,
+                Long.BYTES);
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Number of distinct values of one radix digit (one byte).
+     */
+    private static final int RADIX = 256;
+
+    /**
+     * Mask selecting the low byte of a key.
+     */
+    private static final int BYTE_MASK = 0xFF;
+
+    /**
+     * Subarrays at most this long are finished with insertion sort instead of
+     * another radix pass.
+     */
+    private static final int INSERTION_SORT_CUTOFF = 15;
+
+    /**
+     * Order.
+     */
+    private Comparator<T> machineOrder;
+
+    /**
+     * Key extraction and sorting strategy.
+     */
+    private RadixKey<T> keyStrategy;
+
+    /**
+     * Insertion mode.
+     */
+    private boolean insertionMode;
+
+    /**
+     * Entries.
+     */
+    private Queue<T> entries;
+
+    /**
+     * Sorted entries.
+     */
+    private T[] sorted;
+
+    /**
+     * Index of the first entry of {@code sorted} not yet removed.
+     */
+    private int front;
+
+    /**
+     * {@code RadixKey} on {@code String} keys, sorted with MSD radix sort one
+     * byte of a {@code char} at a time.
+     *
+     * @param <T>
+     *            type of entries
+     */
+    private static final class StringKey<T> implements RadixKey<T> {
+
+        /**
+         * Key function.
+         */
+        private final Function<T, String> key;
+
+        /**
+         * Constructor from key function.
+         *
+         * @param key
+         *            the function computing the key of an entry
+         */
+        private StringKey(Function<T, String> key) {
+            this.key = key;
+        }
+
+        @Override
+        public void sort(T[] array, int length) {
+            /*
+             * Keys are extracted once and permuted alongside the entries, so
+             * the key function is called exactly once per entry.
+             */
+            String[] keys = new String[length];
+            for (int i = 0; i < length; i++) {
+                keys[i] = this.key.apply(array[i]);
+                assert keys[i] != null : "Violation of: key is not null";
+            }
+            T[] auxEntries = newArray(length);
+            String[] auxKeys = new String[length];
+            msdSort(array, keys, auxEntries, auxKeys, length);
+        }
+
+    }
+
+    /**
+     * {@code RadixKey} on keys packed into unsigned {@code long}s, sorted with
+     * LSD radix sort one byte at a time.
+     *
+     * @param <T>
+     *            type of entries
+     */
+    private static final class LongKey<T> implements RadixKey<T> {
+
+        /**
+         * Key function; its results are compared as unsigned values.
+         */
+        private final ToLongFunction<T> key;
+
+        /**
+         * Number of low-order bytes of the key that can be non-zero.
+         */
+        private final int keyBytes;
+
+        /**
+         * Constructor from key function and key width.
+         *
+         * @param key
+         *            the function computing the unsigned key of an entry
+         * @param keyBytes
+         *            the number of low-order bytes of the key in use
+         */
+        private LongKey(ToLongFunction<T> key, int keyBytes) {
+            this.key = key;
+            this.keyBytes = keyBytes;
+        }
+
+        @Override
+        public void sort(T[] array, int length) {
+            long[] keys = new long[length];
+            for (int i = 0; i < length; i++) {
+                keys[i] = this.key.applyAsLong(array[i]);
+            }
+            lsdSort(array, keys, length, this.keyBytes);
+        }
+
+    }
+
+    /**
+     * Creates an array of {@code T} of the given length.
+     *
+     * @param <T>
+     *            type of array entries
+     * @param length
+     *            the length of the array
+     * @return the new array
+     * @requires length >= 0
+     * @ensures |newArray| = length
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T[] newArray(int length) {
+        /*
+         * With "new T[...]" in place of "new Object[...]" it does not compile;
+         * as shown, it results in a warning about an unchecked cast, though it
+         * cannot fail.
+         */
+        return (T[]) (new Object[length]);
+    }
+
+    /**
+     * Returns byte {@code d} of {@code s}, where bytes are numbered from the
+     * high byte of the first {@code char}, or -1 if {@code s} has no such byte.
+     *
+     * @param s
+     *            the key
+     * @param d
+     *            the byte position
+     * @return the byte at position d, or -1 past the end of s
+     * @requires d >= 0
+     * @ensures <pre>
+     * if d / 2 < |s| then
+     *   digit = [byte d mod 2 (high first) of the char at position d / 2 in s]
+     * else
+     *   digit = -1
+     * </pre>
+     */
+    private static int digit(String s, int d) {
+        int charIndex = d >> 1;
+        int digit = -1;
+        if (charIndex < s.length()) {
+            char c = s.charAt(charIndex);
+            if ((d & 1) == 0) {
+                digit = c >>> Byte.SIZE;
+            } else {
+                digit = c & BYTE_MASK;
+            }
+        }
+        return digit;
+    }
+
+    /**
+     * Returns the first byte position, at or after {@code d}, at which the
+     * keys in {@code keys[lo, hi]} do not all have the same byte, or -1 if
+     * they are all equal.
+     *
+     * @param keys
+     *            the keys
+     * @param lo
+     *            the index of the first key
+     * @param hi
+     *            the index of the last key
+     * @param d
+     *            the first byte position to look at
+     * @return the first position where the keys differ, or -1
+     * @requires <pre>
+     * 0 <= lo < hi < |keys|  and  d >= 0  and
+     * [all keys[lo, hi] agree on their first d bytes]
+     * </pre>
+     * @ensures <pre>
+     * if [all keys[lo, hi] are equal] then
+     *   firstDifference = -1
+     * else
+     *   firstDifference >= d  and
+     *   [all keys[lo, hi] agree on their first firstDifference bytes, and
+     *    not all on byte firstDifference]
+     * </pre>
+     */
+    private static int firstDifference(String[] keys, int lo, int hi, int d) {
+        int position = d;
+        boolean differs = false;
+        boolean exhausted = false;
+        while (!differs && !exhausted) {
+            int first = digit(keys[lo], position);
+            int i = lo + 1;
+            while (i <= hi && digit(keys[i], position) == first) {
+                i++;
+            }
+            if (i <= hi) {
+                differs = true;
+            } else if (first < 0) {
+                exhausted = true;
+            } else {
+                position++;
+            }
+        }
+        int firstDifference = -1;
+        if (differs) {
+            firstDifference = position;
+        }
+        return firstDifference;
+    }
+
+    /**
+     * Sorts {@code entries[0, length)} by the corresponding {@code keys} using
+     * MSD radix sort, without recursion.
+     *
+     * <p>
+     * Each range still to be sorted is kept on a stack with the number of
+     * leading bytes its keys are known to share. Before distributing a range,
+     * the bytes all its keys share are skipped in one scan, so a long common
+     * prefix (or, for ASCII keys, the high byte of every {@code char}) costs
+     * no distribution pass, and a range of equal keys is left as it is.
+     * </p>
+     *
+     * @param <T>
+     *            type of entries
+     * @param entries
+     *            the entries to sort
+     * @param keys
+     *            the keys of the entries, permuted alongside them
+     * @param auxEntries
+     *            scratch space for entries
+     * @param auxKeys
+     *            scratch space for keys
+     * @param length
+     *            the number of entries to sort
+     * @updates entries, keys, auxEntries, auxKeys
+     * @requires <pre>
+     * |keys| = length  and  length <= |entries|  and
+     * |auxEntries| >= length  and  |auxKeys| >= length
+     * </pre>
+     * @ensures <pre>
+     * [entries[0, length) and keys are permuted identically so that keys is
+     *  sorted]
+     * </pre>
+     */
+    private static <T> void msdSort(T[] entries, String[] keys, T[] auxEntries,
+            String[] auxKeys, int length) {
+        /*
+         * Each pending range is {lo, hi, d}: keys[lo, hi] agree on their
+         * first d bytes
+         */
+        Deque<int[]> pending = new ArrayDeque<>();
+        if (length > 1) {
+            pending.push(new int[] { 0, length - 1, 0 });
+        }
+        while (!pending.isEmpty()) {
+            int[] range = pending.pop();
+            int lo = range[0];
+            int hi = range[1];
+            if (hi <= lo + INSERTION_SORT_CUTOFF) {
+                insertionSort(entries, keys, lo, hi);
+            } else {
+                int d = firstDifference(keys, lo, hi, range[2]);
+                if (d >= 0) {
+                    /*
+                     * count[r + 2] counts keys whose digit is r; digit -1 (key
+                     * exhausted) is counted at 1 so that those keys come first
+                     */
+                    int[] count = new int[RADIX + 2];
+                    for (int i = lo; i <= hi; i++) {
+                        count[digit(keys[i], d) + 2]++;
+                    }
+                    for (int r = 0; r < RADIX + 1; r++) {
+                        count[r + 1] += count[r];
+                    }
+                    for (int i = lo; i <= hi; i++) {
+                        int c = digit(keys[i], d) + 1;
+                        auxEntries[count[c]] = entries[i];
+                        auxKeys[count[c]] = keys[i];
+                        count[c]++;
+                    }
+                    System.arraycopy(auxEntries, 0, entries, lo, hi - lo + 1);
+                    System.arraycopy(auxKeys, 0, keys, lo, hi - lo + 1);
+                    /*
+                     * After distribution count[r] is where digit r - 1 ends,
+                     * so [count[r], count[r + 1]) holds digit r; exhausted
+                     * keys (before count[0]) are all equal and need no
+                     * further sorting
+                     */
+                    for (int r = 0; r < RADIX; r++) {
+                        if (count[r + 1] - count[r] > 1) {
+                            pending.push(new int[] { lo + count[r],
+                                    lo + count[r + 1] - 1, d + 1 });
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts {@code entries[lo, hi]} by the corresponding {@code keys} using
+     * insertion sort.
+     *
+     * @param <T>
+     *            type of entries
+     * @param entries
+     *            the entries to sort
+     * @param keys
+     *            the keys of the entries, permuted alongside them
+     * @param lo
+     *            the index of the first entry to sort
+     * @param hi
+     *            the index of the last entry to sort
+     * @updates entries, keys
+     * @requires |entries| = |keys|  and  0 <= lo  and  hi < |entries|
+     * @ensures <pre>
+     * [entries[lo, hi] and keys[lo, hi] are permuted identically so that
+     *  keys[lo, hi] is sorted]
+     * </pre>
+     */
+    private static <T> void insertionSort(T[] entries, String[] keys, int lo,
+            int hi) {
+        for (int i = lo + 1; i <= hi; i++) {
+            T entry = entries[i];
+            String key = keys[i];
+            int j = i;
+            while (j > lo && keys[j - 1].compareTo(key) > 0) {
+                entries[j] = entries[j - 1];
+                keys[j] = keys[j - 1];
+                j--;
+            }
+            entries[j] = entry;
+            keys[j] = key;
+        }
+    }
+
+    /**
+     * Sorts {@code entries[0, length)} by the corresponding unsigned
+     * {@code keys} using LSD radix sort.
+     *
+     * @param <T>
+     *            type of entries
+     * @param entries
+     *            the entries to sort
+     * @param keys
+     *            the unsigned keys of the entries, permuted alongside them
+     * @param length
+     *            the number of entries to sort
+     * @param keyBytes
+     *            the number of low-order bytes of the keys in use
+     * @updates entries, keys
+     * @requires <pre>
+     * |keys| = length  and  length <= |entries|  and
+     * 1 <= keyBytes <= 8  and
+     * [all bytes of keys above the keyBytes low-order ones are zero]
+     * </pre>
+     * @ensures <pre>
+     * [entries[0, length) and keys are permuted identically so that keys is
+     *  sorted as unsigned values]
+     * </pre>
+     */
+    private static <T> void lsdSort(T[] entries, long[] keys, int length,
+            int keyBytes) {
+        T[] auxEntries = newArray(length);
+        long[] auxKeys = new long[length];
+        for (int b = 0; b < keyBytes; b++) {
+            int shift = b * Byte.SIZE;
+            int[] count = new int[RADIX + 1];
+            for (int i = 0; i < length; i++) {
+                count[(int) (keys[i] >>> shift) & BYTE_MASK]++;
+            }
+            /*
+             * A pass in which every key has the same byte would leave the
+             * order unchanged, so it is skipped
+             */
+            boolean allSame = false;
+            for (int r = 0; r < RADIX && !allSame; r++) {
+                allSame = count[r] == length;
+            }
+            if (!allSame) {
+                for (int r = RADIX; r > 0; r--) {
+                    count[r] = count[r - 1];
+                }
+                count[0] = 0;
+                for (int r = 0; r < RADIX; r++) {
+                    count[r + 1] += count[r];
+                }
+                for (int i = 0; i < length; i++) {
+                    int c = (int) (keys[i] >>> shift) & BYTE_MASK;
+                    auxEntries[count[c]] = entries[i];
+                    auxKeys[count[c]] = keys[i];
+                    count[c]++;
+                }
+                System.arraycopy(auxEntries, 0, entries, 0, length);
+                System.arraycopy(auxKeys, 0, keys, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Checks that the part of the convention repeated below holds for the
+     * current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     * @convention <pre>
+     * if $this.insertionMode then
+     *   $this.front = 0  and  $this.sorted = <>
+     * else
+     *   $this.entries = <>  and
+     *   0 <= $this.front <= |$this.sorted|  and
+     *   for all i: integer
+     *       where ($this.front <= i  and  i < |$this.sorted|)
+     *     ([entry at position i in $this.sorted is not null])  and
+     *   [$this.sorted[$this.front, |$this.sorted|) is sorted according to
+     *    the relation computed by $this.machineOrder.compare method]
+     * </pre>
+     */
+    private boolean conventionHolds() {
+        if (this.insertionMode) {
+            assert this.front == 0 : ""
+                    + "Violation of: if $this.insertionMode then $this.front = 0";
+            assert this.sorted.length == 0 : ""
+                    + "Violation of: if $this.insertionMode then $this.sorted = <>";
+        } else {
+            assert this.entries.length() == 0 : ""
+                    + "Violation of: if not $this.insertionMode then $this.entries = <>";
+            assert 0 <= this.front : ""
+                    + "Violation of: if not $this.insertionMode then 0 <= $this.front";
+            assert this.front <= this.sorted.length : ""
+                    + "Violation of: if not $this.insertionMode then"
+                    + " $this.front <= |$this.sorted|";
+            for (int i = this.front; i < this.sorted.length; i++) {
+                assert this.sorted[i] != null : ""
+                        + "Violation of: if not $this.insertionMode then"
+                        + " all entries in $this.sorted[$this.front,"
+                        + " |$this.sorted|) are not null";
+                assert i == this.front || this.machineOrder
+                        .compare(this.sorted[i - 1], this.sorted[i]) <= 0 : ""
+                                + "Violation of: if not $this.insertionMode then"
+                                + " $this.sorted[$this.front, |$this.sorted|)"
+                                + " is sorted";
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param order
+     *            total preorder for sorting
+     * @param key
+     *            key strategy consistent with {@code order}
+     * @requires <pre>
+     * IS_TOTAL_PREORDER([relation computed by order.compare method])  and
+     * IS_CONSISTENT_KEY(key, [relation computed by order.compare method])
+     * </pre>
+     * @ensures <pre>
+     * $this.insertionMode = true  and
+     * $this.machineOrder = order  and
+     * $this.keyStrategy = key  and
+     * $this.entries = <>  and
+     * $this.sorted = <>  and
+     * $this.front = 0
+     * </pre>
+     */
+    private void createNewRep(Comparator<T> order, RadixKey<T> key) {
+
+        /*
+         * Sets comparing order and key strategy, sets insertion mode to true,
+         * initializes insertion-mode representation queue
+         */
+        this.machineOrder = order;
+        this.keyStrategy = key;
+        this.entries = new Queue1L<T>();
+        this.sorted = newArray(0);
+        this.front = 0;
+        this.insertionMode = true;
+
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor from order and key strategy.
+     *
+     * @param order
+     *            total preorder for sorting
+     * @param key
+     *            key strategy whose order is consistent with {@code order}
+     */
+    public SortingMachine6(Comparator<T> order, RadixKey<T> key) {
+        assert order != null : "Violation of: order is not null";
+        assert key != null : "Violation of: key is not null";
+        this.createNewRep(order, key);
+        assert this.conventionHolds();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final SortingMachine<T> newInstance() {
+        try {
+            return this.getClass()
+                    .getConstructor(Comparator.class, RadixKey.class)
+                    .newInstance(this.machineOrder, this.keyStrategy);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep(this.machineOrder, this.keyStrategy);
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void transferFrom(SortingMachine<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof SortingMachine6<?> : ""
+                + "Violation of: source is of dynamic type SortingMachine6<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * SortingMachine6<?>, and the ? must be T or the call would not have
+         * compiled.
+         */
+        SortingMachine6<T> localSource = (SortingMachine6<T>) source;
+        this.insertionMode = localSource.insertionMode;
+        this.machineOrder = localSource.machineOrder;
+        this.keyStrategy = localSource.keyStrategy;
+        this.entries = localSource.entries;
+        this.sorted = localSource.sorted;
+        this.front = localSource.front;
+        localSource.createNewRep(localSource.machineOrder,
+                localSource.keyStrategy);
+        assert this.conventionHolds();
+        assert localSource.conventionHolds();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.isInInsertionMode() : "Violation of: this.insertion_mode";
+
+        this.entries.enqueue(x);
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void changeToExtractionMode() {
+        assert this.isInInsertionMode() : "Violation of: this.insertion_mode";
+
+        /*
+         * Moves the insertion-mode queue into an array and radix sorts it
+         */
+        T[] array = newArray(this.entries.length());
+        int i = 0;
+        while (this.entries.length() != 0) {
+            array[i] = this.entries.dequeue();
+            i++;
+        }
+        this.keyStrategy.sort(array, array.length);
+        this.sorted = array;
+        this.front = 0;
+        this.insertionMode = false;
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final T removeFirst() {
+        assert !this
+                .isInInsertionMode() : "Violation of: not this.insertion_mode";
+        assert this.size() > 0 : "Violation of: this.contents /= {}";
+
+        /*
+         * Returns the entry at front and clears its slot so the array does not
+         * keep it reachable
+         */
+        T result = this.sorted[this.front];
+        this.sorted[this.front] = null;
+        this.front++;
+        assert this.conventionHolds();
+        return result;
+    }
+
+    @Override
+    public final boolean isInInsertionMode() {
+        assert this.conventionHolds();
+        return this.insertionMode;
+    }
+
+    @Override
+    public final Comparator<T> order() {
+        assert this.conventionHolds();
+        return this.machineOrder;
+    }
+
+    @Override
+    public final int size() {
+        assert this.conventionHolds();
+        int size;
+        if (this.insertionMode) {
+            size = this.entries.length();
+        } else {
+            size = this.sorted.length - this.front;
+        }
+        return size;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new SortingMachine6Iterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for
+     * {@code SortingMachine6}.
+     */
+    private final class SortingMachine6Iterator implements Iterator<T> {
+
+        /**
+         * Representation iterator when in insertion mode.
+         */
+        private Iterator<T> queueIterator;
+
+        /**
+         * Representation iterator count when in extraction mode.
+         */
+        private int arrayCurrentIndex;
+
+        /**
+         * No-argument constructor.
+         */
+        private SortingMachine6Iterator() {
+            if (SortingMachine6.this.insertionMode) {
+                this.queueIterator = SortingMachine6.this.entries.iterator();
+            } else {
+                this.arrayCurrentIndex = SortingMachine6.this.front;
+            }
+            assert SortingMachine6.this.conventionHolds();
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext;
+            if (SortingMachine6.this.insertionMode) {
+                hasNext = this.queueIterator.hasNext();
+            } else {
+                hasNext = this.arrayCurrentIndex < SortingMachine6.this.sorted.length;
+            }
+            assert SortingMachine6.this.conventionHolds();
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            T next;
+            if (SortingMachine6.this.insertionMode) {
+                next = this.queueIterator.next();
+            } else {
+                next = SortingMachine6.this.sorted[this.arrayCurrentIndex];
+                this.arrayCurrentIndex++;
+            }
+            assert SortingMachine6.this.conventionHolds();
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
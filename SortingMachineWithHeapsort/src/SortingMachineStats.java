@@ -0,0 +1,382 @@
+import java.util.Arrays;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Operation counters and timings collected by a sorting machine with
+ * statistics enabled (see {@link SortingMachine5a#enableStatistics}).
+ *
+ * <p>
+ * Counts comparisons made by heap operations, entry exchanges and the depth
+ * reached by each {@code siftDown} (including those of the batch removals
+ * {@code removeFirst(int, T[])} and {@code drainTo}), and times
+ * {@code changeToExtractionMode} and every single {@code removeFirst}.
+ * {@code removeFirst} latencies are kept in a histogram whose bucket
+ * {@code b} holds latencies of at least 2<sup>b-1</sup> and less than
+ * 2<sup>b</sup> nanoseconds (bucket 0 holds zero). The same timings are
+ * emitted as the JFR events {@code SortingMachine.ChangeToExtractionMode} and
+ * {@code SortingMachine.RemoveFirst} when a flight recording enables them.
+ * </p>
+ *
+ * <p>
+ * Statistics are not thread-safe; they are updated only by the machine that
+ * owns them, under the same rules as the machine itself.
+ * </p>
+ *
+ * @author Put your name here
+ *
+ */
+public final class SortingMachineStats {
+
+    /**
+     * JFR event for one {@code changeToExtractionMode}.
+     */
+    @Name("SortingMachine.ChangeToExtractionMode")
+    @Label("Change To Extraction Mode")
+    @Category("Sorting Machine")
+    @Description("Heap built from the entries of a sorting machine")
+    static final class ChangeToExtractionModeEvent extends Event {
+
+        /**
+         * Number of entries in the heap.
+         */
+        @Label("Entries")
+        int entries;
+
+        /**
+         * Number of comparisons made building the heap.
+         */
+        @Label("Comparisons")
+        long comparisons;
+
+    }
+
+    /**
+     * JFR event for one {@code removeFirst}.
+     */
+    @Name("SortingMachine.RemoveFirst")
+    @Label("Remove First")
+    @Category("Sorting Machine")
+    @Description("Smallest entry removed from a sorting machine")
+    static final class RemoveFirstEvent extends Event {
+
+        /**
+         * Number of levels the last entry was sifted down.
+         */
+        @Label("Sift Down Depth")
+        int depth;
+
+        /**
+         * Number of entries left in the machine.
+         */
+        @Label("Remaining Entries")
+        int remaining;
+
+    }
+
+    /**
+     * JFR event for a sorting machine statistics snapshot; not committed by
+     * the machine itself, but available to callers that sample statistics.
+     */
+    @Name("SortingMachine.Statistics")
+    @Label("Sorting Machine Statistics")
+    @Category("Sorting Machine")
+    static final class StatisticsEvent extends Event {
+
+        /**
+         * Comparisons so far.
+         */
+        @Label("Comparisons")
+        long comparisons;
+
+        /**
+         * Exchanges so far.
+         */
+        @Label("Exchanges")
+        long exchanges;
+
+        /**
+         * Total time spent in changeToExtractionMode.
+         */
+        @Label("Extraction Mode Change Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long extractionModeNanos;
+
+    }
+
+    /**
+     * Number of buckets in the {@code removeFirst} latency histogram: one for
+     * zero and one per possible highest bit of a positive {@code long}.
+     */
+    private static final int HISTOGRAM_BUCKETS = Long.SIZE;
+
+    /**
+     * Comparisons made by heap operations.
+     */
+    private long comparisons;
+
+    /**
+     * Entries moved one level in the heap (including the root/last exchange
+     * of each {@code removeFirst}).
+     */
+    private long exchanges;
+
+    /**
+     * Number of {@code siftDown}s recorded.
+     */
+    private long siftDowns;
+
+    /**
+     * Total levels moved by all recorded {@code siftDown}s.
+     */
+    private long siftDownLevels;
+
+    /**
+     * Most levels moved by one {@code siftDown}.
+     */
+    private int maxSiftDownDepth;
+
+    /**
+     * Number of {@code changeToExtractionMode}s recorded.
+     */
+    private long extractionModeChanges;
+
+    /**
+     * Total nanoseconds spent in {@code changeToExtractionMode}.
+     */
+    private long extractionModeNanos;
+
+    /**
+     * {@code removeFirst} latency histogram.
+     */
+    private final long[] removeFirstLatencies = new long[HISTOGRAM_BUCKETS];
+
+    /**
+     * Constructor; only sorting machines create statistics.
+     */
+    SortingMachineStats() {
+    }
+
+    /*
+     * Recording methods (used by the owning machine) -------------------------
+     */
+
+    /**
+     * Records one comparison.
+     */
+    void recordComparison() {
+        this.comparisons++;
+    }
+
+    /**
+     * Records entries moved one level in the heap.
+     *
+     * @param count
+     *            the number of moves
+     */
+    void recordExchanges(int count) {
+        this.exchanges += count;
+    }
+
+    /**
+     * Records the removal of the root: one exchange to take it out, and a
+     * {@code siftDown} of the entry that replaced it.
+     *
+     * @param depth
+     *            the number of levels the replacing entry was sifted down
+     */
+    void recordSiftDown(int depth) {
+        this.siftDowns++;
+        this.siftDownLevels += depth;
+        this.maxSiftDownDepth = Math.max(this.maxSiftDownDepth, depth);
+        this.exchanges += depth + 1;
+    }
+
+    /**
+     * Records a {@code changeToExtractionMode} and emits its JFR event.
+     *
+     * @param entries
+     *            the number of entries in the new heap
+     * @param comparisonsBefore
+     *            the comparison count when the change started
+     * @param startNanos
+     *            {@code System.nanoTime()} when the change started
+     */
+    void recordExtractionModeChange(int entries, long comparisonsBefore,
+            long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        this.extractionModeChanges++;
+        this.extractionModeNanos += nanos;
+        ChangeToExtractionModeEvent event = new ChangeToExtractionModeEvent();
+        if (event.isEnabled()) {
+            event.entries = entries;
+            event.comparisons = this.comparisons - comparisonsBefore;
+            event.commit();
+        }
+    }
+
+    /**
+     * Creates the JFR event for a {@code removeFirst}, started now.
+     *
+     * @return the started event
+     */
+    Event startRemoveFirst() {
+        RemoveFirstEvent event = new RemoveFirstEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Records a {@code removeFirst} and commits its JFR event.
+     *
+     * @param event
+     *            the event from {@code startRemoveFirst}
+     * @param depth
+     *            the number of levels the last entry was sifted down
+     * @param remaining
+     *            the number of entries left in the machine
+     * @param startNanos
+     *            {@code System.nanoTime()} when the removal started
+     */
+    void recordRemoveFirst(Event event, int depth, int remaining,
+            long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        this.recordSiftDown(depth);
+        this.removeFirstLatencies[HISTOGRAM_BUCKETS
+                - Long.numberOfLeadingZeros(Math.max(0, nanos))]++;
+        RemoveFirstEvent removeFirstEvent = (RemoveFirstEvent) event;
+        removeFirstEvent.end();
+        if (removeFirstEvent.shouldCommit()) {
+            removeFirstEvent.depth = depth;
+            removeFirstEvent.remaining = remaining;
+            removeFirstEvent.commit();
+        }
+    }
+
+    /*
+     * Reporting methods ------------------------------------------------------
+     */
+
+    /**
+     * Reports the number of comparisons made by heap operations.
+     *
+     * @return the number of comparisons
+     */
+    public long comparisons() {
+        return this.comparisons;
+    }
+
+    /**
+     * Reports the number of entry exchanges (moves of an entry by one level).
+     *
+     * @return the number of exchanges
+     */
+    public long exchanges() {
+        return this.exchanges;
+    }
+
+    /**
+     * Reports the number of {@code siftDown}s recorded.
+     *
+     * @return the number of {@code siftDown}s
+     */
+    public long siftDowns() {
+        return this.siftDowns;
+    }
+
+    /**
+     * Reports the average number of levels moved by a {@code siftDown}.
+     *
+     * @return the average depth, or 0 if none was recorded
+     */
+    public double averageSiftDownDepth() {
+        double average = 0;
+        if (this.siftDowns > 0) {
+            average = (double) this.siftDownLevels / this.siftDowns;
+        }
+        return average;
+    }
+
+    /**
+     * Reports the most levels moved by one {@code siftDown}.
+     *
+     * @return the maximum depth
+     */
+    public int maxSiftDownDepth() {
+        return this.maxSiftDownDepth;
+    }
+
+    /**
+     * Reports the number of {@code changeToExtractionMode}s recorded.
+     *
+     * @return the number of changes
+     */
+    public long extractionModeChanges() {
+        return this.extractionModeChanges;
+    }
+
+    /**
+     * Reports the total time spent in {@code changeToExtractionMode}.
+     *
+     * @return the time in nanoseconds
+     */
+    public long extractionModeNanos() {
+        return this.extractionModeNanos;
+    }
+
+    /**
+     * Returns a copy of the {@code removeFirst} latency histogram; entry
+     * {@code b} counts latencies of at least 2<sup>b-1</sup> and less than
+     * 2<sup>b</sup> nanoseconds (entry 0 counts zero latencies).
+     *
+     * @return the histogram
+     */
+    public long[] removeFirstLatencyHistogram() {
+        return Arrays.copyOf(this.removeFirstLatencies,
+                this.removeFirstLatencies.length);
+    }
+
+    /**
+     * Commits a JFR {@code SortingMachine.Statistics} event with the current
+     * totals, if a recording enables it.
+     */
+    public void emitStatisticsEvent() {
+        StatisticsEvent event = new StatisticsEvent();
+        if (event.shouldCommit()) {
+            event.comparisons = this.comparisons;
+            event.exchanges = this.exchanges;
+            event.extractionModeNanos = this.extractionModeNanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Resets every counter, timing and histogram bucket to zero.
+     */
+    public void reset() {
+        this.comparisons = 0;
+        this.exchanges = 0;
+        this.siftDowns = 0;
+        this.siftDownLevels = 0;
+        this.maxSiftDownDepth = 0;
+        this.extractionModeChanges = 0;
+        this.extractionModeNanos = 0;
+        Arrays.fill(this.removeFirstLatencies, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "comparisons=" + this.comparisons + ", exchanges="
+                + this.exchanges + ", siftDowns=" + this.siftDowns
+                + ", averageSiftDownDepth=" + this.averageSiftDownDepth()
+                + ", maxSiftDownDepth=" + this.maxSiftDownDepth
+                + ", extractionModeChanges=" + this.extractionModeChanges
+                + ", extractionModeNanos=" + this.extractionModeNanos;
+    }
+
+}
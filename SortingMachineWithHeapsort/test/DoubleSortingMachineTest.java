@@ -0,0 +1,83 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Customized JUnit test fixture for {@code DoubleSortingMachine}.
+ *
+ * @author Put your name here
+ *
+ */
+public final class DoubleSortingMachineTest
+        extends PrimitiveSortingMachineTest<DoubleSortingMachine> {
+
+    @Override
+    protected DoubleSortingMachine constructorTest() {
+        return new DoubleSortingMachine();
+    }
+
+    @Override
+    protected void add(DoubleSortingMachine m, int x) {
+        m.add(x);
+    }
+
+    @Override
+    protected void changeToExtractionMode(DoubleSortingMachine m) {
+        m.changeToExtractionMode();
+    }
+
+    @Override
+    protected long removeFirst(DoubleSortingMachine m) {
+        return (long) m.removeFirst();
+    }
+
+    @Override
+    protected boolean isInInsertionMode(DoubleSortingMachine m) {
+        return m.isInInsertionMode();
+    }
+
+    @Override
+    protected int size(DoubleSortingMachine m) {
+        return m.size();
+    }
+
+    @Override
+    protected void clear(DoubleSortingMachine m) {
+        m.clear();
+    }
+
+    @Override
+    protected void transferFrom(DoubleSortingMachine m,
+            DoubleSortingMachine source) {
+        m.transferFrom(source);
+    }
+
+    /**
+     * testing removeFirst, removing every entry including signed zeros,
+     * infinities, duplicates and NaN.
+     */
+    @Test
+    public void testRemoveFirstAll() {
+        /*
+         * Set up variables
+         */
+        DoubleSortingMachine m = new DoubleSortingMachine();
+        double[] entries = { 2.5, Double.NaN, 0.0, -1.5,
+            Double.POSITIVE_INFINITY, -0.0, -1.5, Double.NEGATIVE_INFINITY };
+        double[] expected = { Double.NEGATIVE_INFINITY, -1.5, -1.5, -0.0, 0.0,
+            2.5, Double.POSITIVE_INFINITY, Double.NaN };
+        for (double x : entries) {
+            m.add(x);
+        }
+        m.changeToExtractionMode();
+        /*
+         * Call method under test and assert that values of variables match
+         * expectations
+         */
+        for (double x : expected) {
+            assertEquals(0, Double.compare(x, m.removeFirst()));
+        }
+        assertEquals(0, m.size());
+    }
+
+}
@@ -0,0 +1,83 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Customized JUnit test fixture for {@code IntSortingMachine}.
+ *
+ * @author Put your name here
+ *
+ */
+public final class IntSortingMachineTest
+        extends PrimitiveSortingMachineTest<IntSortingMachine> {
+
+    @Override
+    protected IntSortingMachine constructorTest() {
+        return new IntSortingMachine();
+    }
+
+    @Override
+    protected void add(IntSortingMachine m, int x) {
+        m.add(x);
+    }
+
+    @Override
+    protected void changeToExtractionMode(IntSortingMachine m) {
+        m.changeToExtractionMode();
+    }
+
+    @Override
+    protected long removeFirst(IntSortingMachine m) {
+        return m.removeFirst();
+    }
+
+    @Override
+    protected boolean isInInsertionMode(IntSortingMachine m) {
+        return m.isInInsertionMode();
+    }
+
+    @Override
+    protected int size(IntSortingMachine m) {
+        return m.size();
+    }
+
+    @Override
+    protected void clear(IntSortingMachine m) {
+        m.clear();
+    }
+
+    @Override
+    protected void transferFrom(IntSortingMachine m,
+            IntSortingMachine source) {
+        m.transferFrom(source);
+    }
+
+    /**
+     * testing removeFirst, removing every entry including negatives,
+     * duplicates and the extreme values.
+     */
+    @Test
+    public void testRemoveFirstAll() {
+        /*
+         * Set up variables
+         */
+        IntSortingMachine m = new IntSortingMachine();
+        int[] entries = { 5, -3, 8, 0, -3, Integer.MAX_VALUE,
+            Integer.MIN_VALUE };
+        int[] expected = { Integer.MIN_VALUE, -3, -3, 0, 5, 8,
+            Integer.MAX_VALUE };
+        for (int x : entries) {
+            m.add(x);
+        }
+        m.changeToExtractionMode();
+        /*
+         * Call method under test and assert that values of variables match
+         * expectations
+         */
+        for (int x : expected) {
+            assertEquals(x, m.removeFirst());
+        }
+        assertEquals(0, m.size());
+    }
+
+}
@@ -0,0 +1,83 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Customized JUnit test fixture for {@code LongSortingMachine}.
+ *
+ * @author Put your name here
+ *
+ */
+public final class LongSortingMachineTest
+        extends PrimitiveSortingMachineTest<LongSortingMachine> {
+
+    @Override
+    protected LongSortingMachine constructorTest() {
+        return new LongSortingMachine();
+    }
+
+    @Override
+    protected void add(LongSortingMachine m, int x) {
+        m.add(x);
+    }
+
+    @Override
+    protected void changeToExtractionMode(LongSortingMachine m) {
+        m.changeToExtractionMode();
+    }
+
+    @Override
+    protected long removeFirst(LongSortingMachine m) {
+        return m.removeFirst();
+    }
+
+    @Override
+    protected boolean isInInsertionMode(LongSortingMachine m) {
+        return m.isInInsertionMode();
+    }
+
+    @Override
+    protected int size(LongSortingMachine m) {
+        return m.size();
+    }
+
+    @Override
+    protected void clear(LongSortingMachine m) {
+        m.clear();
+    }
+
+    @Override
+    protected void transferFrom(LongSortingMachine m,
+            LongSortingMachine source) {
+        m.transferFrom(source);
+    }
+
+    /**
+     * testing removeFirst, removing every entry including negatives,
+     * duplicates and the extreme values.
+     */
+    @Test
+    public void testRemoveFirstAll() {
+        /*
+         * Set up variables
+         */
+        LongSortingMachine m = new LongSortingMachine();
+        long[] entries = { 5, -3, 8, 0, -3, Long.MAX_VALUE,
+            Long.MIN_VALUE };
+        long[] expected = { Long.MIN_VALUE, -3, -3, 0, 5, 8,
+            Long.MAX_VALUE };
+        for (long x : entries) {
+            m.add(x);
+        }
+        m.changeToExtractionMode();
+        /*
+         * Call method under test and assert that values of variables match
+         * expectations
+         */
+        for (long x : expected) {
+            assertEquals(x, m.removeFirst());
+        }
+        assertEquals(0, m.size());
+    }
+
+}
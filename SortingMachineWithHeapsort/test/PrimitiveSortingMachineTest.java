@@ -0,0 +1,236 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for the scenarios shared by the primitive sorting
+ * machines ({@code IntSortingMachine}, {@code LongSortingMachine} and
+ * {@code DoubleSortingMachine}). They have no common type, so each concrete
+ * fixture supplies its machine's operations; the entries used here are small
+ * integers, which every entry type represents exactly. Scenarios on values
+ * particular to one type are in that type's fixture.
+ *
+ * @param <M>
+ *            type of the machine under test
+ *
+ * @author Put your name here
+ *
+ */
+public abstract class PrimitiveSortingMachineTest<M> {
+
+    /**
+     * Invokes the no-argument constructor of the machine under test and
+     * returns the result.
+     *
+     * @return the new machine
+     * @ensures constructorTest = (true, {})
+     */
+    protected abstract M constructorTest();
+
+    /**
+     * Adds {@code x}, converted to the entry type, to {@code m}.
+     *
+     * @param m
+     *            the machine
+     * @param x
+     *            the entry to add
+     * @updates m
+     * @requires m.insertion_mode
+     * @ensures m.contents = #m.contents union {x}
+     */
+    protected abstract void add(M m, int x);
+
+    /**
+     * Invokes {@code changeToExtractionMode} on {@code m}.
+     *
+     * @param m
+     *            the machine
+     * @updates m
+     * @requires m.insertion_mode
+     * @ensures not m.insertion_mode
+     */
+    protected abstract void changeToExtractionMode(M m);
+
+    /**
+     * Invokes {@code removeFirst} on {@code m} and returns the result as a
+     * {@code long}.
+     *
+     * @param m
+     *            the machine
+     * @return the entry removed
+     * @updates m
+     * @requires not m.insertion_mode and m.contents /= {}
+     * @ensures [removeFirst is the smallest entry of #m, which is removed]
+     */
+    protected abstract long removeFirst(M m);
+
+    /**
+     * Invokes {@code isInInsertionMode} on {@code m}.
+     *
+     * @param m
+     *            the machine
+     * @return true iff m is in insertion mode
+     * @ensures isInInsertionMode = m.insertion_mode
+     */
+    protected abstract boolean isInInsertionMode(M m);
+
+    /**
+     * Invokes {@code size} on {@code m}.
+     *
+     * @param m
+     *            the machine
+     * @return the size of m
+     * @ensures size = |m.contents|
+     */
+    protected abstract int size(M m);
+
+    /**
+     * Invokes {@code clear} on {@code m}.
+     *
+     * @param m
+     *            the machine
+     * @clears m
+     */
+    protected abstract void clear(M m);
+
+    /**
+     * Invokes {@code transferFrom} on {@code m} with {@code source}.
+     *
+     * @param m
+     *            the machine transferred to
+     * @param source
+     *            the machine transferred from
+     * @replaces m
+     * @clears source
+     * @requires source is not m
+     * @ensures m = #source
+     */
+    protected abstract void transferFrom(M m, M source);
+
+    /**
+     * Creates and returns a machine of the type under test with the given
+     * entries and mode.
+     *
+     * @param insertionMode
+     *            flag indicating the machine mode
+     * @param args
+     *            the entries for the machine
+     * @return the constructed machine
+     * @ensures createFromArgs = (insertionMode, [multiset of entries in args])
+     */
+    private M createFromArgs(boolean insertionMode, int... args) {
+        M m = this.constructorTest();
+        for (int x : args) {
+            this.add(m, x);
+        }
+        if (!insertionMode) {
+            this.changeToExtractionMode(m);
+        }
+        return m;
+    }
+
+    /**
+     * testing the constructor.
+     */
+    @Test
+    public final void testConstructor() {
+        M m = this.constructorTest();
+        assertEquals(true, this.isInInsertionMode(m));
+        assertEquals(0, this.size(m));
+    }
+
+    /**
+     * testing add, adding past the initial capacity.
+     */
+    @Test
+    public final void testAddGrows() {
+        /*
+         * Set up variables
+         */
+        M m = this.createFromArgs(true);
+        final int count = 100;
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < count; i++) {
+            this.add(m, i);
+        }
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(count, this.size(m));
+    }
+
+    /**
+     * testing changeToExtractionMode on an empty machine.
+     */
+    @Test
+    public final void testChangeToExtractionModeEmpty() {
+        M m = this.createFromArgs(true);
+        this.changeToExtractionMode(m);
+        assertEquals(false, this.isInInsertionMode(m));
+        assertEquals(0, this.size(m));
+    }
+
+    /**
+     * testing removeFirst, removing every entry of a machine large enough to
+     * have several heap levels, with duplicates.
+     */
+    @Test
+    public final void testRemoveFirstMany() {
+        /*
+         * Set up variables
+         */
+        final int count = 100;
+        final int step = 37;
+        M m = this.createFromArgs(true);
+        for (int i = 0; i < count; i++) {
+            this.add(m, (i * step) % count / 2);
+        }
+        this.changeToExtractionMode(m);
+        /*
+         * Call method under test and assert that values of variables match
+         * expectations
+         */
+        for (int i = 0; i < count; i++) {
+            assertEquals(i / 2, this.removeFirst(m));
+        }
+        assertEquals(0, this.size(m));
+    }
+
+    /**
+     * testing clear on a machine in extraction mode.
+     */
+    @Test
+    public final void testClear() {
+        M m = this.createFromArgs(false, 2, 1);
+        this.clear(m);
+        assertEquals(true, this.isInInsertionMode(m));
+        assertEquals(0, this.size(m));
+    }
+
+    /**
+     * testing transferFrom, moving an extraction-mode machine.
+     */
+    @Test
+    public final void testTransferFrom() {
+        /*
+         * Set up variables
+         */
+        M m = this.createFromArgs(true, 1);
+        M source = this.createFromArgs(false, 3, 2);
+        /*
+         * Call method under test
+         */
+        this.transferFrom(m, source);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(false, this.isInInsertionMode(m));
+        assertEquals(2, this.removeFirst(m));
+        assertEquals(3, this.removeFirst(m));
+        assertEquals(true, this.isInInsertionMode(source));
+        assertEquals(0, this.size(source));
+    }
+
+}
@@ -0,0 +1,85 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Comparator;
+
+import org.junit.Test;
+
+import components.sortingmachine.SortingMachine;
+import components.sortingmachine.SortingMachine1L;
+
+/**
+ * Customized JUnit test fixture for {@code SortingMachine5a} using the
+ * constructor with live insertion enabled.
+ */
+public final class SortingMachine5aLiveTest extends SortingMachineTest {
+
+    /**
+     * Comparator instance to be used in the live insertion test cases.
+     */
+    private static final Comparator<String> ORDER =
+            String::compareToIgnoreCase;
+
+    @Override
+    protected SortingMachine<String> constructorTest(Comparator<String> order) {
+        return new SortingMachine5a<String>(order, true);
+    }
+
+    @Override
+    protected SortingMachine<String> constructorRef(Comparator<String> order) {
+        return new SortingMachine1L<String>(order);
+    }
+
+    /**
+     * testing add in extraction mode, interleaved with removeFirst.
+     */
+    @Test
+    public void testAddInExtractionMode() {
+        /*
+         * Set up variables
+         */
+        SortingMachine<String> m = this.constructorTest(ORDER);
+        m.add("green");
+        m.add("red");
+        m.changeToExtractionMode();
+        /*
+         * Call method under test and assert that values of variables match
+         * expectations
+         */
+        m.add("blue");
+        assertEquals("blue", m.removeFirst());
+        m.add("yellow");
+        m.add("black");
+        assertEquals("black", m.removeFirst());
+        assertEquals("green", m.removeFirst());
+        assertEquals("red", m.removeFirst());
+        assertEquals("yellow", m.removeFirst());
+        assertEquals(0, m.size());
+    }
+
+    /**
+     * testing add in extraction mode on a machine that was emptied.
+     */
+    @Test
+    public void testAddInExtractionModeAfterEmpty() {
+        /*
+         * Set up variables
+         */
+        SortingMachine<String> m = this.constructorTest(ORDER);
+        m.changeToExtractionMode();
+        /*
+         * Call method under test
+         */
+        m.add("red");
+        m.add("green");
+        m.add("blue");
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(false, m.isInInsertionMode());
+        assertEquals(3, m.size());
+        assertEquals("blue", m.removeFirst());
+        assertEquals("green", m.removeFirst());
+        assertEquals("red", m.removeFirst());
+    }
+
+}
@@ -1,4 +1,15 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
 
 import components.sortingmachine.SortingMachine;
 import components.sortingmachine.SortingMachine1L;
@@ -8,6 +19,12 @@ import components.sortingmachine.SortingMachine1L;
  */
 public final class SortingMachine5aTest extends SortingMachineTest {
 
+    /**
+     * Comparator instance to be used in the batch test cases.
+     */
+    private static final Comparator<String> ORDER =
+            String::compareToIgnoreCase;
+
     @Override
     protected SortingMachine<String> constructorTest(Comparator<String> order) {
         return new SortingMachine5a<String>(order);
@@ -18,4 +35,463 @@ public final class SortingMachine5aTest extends SortingMachineTest {
         return new SortingMachine1L<String>(order);
     }
 
+    /**
+     * Creates and returns a {@code SortingMachine5a<String>} in extraction
+     * mode with the given entries.
+     *
+     * @param args
+     *            the entries for the machine
+     * @return the constructed machine
+     * @ensures createExtracting = (false, ORDER, [multiset of entries in args])
+     */
+    private static SortingMachine5a<String> createExtracting(String... args) {
+        SortingMachine5a<String> sm = new SortingMachine5a<String>(ORDER);
+        for (String s : args) {
+            sm.add(s);
+        }
+        sm.changeToExtractionMode();
+        return sm;
+    }
+
+    /**
+     * testing batch removeFirst, removing a few entries one at a time.
+     */
+    @Test
+    public void testRemoveFirstBatchFew() {
+        /*
+         * Set up variables
+         */
+        SortingMachine5a<String> m = createExtracting("red", "green", "blue",
+                "yellow", "black", "white", "orange");
+        String[] dest = new String[2];
+        /*
+         * Call method under test
+         */
+        m.removeFirst(2, dest);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertArrayEquals(new String[] { "black", "blue" }, dest);
+        assertEquals(5, m.size());
+        assertEquals("green", m.removeFirst());
+    }
+
+    /**
+     * testing batch removeFirst, removing most entries.
+     */
+    @Test
+    public void testRemoveFirstBatchMost() {
+        /*
+         * Set up variables
+         */
+        SortingMachine5a<String> m = createExtracting("red", "green", "blue",
+                "yellow", "black");
+        String[] dest = new String[4];
+        /*
+         * Call method under test
+         */
+        m.removeFirst(3, dest);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertArrayEquals(new String[] { "black", "blue", "green", null },
+                dest);
+        assertEquals(2, m.size());
+        assertEquals("red", m.removeFirst());
+        assertEquals("yellow", m.removeFirst());
+    }
+
+    /**
+     * testing drainTo, removing every entry.
+     */
+    @Test
+    public void testDrainTo() {
+        /*
+         * Set up variables
+         */
+        SortingMachine5a<String> m = createExtracting("red", "green", "blue");
+        List<String> c = new ArrayList<>();
+        c.add("first");
+        /*
+         * Call method under test
+         */
+        int count = m.drainTo(c);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(3, count);
+        assertEquals(Arrays.asList("first", "blue", "green", "red"), c);
+        assertEquals(0, m.size());
+    }
+
+    /**
+     * testing concurrentAdd, from several producer threads.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting for the producers
+     */
+    @Test
+    public void testConcurrentAdd() throws InterruptedException {
+        /*
+         * Set up variables
+         */
+        SortingMachine5a<String> m = new SortingMachine5a<String>(ORDER);
+        m.enableConcurrentInsertion();
+        m.add("m");
+        final int producers = 4;
+        final int perProducer = 50;
+        Thread[] threads = new Thread[producers];
+        /*
+         * Call method under test
+         */
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    m.concurrentAdd(String.format(Locale.ROOT, "%02d-%03d",
+                            id, i));
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        /*
+         * Assert that values of variables match expectations
+         */
+        m.add("a");
+        m.changeToExtractionMode();
+        assertEquals(producers * perProducer + 2, m.size());
+        for (int p = 0; p < producers; p++) {
+            for (int i = 0; i < perProducer; i++) {
+                assertEquals(String.format(Locale.ROOT, "%02d-%03d", p, i),
+                        m.removeFirst());
+            }
+        }
+        assertEquals("a", m.removeFirst());
+        assertEquals("m", m.removeFirst());
+    }
+
+    /**
+     * testing disableConcurrentInsertion, which keeps the entries added
+     * concurrently, and enabling concurrent insertion again afterwards.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting for the producer
+     */
+    @Test
+    public void testDisableConcurrentInsertion() throws InterruptedException {
+        /*
+         * Set up variables
+         */
+        SortingMachine5a<String> m = new SortingMachine5a<String>(ORDER);
+        m.enableConcurrentInsertion();
+        Thread producer = new Thread(() -> m.concurrentAdd("b"));
+        producer.start();
+        producer.join();
+        m.concurrentAdd("c");
+        /*
+         * Call method under test
+         */
+        m.disableConcurrentInsertion();
+        m.enableConcurrentInsertion();
+        m.concurrentAdd("a");
+        m.disableConcurrentInsertion();
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(3, m.size());
+        m.changeToExtractionMode();
+        assertEquals("a", m.removeFirst());
+        assertEquals("b", m.removeFirst());
+        assertEquals("c", m.removeFirst());
+    }
+
+    /**
+     * testing sortedIterator, visiting every entry without changing the
+     * machine.
+     */
+    @Test
+    public void testSortedIterator() {
+        /*
+         * Set up variables
+         */
+        SortingMachine5a<String> m = createExtracting("red", "green", "blue",
+                "yellow", "black", "green");
+        SortingMachine5a<String> mExpected = createExtracting("red", "green",
+                "blue", "yellow", "black", "green");
+        List<String> seen = new ArrayList<>();
+        /*
+         * Call method under test
+         */
+        Iterator<String> it = m.sortedIterator();
+        while (it.hasNext()) {
+            seen.add(it.next());
+        }
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(Arrays.asList("black", "blue", "green", "green", "red",
+                "yellow"), seen);
+        assertEquals(mExpected, m);
+    }
+
+    /**
+     * testing sortedIterator on an empty machine.
+     */
+    @Test
+    public void testSortedIteratorEmpty() {
+        SortingMachine5a<String> m = createExtracting();
+        assertEquals(false, m.sortedIterator().hasNext());
+    }
+
+    /**
+     * testing enableStatistics, counting the work of building and emptying
+     * the heap.
+     */
+    @Test
+    public void testStatistics() {
+        /*
+         * Set up variables
+         */
+        SortingMachine5a<String> m = new SortingMachine5a<String>(ORDER);
+        SortingMachineStats stats = m.enableStatistics();
+        final int count = 20;
+        for (int i = 0; i < count; i++) {
+            m.add(String.format(Locale.ROOT, "%03d", count - i));
+        }
+        /*
+         * Call method under test
+         */
+        m.changeToExtractionMode();
+        long buildComparisons = stats.comparisons();
+        for (int i = 0; i < count; i++) {
+            m.removeFirst();
+        }
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(stats, m.statistics());
+        assertEquals(1, stats.extractionModeChanges());
+        assertTrue(buildComparisons > 0);
+        assertTrue(stats.comparisons() > buildComparisons);
+        assertEquals(count, stats.siftDowns());
+        long histogramTotal = 0;
+        for (long bucket : stats.removeFirstLatencyHistogram()) {
+            histogramTotal += bucket;
+        }
+        assertEquals(count, histogramTotal);
+        assertTrue(stats.maxSiftDownDepth() <= 4);
+        assertTrue(stats.exchanges() >= count);
+    }
+
+    /**
+     * testing enableStatistics on a small input whose counts are known: the
+     * build, the batch removal and the drain each record their comparisons,
+     * exchanges and siftDowns. Runs at the full check level, so with
+     * assertions enabled it also checks that the comparisons made by the
+     * checks are not counted.
+     */
+    @Test
+    public void testStatisticsExactCounts() {
+        SortingMachine5a.CheckLevel saved = SortingMachine5a
+                .invariantCheckLevel();
+        SortingMachine5a
+                .setInvariantCheckLevel(SortingMachine5a.CheckLevel.FULL);
+        try {
+            /*
+             * Set up variables
+             */
+            SortingMachine5a<String> m = new SortingMachine5a<String>(ORDER);
+            SortingMachineStats stats = m.enableStatistics();
+            for (String x : new String[] { "5", "4", "3", "2", "1" }) {
+                m.add(x);
+            }
+            String[] dest = new String[2];
+            List<String> drained = new ArrayList<String>();
+            /*
+             * Call methods under test and assert that values of variables
+             * match expectations: heapify sifts "4" down one level and "5"
+             * two, with one comparison at each leaf and two at each inner node
+             * on the way
+             */
+            m.changeToExtractionMode();
+            assertEquals(11, stats.comparisons());
+            assertEquals(3, stats.exchanges());
+            assertEquals(0, stats.siftDowns());
+            /*
+             * Each removal takes out the root and sifts the last entry down
+             * one level
+             */
+            m.removeFirst(2, dest);
+            assertEquals(Arrays.asList("1", "2"), Arrays.asList(dest));
+            assertEquals(16, stats.comparisons());
+            assertEquals(7, stats.exchanges());
+            assertEquals(2, stats.siftDowns());
+            /*
+             * The last two removals sift nothing
+             */
+            assertEquals(3, m.drainTo(drained));
+            assertEquals(Arrays.asList("3", "4", "5"), drained);
+            assertEquals(17, stats.comparisons());
+            assertEquals(11, stats.exchanges());
+            assertEquals(5, stats.siftDowns());
+            assertEquals(1, stats.maxSiftDownDepth());
+        } finally {
+            SortingMachine5a.setInvariantCheckLevel(saved);
+        }
+    }
+
+    /**
+     * testing clear on a machine in extraction mode, then refilling it with
+     * the retained array.
+     */
+    @Test
+    public void testClearThenRefill() {
+        /*
+         * Set up variables
+         */
+        SortingMachine5a<String> m = createExtracting("red", "green", "blue",
+                "yellow", "black");
+        SortingMachine<String> mExpected = new SortingMachine1L<String>(ORDER);
+        mExpected.add("white");
+        mExpected.add("orange");
+        m.removeFirst();
+        /*
+         * Call method under test
+         */
+        m.clear();
+        m.add("white");
+        m.add("orange");
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        m.changeToExtractionMode();
+        assertEquals("orange", m.removeFirst());
+        assertEquals("white", m.removeFirst());
+    }
+
+    /**
+     * testing clear on a machine whose array is longer than the retention
+     * cap.
+     */
+    @Test
+    public void testClearPastRetentionCap() {
+        /*
+         * Set up variables
+         */
+        SortingMachine5a<String> m = new SortingMachine5a<String>(ORDER);
+        m.setRetentionCap(2);
+        final int count = 40;
+        for (int i = 0; i < count; i++) {
+            m.add(String.format(Locale.ROOT, "%03d", i));
+        }
+        /*
+         * Call method under test
+         */
+        m.clear();
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(2, m.retentionCap());
+        assertEquals(0, m.size());
+        m.add("red");
+        m.changeToExtractionMode();
+        assertEquals("red", m.removeFirst());
+    }
+
+    /**
+     * testing transferFrom repeatedly between two machines, which exchange
+     * their arrays.
+     */
+    @Test
+    public void testTransferFromCycles() {
+        /*
+         * Set up variables
+         */
+        SortingMachine5a<String> m = new SortingMachine5a<String>(ORDER);
+        SortingMachine5a<String> n = new SortingMachine5a<String>(ORDER);
+        final int cycles = 3;
+        for (int c = 0; c < cycles; c++) {
+            /*
+             * Call method under test
+             */
+            n.add("green");
+            n.add("blue");
+            m.transferFrom(n);
+            m.changeToExtractionMode();
+            /*
+             * Assert that values of variables match expectations
+             */
+            assertEquals(0, n.size());
+            assertEquals(true, n.isInInsertionMode());
+            assertEquals("blue", m.removeFirst());
+            assertEquals("green", m.removeFirst());
+        }
+    }
+
+    /**
+     * Adds and removes entries of a live-insertion machine at the given check
+     * level, then restores the default level.
+     *
+     * @param level
+     *            the check level to use
+     */
+    private static void exerciseAtCheckLevel(
+            SortingMachine5a.CheckLevel level) {
+        SortingMachine5a.CheckLevel saved = SortingMachine5a
+                .invariantCheckLevel();
+        SortingMachine5a.setInvariantCheckLevel(level);
+        try {
+            final int count = 40;
+            SortingMachine5a<String> m = new SortingMachine5a<String>(ORDER,
+                    true);
+            for (int i = 0; i < count; i++) {
+                m.add(String.format(Locale.ROOT, "%03d", (i * 7) % count));
+            }
+            m.changeToExtractionMode();
+            m.add("000");
+            assertEquals("000", m.removeFirst());
+            for (int i = 0; i < count; i++) {
+                assertEquals(String.format(Locale.ROOT, "%03d", i),
+                        m.removeFirst());
+            }
+        } finally {
+            SortingMachine5a.setInvariantCheckLevel(saved);
+        }
+    }
+
+    /**
+     * testing operations with sampled invariant checking.
+     */
+    @Test
+    public void testCheckLevelSampled() {
+        final int interval = 3;
+        int saved = SortingMachine5a.invariantSampleInterval();
+        SortingMachine5a.setInvariantSampleInterval(interval);
+        try {
+            exerciseAtCheckLevel(SortingMachine5a.CheckLevel.SAMPLED);
+        } finally {
+            SortingMachine5a.setInvariantSampleInterval(saved);
+        }
+    }
+
+    /**
+     * testing operations with incremental invariant checking.
+     */
+    @Test
+    public void testCheckLevelIncremental() {
+        exerciseAtCheckLevel(SortingMachine5a.CheckLevel.INCREMENTAL);
+    }
+
+    /**
+     * testing operations with invariant checking off.
+     */
+    @Test
+    public void testCheckLevelOff() {
+        exerciseAtCheckLevel(SortingMachine5a.CheckLevel.OFF);
+    }
+
 }
@@ -0,0 +1,190 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import components.sortingmachine.SortingMachine;
+import components.sortingmachine.SortingMachine1L;
+
+/**
+ * Customized JUnit test fixture for {@code SortingMachine6} using a
+ * {@code String} key consistent with the case-insensitive test order, with
+ * further tests on inputs large enough to be radix sorted and on each key
+ * strategy.
+ */
+public final class SortingMachine6Test extends SortingMachineTest {
+
+    @Override
+    protected SortingMachine<String> constructorTest(Comparator<String> order) {
+        return new SortingMachine6<String>(order, SortingMachine6
+                .stringKey(s -> s.toLowerCase(Locale.ROOT)));
+    }
+
+    @Override
+    protected SortingMachine<String> constructorRef(Comparator<String> order) {
+        return new SortingMachine1L<String>(order);
+    }
+
+    /**
+     * Adds {@code entries} to {@code m}, changes it to extraction mode, and
+     * checks that {@code removeFirst} returns them in the order of
+     * {@code order}, comparing entries with {@code order} (so entries it
+     * considers equal may come in any order among themselves).
+     *
+     * @param <T>
+     *            type of entries
+     * @param m
+     *            an empty machine in insertion mode
+     * @param order
+     *            the order of m
+     * @param entries
+     *            the entries to sort
+     * @updates m
+     */
+    private static <T> void assertSorts(SortingMachine<T> m,
+            Comparator<T> order, T[] entries) {
+        T[] expected = Arrays.copyOf(entries, entries.length);
+        Arrays.sort(expected, order);
+        for (T x : entries) {
+            m.add(x);
+        }
+        m.changeToExtractionMode();
+        assertEquals(entries.length, m.size());
+        for (T x : expected) {
+            assertEquals(0, order.compare(x, m.removeFirst()));
+        }
+        assertEquals(0, m.size());
+    }
+
+    /**
+     * Returns a machine on {@code String}s in their natural order, sorted
+     * with the {@code String} key strategy.
+     *
+     * @return the new machine
+     */
+    private static SortingMachine<String> naturalStringMachine() {
+        return new SortingMachine6<String>(Comparator.naturalOrder(),
+                SortingMachine6.stringKey(s -> s));
+    }
+
+    /**
+     * testing the string key with shared prefixes, empty strings, duplicates
+     * and non-ASCII chars.
+     */
+    @Test
+    public void testStringKeyPrefixes() {
+        String[] entries = { "http://example.com/b", "",
+            "http://example.com/a", "http://example.com/", "http",
+            "http://example.com/a", "", "http://example.com/a/1",
+            "http://example.org/", "http://example.com/\u00E9",
+            "http://example.com/\u0100", "https://example.com/",
+            "http://example.com/A", "h", "http://example.com/a/10",
+            "http://example.com/a/2", "http://example.com/b", "zebra",
+            "\uFFFF", "http:", "http://" };
+        assertSorts(naturalStringMachine(), Comparator.naturalOrder(),
+                entries);
+    }
+
+    /**
+     * testing the string key with many equal long keys, which share every
+     * byte.
+     */
+    @Test
+    public void testStringKeyEqualLongKeys() {
+        /*
+         * Set up variables
+         */
+        final int count = 100;
+        final int keyLength = 100000;
+        char[] chars = new char[keyLength];
+        Arrays.fill(chars, 'u');
+        String[] entries = new String[count];
+        for (int i = 0; i < count; i++) {
+            entries[i] = new String(chars);
+        }
+        entries[count / 2] = entries[count / 2] + "!";
+        entries[count / 2 + 1] = entries[count / 2 + 1].substring(1);
+        /*
+         * Call method under test and assert that values of variables match
+         * expectations
+         */
+        assertSorts(naturalStringMachine(), Comparator.naturalOrder(),
+                entries);
+    }
+
+    /**
+     * testing the string key with a chain of keys each a prefix of the next,
+     * which split off one key per char.
+     */
+    @Test
+    public void testStringKeyPrefixChain() {
+        /*
+         * Set up variables
+         */
+        final int count = 3000;
+        String[] entries = new String[count];
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            entries[(i * 7) % count] = key.toString();
+            key.append('a');
+        }
+        /*
+         * Call method under test and assert that values of variables match
+         * expectations
+         */
+        assertSorts(naturalStringMachine(), Comparator.naturalOrder(),
+                entries);
+    }
+
+    /**
+     * testing the int key with negatives, zero, duplicates, and the extreme
+     * values.
+     */
+    @Test
+    public void testIntKey() {
+        Integer[] entries = { 5, -3, 8, 0, -3, Integer.MAX_VALUE,
+            Integer.MIN_VALUE, 256, -256, 255, -1, 1, 65536, -65536, 0,
+            Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1, 1 << 24, -(1 << 24),
+            Integer.MAX_VALUE };
+        assertSorts(
+                new SortingMachine6<Integer>(Integer::compare,
+                        SortingMachine6.intKey(x -> x)),
+                Integer::compare, entries);
+    }
+
+    /**
+     * testing the long key with negatives, zero, duplicates, and the extreme
+     * values.
+     */
+    @Test
+    public void testLongKey() {
+        Long[] entries = { 5L, -3L, 8L, 0L, -3L, Long.MAX_VALUE,
+            Long.MIN_VALUE, 1L << 32, -(1L << 32), (long) Integer.MAX_VALUE,
+            (long) Integer.MIN_VALUE, -1L, 1L, 1L << 56, -(1L << 56), 0L,
+            Long.MIN_VALUE + 1, Long.MAX_VALUE - 1, 256L, Long.MIN_VALUE };
+        assertSorts(
+                new SortingMachine6<Long>(Long::compare,
+                        SortingMachine6.longKey(x -> x)),
+                Long::compare, entries);
+    }
+
+    /**
+     * testing an order other than the natural one: strings by length, with
+     * an int key, so strings of the same length are equal in the order.
+     */
+    @Test
+    public void testIntKeyByLength() {
+        Comparator<String> byLength = Comparator.comparingInt(String::length);
+        String[] entries = { "ccc", "a", "", "bb", "dddd", "b", "cc", "aaa",
+            "", "eeeee", "x", "yy", "zzz", "wwww", "v", "uu", "ttt", "ssss",
+            "r", "" };
+        assertSorts(
+                new SortingMachine6<String>(byLength,
+                        SortingMachine6.intKey(String::length)),
+                byLength, entries);
+    }
+
+}